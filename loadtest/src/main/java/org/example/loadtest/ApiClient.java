@@ -0,0 +1,106 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/** Asynchronous calls against AuthController, NoteController and CalculatorController. */
+public final class ApiClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI base;
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+
+    public ApiClient(URI base) {
+        this.base = base;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public CompletableFuture<HttpResponse<String>> register(String username, String password) {
+        return send(post("/api/auth/register", null, Map.of("username", username, "password", password)));
+    }
+
+    public CompletableFuture<HttpResponse<String>> login(String username, String password) {
+        return send(post("/api/auth/login", null, Map.of("username", username, "password", password)));
+    }
+
+    public CompletableFuture<HttpResponse<String>> listNotes(String token, int page, int size) {
+        return send(get("/api/notes?page=" + page + "&size=" + size, token));
+    }
+
+    public CompletableFuture<HttpResponse<String>> getNote(String token, long id) {
+        return send(get("/api/notes/" + id, token));
+    }
+
+    public CompletableFuture<HttpResponse<String>> createNote(String token, String title, String content) {
+        return send(post("/api/notes", token, Map.of("title", title, "content", content)));
+    }
+
+    public CompletableFuture<HttpResponse<String>> updateNote(String token, long id, String title, String content) {
+        return send(request("/api/notes/" + id, token)
+                .PUT(body(Map.of("title", title, "content", content)))
+                .build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> deleteNote(String token, long id) {
+        return send(request("/api/notes/" + id, token).DELETE().build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> calculate(String token, String expr) {
+        return send(post("/api/calc", token, Map.of("expr", expr)));
+    }
+
+    public CompletableFuture<HttpResponse<String>> history(String token, int limit) {
+        return send(get("/api/calc/history?limit=" + limit, token));
+    }
+
+    /** Top-level field of a JSON response body, or null. */
+    public JsonNode field(HttpResponse<String> response, String name) {
+        try {
+            JsonNode node = json.readTree(response.body()).get(name);
+            return node == null || node.isNull() ? null : node;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest req) {
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, Object body) {
+        return request(path, token).POST(body(body)).build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(base.resolve(path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json");
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        return b;
+    }
+
+    private HttpRequest.BodyPublisher body(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Starts the service's executable jar inside this JVM, in its own class loader, and waits until
+ * it answers on a free port. No separate process to manage, and harness and service run on the
+ * same JVM settings. The service stops when the JVM exits.
+ *
+ * <p>The jar is unpacked to a temporary directory first: the Boot launcher's {@code nested:}
+ * URLs only resolve when the launcher owns the system class loader, which it does not here.
+ */
+final class InProcessApp {
+
+    private InProcessApp() {}
+
+    static URI start(Path jar, String profile) throws Exception {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException(jar + " not found; build it with mvn package -DskipTests");
+        }
+        int port = freePort();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=" + profile,
+                "--server.port=" + port,
+                // the dev profile logs every statement; that would dominate the run
+                "--spring.jpa.show-sql=false",
+                "--debug.sql-count.enabled=false",
+                // a handful of virtual users drive the whole load; per-user quotas would cap it
+                "--quotas.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.springframework.jdbc.core=WARN",
+                "--logging.level.org.springframework.security=WARN"));
+
+        URLClassLoader loader = new URLClassLoader(unpack(jar), ClassLoader.getPlatformClassLoader());
+        Method main = loader.loadClass(startClass(jar)).getMethod("main", String[].class);
+        Thread boot = new Thread(() -> {
+            try {
+                main.invoke(null, (Object) args.toArray(new String[0]));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "service-main");
+        boot.setContextClassLoader(loader);
+        boot.start();
+
+        URI base = URI.create("http://localhost:" + port);
+        waitUntilHealthy(base, boot, Duration.ofMinutes(3));
+        return base;
+    }
+
+    /** BOOT-INF/classes and every BOOT-INF/lib jar, extracted to a temporary directory. */
+    private static URL[] unpack(Path jar) throws IOException {
+        Path dir = Files.createTempDirectory("loadtest-app");
+        List<URL> urls = new ArrayList<>();
+        try (JarFile jf = new JarFile(jar.toFile())) {
+            for (JarEntry e : Collections.list(jf.entries())) {
+                if (e.isDirectory() || !e.getName().startsWith("BOOT-INF/")) continue;
+                Path target = dir.resolve(e.getName()).normalize();
+                if (!target.startsWith(dir)) throw new IOException("Bad entry " + e.getName());
+                Files.createDirectories(target.getParent());
+                try (InputStream in = jf.getInputStream(e)) {
+                    Files.copy(in, target);
+                }
+                if (e.getName().startsWith("BOOT-INF/lib/")) urls.add(target.toUri().toURL());
+            }
+        }
+        // a directory URL needs its trailing slash, which toUri() only adds once the directory exists
+        urls.add(0, dir.resolve("BOOT-INF/classes").toUri().toURL());
+        return urls.toArray(new URL[0]);
+    }
+
+    private static String startClass(Path jar) throws IOException {
+        try (JarFile jf = new JarFile(jar.toFile())) {
+            String start = jf.getManifest().getMainAttributes().getValue("Start-Class");
+            if (start == null) throw new IllegalArgumentException(jar + " is not a Spring Boot executable jar");
+            return start;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    private static void waitUntilHealthy(URI base, Thread boot, Duration limit) throws InterruptedException {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(base.resolve("/actuator/health")).timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + limit.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (http.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (IOException notYet) {
+                // not listening yet
+            }
+            if (!boot.isAlive() && !listening(base)) {
+                throw new IllegalStateException("Service failed to start; see the output above");
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Service not healthy after " + limit.toSeconds() + "s");
+    }
+
+    private static boolean listening(URI base) {
+        try (Socket s = new Socket(base.getHost(), base.getPort())) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
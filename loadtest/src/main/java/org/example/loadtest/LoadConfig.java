@@ -0,0 +1,94 @@
+package org.example.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/** Options of one run; see {@link #USAGE}. */
+public record LoadConfig(URI target, Path bootJar, String profile, double rate, boolean poisson,
+                         Duration warmup, Duration duration, int users, Mix mix, long seed,
+                         int maxInFlight, Path out, Path compare) {
+
+    public static final String USAGE = """
+            Usage: LoadTestMain (--target URL | --boot JAR) [options]
+              --target URL          drive an already running service, e.g. http://localhost:8080
+              --boot JAR            start the service jar in this JVM on a free port first
+              --profile NAME        Spring profile for --boot (default dev, i.e. in-memory H2)
+              --rate N              arrivals per second, independent of response times (default 50)
+              --arrivals KIND       poisson | constant (default poisson)
+              --warmup D            run at full rate first and discard results (default 10s)
+              --duration D          measured run length (default 60s)
+              --users N             registered users requests are spread over (default 20)
+              --mix SPEC            op=weight,... (default %s)
+              --seed N              random seed; same seed, same sequence of operations (default 42)
+              --max-in-flight N     arrivals beyond this many outstanding requests count as errors (default 5000)
+              --out DIR             report directory (default target/loadtest)
+              --compare FILE        report.json of an earlier run to diff against
+            Durations: 500ms, 30s, 5m.
+            """.formatted(Mix.DEFAULT);
+
+    public static LoadConfig parse(String[] args) {
+        URI target = null;
+        Path boot = null;
+        String profile = "dev";
+        double rate = 50;
+        boolean poisson = true;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(60);
+        int users = 20;
+        String mix = Mix.DEFAULT;
+        long seed = 42;
+        int maxInFlight = 5000;
+        Path out = Path.of("target", "loadtest");
+        Path compare = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + name);
+            String v = args[++i];
+            switch (name) {
+                case "--target" -> target = URI.create(v.endsWith("/") ? v.substring(0, v.length() - 1) : v);
+                case "--boot" -> boot = Path.of(v);
+                case "--profile" -> profile = v;
+                case "--rate" -> rate = Double.parseDouble(v);
+                case "--arrivals" -> poisson = switch (v) {
+                    case "poisson" -> true;
+                    case "constant" -> false;
+                    default -> throw new IllegalArgumentException("--arrivals is poisson or constant");
+                };
+                case "--warmup" -> warmup = duration(v);
+                case "--duration" -> duration = duration(v);
+                case "--users" -> users = Integer.parseInt(v);
+                case "--mix" -> mix = v;
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--max-in-flight" -> maxInFlight = Integer.parseInt(v);
+                case "--out" -> out = Path.of(v);
+                case "--compare" -> compare = Path.of(v);
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        if ((target == null) == (boot == null)) {
+            throw new IllegalArgumentException("Give exactly one of --target and --boot");
+        }
+        if (rate <= 0 || users <= 0 || duration.isZero()) {
+            throw new IllegalArgumentException("--rate, --users and --duration must be positive");
+        }
+        return new LoadConfig(target, boot, profile, rate, poisson, warmup, duration, users, Mix.parse(mix),
+                seed, maxInFlight, out, compare);
+    }
+
+    static Duration duration(String v) {
+        if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        long n = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (v.charAt(v.length() - 1)) {
+            case 's' -> Duration.ofSeconds(n);
+            case 'm' -> Duration.ofMinutes(n);
+            default -> throw new IllegalArgumentException("Bad duration '" + v + "' (use ms, s or m)");
+        };
+    }
+
+    public LoadConfig withTarget(URI target) {
+        return new LoadConfig(target, bootJar, profile, rate, poisson, warmup, duration, users, mix, seed,
+                maxInFlight, out, compare);
+    }
+}
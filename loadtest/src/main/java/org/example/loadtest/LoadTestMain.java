@@ -0,0 +1,86 @@
+package org.example.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point: optionally boots the service, registers {@code --users} users with a few notes
+ * each, runs the open-model load and writes the report. Run with no arguments for the options.
+ */
+public final class LoadTestMain {
+
+    private static final int SEED_NOTES_PER_USER = 3;
+
+    private LoadTestMain() {}
+
+    public static void main(String[] args) {
+        int status;
+        try {
+            status = run(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadConfig.USAGE);
+            status = 2;
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        // an in-process service keeps non-daemon threads alive
+        System.exit(status);
+    }
+
+    private static int run(String[] args) throws Exception {
+        LoadConfig cfg = LoadConfig.parse(args);
+        if (cfg.bootJar() != null) {
+            System.out.printf("starting %s (profile %s)%n", cfg.bootJar(), cfg.profile());
+            URI base = InProcessApp.start(cfg.bootJar(), cfg.profile());
+            System.out.println("service up at " + base);
+            cfg = cfg.withTarget(base);
+        }
+
+        ApiClient api = new ApiClient(cfg.target());
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<VirtualUser> users = setUpUsers(api, cfg.users(), runId);
+        System.out.printf("%d users ready; mix %s%n", users.size(), cfg.mix());
+
+        OpenLoadGenerator.Results results = new OpenLoadGenerator(api, users, cfg, runId).run();
+        Map<String, Report.Stats> stats = Report.summarize(results);
+        System.out.println();
+        Report.print(stats, results.dropped(), System.out);
+        Report.write(cfg.out(), cfg, results, stats);
+        System.out.println("report written to " + cfg.out().toAbsolutePath());
+        if (cfg.compare() != null) {
+            Report.compare(cfg.compare(), stats, System.out);
+        }
+        return 0;
+    }
+
+    /** Registered and logged in one at a time; set-up is not measured. */
+    private static List<VirtualUser> setUpUsers(ApiClient api, int count, String runId) {
+        List<VirtualUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = "lt" + runId + "u" + i;
+            String password = "load-test";
+            expect2xx(api.register(name, password).join(), "register " + name);
+            HttpResponse<String> login = expect2xx(api.login(name, password).join(), "login " + name);
+            VirtualUser user = new VirtualUser(name, password, api.field(login, "token").asText());
+            for (int n = 0; n < SEED_NOTES_PER_USER; n++) {
+                HttpResponse<String> note = expect2xx(
+                        api.createNote(user.token(), "seed " + n, "seeded by the load test").join(), "seed note");
+                user.addNote(api.field(note, "id").asLong());
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static HttpResponse<String> expect2xx(HttpResponse<String> res, String what) {
+        if (res.statusCode() / 100 != 2) {
+            throw new IllegalStateException(what + " failed: HTTP " + res.statusCode() + " " + res.body());
+        }
+        return res;
+    }
+}
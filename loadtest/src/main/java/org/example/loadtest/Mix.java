@@ -0,0 +1,65 @@
+package org.example.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted choice of the next operation, e.g. {@code notes.list=30,calc.create=20}.
+ * Weights are relative; operations left out never run.
+ */
+public final class Mix {
+
+    /** Read-heavy: browsing notes dominates, logins and sign-ups are rare. */
+    public static final String DEFAULT = "notes.list=30,notes.get=15,notes.create=10,notes.update=8,notes.delete=5,"
+            + "calc.create=20,calc.history=7,auth.login=4,auth.register=1";
+
+    private final Operation[] ops;
+    private final int[] cumulative;
+    private final Map<Operation, Integer> weights;
+
+    private Mix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.ops = weights.keySet().toArray(new Operation[0]);
+        this.cumulative = new int[ops.length];
+        int sum = 0;
+        for (int i = 0; i < ops.length; i++) {
+            sum += weights.get(ops[i]);
+            cumulative[i] = sum;
+        }
+    }
+
+    public static Mix parse(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String p = part.trim();
+            if (p.isEmpty()) continue;
+            int eq = p.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected op=weight but got '" + p + "'");
+            int w = Integer.parseInt(p.substring(eq + 1).trim());
+            if (w < 0) throw new IllegalArgumentException("Negative weight for " + p);
+            if (w > 0) weights.put(Operation.of(p.substring(0, eq).trim()), w);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("Mix has no operations: '" + spec + "'");
+        return new Mix(weights);
+    }
+
+    public Operation next(Random rnd) {
+        int r = rnd.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) return ops[i];
+        }
+        throw new IllegalStateException();
+    }
+
+    public Map<Operation, Integer> weights() {
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        weights.forEach((op, w) -> sb.append(sb.isEmpty() ? "" : ",").append(op.key).append('=').append(w));
+        return sb.toString();
+    }
+}
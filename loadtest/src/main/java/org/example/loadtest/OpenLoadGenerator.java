@@ -0,0 +1,241 @@
+package org.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Open-model driver: requests start on a schedule fixed in advance (Poisson or evenly spaced
+ * arrivals at {@code --rate}), whether or not earlier ones have finished. Latency is measured
+ * from the scheduled start, not the actual send, so a stalled service is charged for the queue
+ * it builds up instead of quietly slowing the generator down (coordinated omission).
+ *
+ * <p>All random choices are made on the single pacing thread, so a seed fixes the sequence of
+ * operations; only the note ids they act on depend on the service's responses.
+ */
+final class OpenLoadGenerator {
+
+    /** Measured-phase outcome: successful-request latencies in microseconds, per operation. */
+    record Results(Map<Operation, Histogram> latencies, Map<Operation, Long> errors, long dropped,
+                   Duration measured) {}
+
+    private static final String[] NOTE_WORDS = {"meeting", "groceries", "ideas", "todo", "draft", "release", "review"};
+
+    private final ApiClient api;
+    private final List<VirtualUser> users;
+    private final LoadConfig cfg;
+    private final Random rnd;
+    private final String runId;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final AtomicLongArray errors = new AtomicLongArray(Operation.values().length);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong registered = new AtomicLong();
+
+    OpenLoadGenerator(ApiClient api, List<VirtualUser> users, LoadConfig cfg, String runId) {
+        this.api = api;
+        this.users = users;
+        this.cfg = cfg;
+        this.rnd = new Random(cfg.seed());
+        this.runId = runId;
+        for (Operation op : Operation.values()) recorders.put(op, new Recorder(3));
+    }
+
+    /** Warm-up at full rate with nothing recorded, then the measured run, then a bounded drain. */
+    Results run() throws InterruptedException {
+        if (!cfg.warmup().isZero()) {
+            System.out.printf("warm-up %ss at %.0f req/s%n", cfg.warmup().toSeconds(), cfg.rate());
+            pace(cfg.warmup(), false);
+        }
+        System.out.printf("measuring %ss at %.0f req/s%n", cfg.duration().toSeconds(), cfg.rate());
+        pace(cfg.duration(), true);
+        drain(Duration.ofSeconds(30));
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errs = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            Histogram h = recorders.get(op).getIntervalHistogram();
+            if (h.getTotalCount() > 0 || errors.get(op.ordinal()) > 0) {
+                latencies.put(op, h);
+                errs.put(op, errors.get(op.ordinal()));
+            }
+        }
+        return new Results(latencies, errs, dropped.get(), cfg.duration());
+    }
+
+    private void pace(Duration length, boolean measured) {
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        double meanGapNanos = 1e9 / cfg.rate();
+        double next = start;
+        while (true) {
+            next += cfg.poisson() ? -Math.log(1 - rnd.nextDouble()) * meanGapNanos : meanGapNanos;
+            long intended = (long) next;
+            if (intended >= end) break;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            // when behind schedule, fire immediately; the delay is already part of the latency
+            fire(cfg.mix().next(rnd), intended, measured);
+        }
+    }
+
+    private void drain(Duration limit) throws InterruptedException {
+        long deadline = System.nanoTime() + limit.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        if (inFlight.get() > 0) {
+            System.out.printf("%d request(s) still outstanding after %ss, not counted%n",
+                    inFlight.get(), limit.toSeconds());
+        }
+    }
+
+    private void fire(Operation op, long intended, boolean measured) {
+        VirtualUser user = users.get(rnd.nextInt(users.size()));
+        Call call = prepare(op, user);
+        if (inFlight.incrementAndGet() > cfg.maxInFlight()) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                dropped.incrementAndGet();
+                errors.incrementAndGet(call.op.ordinal());
+            }
+            return;
+        }
+        CompletableFuture<HttpResponse<String>> f;
+        try {
+            f = call.send();
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+        f.whenComplete((res, ex) -> {
+            long latencyMicros = (System.nanoTime() - intended) / 1_000;
+            inFlight.decrementAndGet();
+            boolean ok = ex == null && res.statusCode() / 100 == 2;
+            if (ok) call.onSuccess(res);
+            if (!measured) return;
+            if (ok) {
+                recorders.get(call.op).recordValue(Math.max(latencyMicros, 0));
+            } else {
+                errors.incrementAndGet(call.op.ordinal());
+            }
+        });
+    }
+
+    /**
+     * Turns the drawn operation into a concrete request. Operations on an existing note fall back
+     * to creating one when the user has none yet, and are then reported as notes.create.
+     */
+    private Call prepare(Operation op, VirtualUser user) {
+        String token = user.token();
+        switch (op) {
+            case AUTH_REGISTER -> {
+                String name = "lt" + runId + "r" + registered.incrementAndGet();
+                return new Call(op, () -> api.register(name, "load-test"));
+            }
+            case AUTH_LOGIN -> {
+                return new Call(op, () -> api.login(user.username, user.password), res -> {
+                    var t = api.field(res, "token");
+                    if (t != null) user.token(t.asText());
+                });
+            }
+            case NOTES_LIST -> {
+                int page = rnd.nextInt(3);
+                return new Call(op, () -> api.listNotes(token, page, 20));
+            }
+            case NOTES_GET -> {
+                Long id = user.anyNote(rnd);
+                if (id != null) return new Call(op, () -> api.getNote(token, id));
+            }
+            case NOTES_UPDATE -> {
+                Long id = user.anyNote(rnd);
+                if (id != null) {
+                    String title = noteTitle();
+                    String content = noteContent();
+                    return new Call(op, () -> api.updateNote(token, id, title, content));
+                }
+            }
+            case NOTES_DELETE -> {
+                Long id = user.takeNote(rnd);
+                if (id != null) return new Call(op, () -> api.deleteNote(token, id));
+            }
+            case CALC_CREATE -> {
+                String expr = expression();
+                return new Call(op, () -> api.calculate(token, expr));
+            }
+            case CALC_HISTORY -> {
+                return new Call(op, () -> api.history(token, 20));
+            }
+            default -> { }
+        }
+        return createNote(user);
+    }
+
+    private Call createNote(VirtualUser user) {
+        String title = noteTitle();
+        String content = noteContent();
+        String token = user.token();
+        return new Call(Operation.NOTES_CREATE, () -> api.createNote(token, title, content), res -> {
+            var id = api.field(res, "id");
+            if (id != null) user.addNote(id.asLong());
+        });
+    }
+
+    private String noteTitle() {
+        return NOTE_WORDS[rnd.nextInt(NOTE_WORDS.length)] + " " + rnd.nextInt(1000);
+    }
+
+    private String noteContent() {
+        StringBuilder sb = new StringBuilder();
+        int words = 10 + rnd.nextInt(40);
+        for (int i = 0; i < words; i++) {
+            sb.append(i == 0 ? "" : " ").append(NOTE_WORDS[rnd.nextInt(NOTE_WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** Small expressions from a limited pool, so the service's expression cache sees repeats. */
+    private String expression() {
+        int a = rnd.nextInt(50);
+        int b = 1 + rnd.nextInt(20);
+        int c = rnd.nextInt(10);
+        return switch (rnd.nextInt(4)) {
+            case 0 -> a + "+" + b;
+            case 1 -> "(" + a + "+" + c + ")*" + b;
+            case 2 -> a + "*" + b + "-" + c;
+            default -> "(" + a + "-" + c + ")/" + b + "+" + a;
+        };
+    }
+
+    /** One request, bound to its arguments, plus what to remember if it succeeds. */
+    record Call(Operation op, Sender sender, Consumer<HttpResponse<String>> remember) {
+        Call(Operation op, Sender sender) {
+            this(op, sender, res -> { });
+        }
+
+        CompletableFuture<HttpResponse<String>> send() {
+            return sender.send();
+        }
+
+        void onSuccess(HttpResponse<String> res) {
+            remember.accept(res);
+        }
+    }
+
+    @FunctionalInterface
+    interface Sender {
+        CompletableFuture<HttpResponse<String>> send();
+    }
+}
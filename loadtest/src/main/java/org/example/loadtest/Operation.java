@@ -0,0 +1,27 @@
+package org.example.loadtest;
+
+/** The API calls a load run is made of; {@link #key} names them in mixes and reports. */
+public enum Operation {
+    AUTH_REGISTER("auth.register"),
+    AUTH_LOGIN("auth.login"),
+    NOTES_LIST("notes.list"),
+    NOTES_GET("notes.get"),
+    NOTES_CREATE("notes.create"),
+    NOTES_UPDATE("notes.update"),
+    NOTES_DELETE("notes.delete"),
+    CALC_CREATE("calc.create"),
+    CALC_HISTORY("calc.history");
+
+    public final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public static Operation of(String key) {
+        for (Operation op : values()) {
+            if (op.key.equals(key)) return op;
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'");
+    }
+}
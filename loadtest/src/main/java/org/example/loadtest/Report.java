@@ -0,0 +1,117 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns {@link OpenLoadGenerator.Results} into a console table, {@code report.json} and one
+ * {@code .hgrm} percentile distribution per operation (plottable with HdrHistogram's plotter),
+ * and optionally diffs against the {@code report.json} of an earlier run.
+ */
+final class Report {
+
+    static final String TOTAL = "total";
+
+    /** Latencies in milliseconds, throughput in successful requests per second. */
+    record Stats(long count, long errors, double throughput, double p50, double p90, double p99,
+                 double p999, double max) {}
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private Report() {}
+
+    /** Per-operation stats in mix order, followed by {@link #TOTAL} over all operations. */
+    static Map<String, Stats> summarize(OpenLoadGenerator.Results results) {
+        double seconds = results.measured().toNanos() / 1e9;
+        Map<String, Stats> out = new LinkedHashMap<>();
+        Histogram all = null;
+        long allErrors = 0;
+        for (var e : results.latencies().entrySet()) {
+            Histogram h = e.getValue();
+            long errs = results.errors().getOrDefault(e.getKey(), 0L);
+            out.put(e.getKey().key, stats(h, errs, seconds));
+            if (all == null) all = new Histogram(h.getNumberOfSignificantValueDigits());
+            all.add(h);
+            allErrors += errs;
+        }
+        if (all != null) out.put(TOTAL, stats(all, allErrors, seconds));
+        return out;
+    }
+
+    private static Stats stats(Histogram h, long errors, double seconds) {
+        return new Stats(h.getTotalCount(), errors, h.getTotalCount() / seconds,
+                ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)), ms(h.getValueAtPercentile(99)),
+                ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    static void print(Map<String, Stats> stats, long dropped, PrintStream out) {
+        out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "ok", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.forEach((op, s) -> out.printf("%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                op, s.count(), s.errors(), s.throughput(), s.p50(), s.p90(), s.p99(), s.p999(), s.max()));
+        if (dropped > 0) {
+            out.printf("%d arrival(s) dropped at --max-in-flight and counted as errors%n", dropped);
+        }
+    }
+
+    static void write(Path dir, LoadConfig cfg, OpenLoadGenerator.Results results, Map<String, Stats> stats)
+            throws IOException {
+        Files.createDirectories(dir);
+        Map<String, Object> doc = new LinkedHashMap<>();
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("target", String.valueOf(cfg.target()));
+        config.put("profile", cfg.bootJar() == null ? null : cfg.profile());
+        config.put("rate", cfg.rate());
+        config.put("arrivals", cfg.poisson() ? "poisson" : "constant");
+        config.put("warmupSeconds", cfg.warmup().toMillis() / 1000.0);
+        config.put("durationSeconds", cfg.duration().toMillis() / 1000.0);
+        config.put("users", cfg.users());
+        config.put("mix", cfg.mix().toString());
+        config.put("seed", cfg.seed());
+        doc.put("config", config);
+        doc.put("dropped", results.dropped());
+        doc.put("operations", stats);
+        JSON.writeValue(dir.resolve("report.json").toFile(), doc);
+
+        for (var e : results.latencies().entrySet()) {
+            try (PrintStream ps = new PrintStream(Files.newOutputStream(dir.resolve(e.getKey().key + ".hgrm")))) {
+                // recorded in microseconds, written in milliseconds
+                e.getValue().outputPercentileDistribution(ps, 1000.0);
+            }
+        }
+    }
+
+    /** Relative change of throughput and tail latencies per operation present in both runs. */
+    static void compare(Path baselineJson, Map<String, Stats> current, PrintStream out) throws IOException {
+        JsonNode base = JSON.readTree(baselineJson.toFile()).path("operations");
+        out.printf("%nagainst %s%n", baselineJson);
+        out.printf("%-14s %10s %10s %10s %10s%n", "operation", "req/s", "p50", "p99", "p99.9");
+        current.forEach((op, s) -> {
+            JsonNode b = base.get(op);
+            if (b == null) return;
+            out.printf("%-14s %10s %10s %10s %10s%n", op,
+                    delta(b.path("throughput").asDouble(), s.throughput()),
+                    delta(b.path("p50").asDouble(), s.p50()),
+                    delta(b.path("p99").asDouble(), s.p99()),
+                    delta(b.path("p999").asDouble(), s.p999()));
+        });
+    }
+
+    static String delta(double before, double after) {
+        if (before == 0) return after == 0 ? "0.0%" : "n/a";
+        return String.format("%+.1f%%", (after - before) * 100 / before);
+    }
+}
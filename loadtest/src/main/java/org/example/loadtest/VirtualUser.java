@@ -0,0 +1,47 @@
+package org.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** A registered user: credentials, current token and the ids of the notes it created. */
+final class VirtualUser {
+
+    final String username;
+    final String password;
+    private volatile String token;
+    private final List<Long> noteIds = new ArrayList<>();
+
+    VirtualUser(String username, String password, String token) {
+        this.username = username;
+        this.password = password;
+        this.token = token;
+    }
+
+    String token() {
+        return token;
+    }
+
+    void token(String token) {
+        this.token = token;
+    }
+
+    synchronized void addNote(long id) {
+        noteIds.add(id);
+    }
+
+    /** A random note of this user, or null when it has none. */
+    synchronized Long anyNote(Random rnd) {
+        return noteIds.isEmpty() ? null : noteIds.get(rnd.nextInt(noteIds.size()));
+    }
+
+    /** Removes and returns a random note, so no two deletes race for the same id. */
+    synchronized Long takeNote(Random rnd) {
+        if (noteIds.isEmpty()) return null;
+        int i = rnd.nextInt(noteIds.size());
+        Long id = noteIds.get(i);
+        noteIds.set(i, noteIds.get(noteIds.size() - 1));
+        noteIds.remove(noteIds.size() - 1);
+        return id;
+    }
+}
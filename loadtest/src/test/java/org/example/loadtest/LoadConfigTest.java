@@ -0,0 +1,37 @@
+package org.example.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LoadConfigTest {
+
+    @Test
+    @DisplayName("parse(): options override defaults")
+    void options() {
+        LoadConfig cfg = LoadConfig.parse(new String[]{"--target", "http://localhost:8080/", "--rate", "200",
+                "--arrivals", "constant", "--warmup", "500ms", "--duration", "2m", "--mix", "calc.create=1"});
+
+        assertThat(cfg.target()).isEqualTo(URI.create("http://localhost:8080"));
+        assertThat(cfg.rate()).isEqualTo(200);
+        assertThat(cfg.poisson()).isFalse();
+        assertThat(cfg.warmup()).isEqualTo(Duration.ofMillis(500));
+        assertThat(cfg.duration()).isEqualTo(Duration.ofMinutes(2));
+        assertThat(cfg.users()).isEqualTo(20);
+        assertThat(cfg.mix()).hasToString("calc.create=1");
+    }
+
+    @Test
+    @DisplayName("parse(): exactly one of --target and --boot")
+    void targetOrBoot() {
+        assertThatThrownBy(() -> LoadConfig.parse(new String[0])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadConfig.parse(new String[]{"--target", "http://x", "--boot", "a.jar"}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadConfig.parse(new String[]{"--target", "http://x", "--warmup", "5h"}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MixTest {
+
+    @Test
+    @DisplayName("parse(): weights are relative and zero-weight operations never run")
+    void weighted() {
+        Mix mix = Mix.parse("notes.list=3, calc.create=1, auth.login=0");
+        Map<Operation, Integer> seen = new EnumMap<>(Operation.class);
+        Random rnd = new Random(1);
+        for (int i = 0; i < 40_000; i++) seen.merge(mix.next(rnd), 1, Integer::sum);
+
+        assertThat(seen).containsOnlyKeys(Operation.NOTES_LIST, Operation.CALC_CREATE);
+        assertThat(seen.get(Operation.NOTES_LIST) / (double) seen.get(Operation.CALC_CREATE)).isBetween(2.8, 3.2);
+        assertThat(mix).hasToString("notes.list=3,calc.create=1");
+    }
+
+    @Test
+    @DisplayName("next(): the same seed gives the same sequence")
+    void deterministic() {
+        Mix mix = Mix.parse(Mix.DEFAULT);
+        Random a = new Random(42);
+        Random b = new Random(42);
+        for (int i = 0; i < 1000; i++) assertThat(mix.next(a)).isEqualTo(mix.next(b));
+    }
+
+    @Test
+    @DisplayName("parse(): unknown operations and empty mixes are rejected")
+    void invalid() {
+        assertThatThrownBy(() -> Mix.parse("notes.frobnicate=1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Mix.parse("notes.list=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Mix.parse("notes.list")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
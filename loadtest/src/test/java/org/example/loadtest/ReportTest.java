@@ -0,0 +1,75 @@
+package org.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReportTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("summarize(): percentiles in ms, throughput over the measured window, plus a total row")
+    void summarize() {
+        Map<String, Report.Stats> stats = Report.summarize(results(1_000));
+
+        Report.Stats list = stats.get("notes.list");
+        assertThat(list.count()).isEqualTo(1000);
+        assertThat(list.throughput()).isEqualTo(100.0);
+        assertThat(list.p50()).isCloseTo(500.0, within(1.0));
+        assertThat(list.p99()).isCloseTo(990.0, within(1.0));
+        assertThat(stats.get("calc.create").errors()).isEqualTo(2);
+        assertThat(stats.get(Report.TOTAL).count()).isEqualTo(1010);
+        assertThat(stats.keySet()).containsExactly("notes.list", "calc.create", Report.TOTAL);
+    }
+
+    @Test
+    @DisplayName("write() and compare(): report.json, .hgrm files and deltas against a baseline")
+    void writeAndCompare() throws Exception {
+        LoadConfig cfg = LoadConfig.parse(new String[]{"--target", "http://localhost:8080", "--duration", "10s"});
+        OpenLoadGenerator.Results baseline = results(1_000);
+        Report.write(dir, cfg, baseline, Report.summarize(baseline));
+
+        assertThat(dir.resolve("report.json")).exists();
+        assertThat(Files.readString(dir.resolve("notes.list.hgrm"))).contains("Percentile");
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        Report.compare(dir.resolve("report.json"), Report.summarize(results(2_000)), new PrintStream(buf));
+        assertThat(buf.toString()).contains("notes.list").contains("+100.0%");
+    }
+
+    @Test
+    @DisplayName("delta(): relative change, guarded against a zero baseline")
+    void delta() {
+        assertThat(Report.delta(10, 5)).isEqualTo("-50.0%");
+        assertThat(Report.delta(0, 0)).isEqualTo("0.0%");
+        assertThat(Report.delta(0, 1)).isEqualTo("n/a");
+    }
+
+    /** notes.list at 1..1000 ms, scaled by {@code scaleMicros / 1000}, and ten calc.create with two errors. */
+    private static OpenLoadGenerator.Results results(int scaleMicros) {
+        Histogram list = new Histogram(3);
+        for (int i = 1; i <= 1000; i++) list.recordValue((long) i * scaleMicros);
+        Histogram calc = new Histogram(3);
+        for (int i = 0; i < 10; i++) calc.recordValue(2_000);
+        Map<Operation, Histogram> lat = new EnumMap<>(Operation.class);
+        lat.put(Operation.NOTES_LIST, list);
+        lat.put(Operation.CALC_CREATE, calc);
+        Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        errors.put(Operation.NOTES_LIST, 0L);
+        errors.put(Operation.CALC_CREATE, 2L);
+        return new OpenLoadGenerator.Results(lat, errors, 0, Duration.ofSeconds(10));
+    }
+}
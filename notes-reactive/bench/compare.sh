@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Blocking (note-service, Tomcat + JPA) vs non-blocking (notes-reactive, Netty + R2DBC)
+# GET /api/notes at increasing numbers of open connections, each sending slowly, the way
+# chat-style clients do. Both apps run the prod profile against the same PostgreSQL
+# (see the root README for the docker command). Needs curl and hey (https://github.com/rakyll/hey).
+#   notes-reactive/bench/compare.sh [duration] [per-connection req/s] [connection counts...]
+set -euo pipefail
+cd "$(dirname "$0")/../.."
+
+DURATION=${1:-30s}
+QPS=${2:-2}
+shift $(( $# > 2 ? 2 : $# ))
+CONNS=("${@:-250 1000 2000 4000}")
+read -r -a CONNS <<< "${CONNS[*]}"
+
+mvn -B -q package -DskipTests -Dspotless.check.skip=true
+(cd notes-reactive && mvn -B -q package -DskipTests)
+
+java -jar target/TaskManagementService-1.0.0.jar --spring.profiles.active=prod > target/bench-blocking.log 2>&1 &
+BLOCKING=$!
+java -jar notes-reactive/target/notes-reactive-1.0.0.jar --spring.profiles.active=prod > notes-reactive/target/bench-reactive.log 2>&1 &
+REACTIVE=$!
+trap 'kill $BLOCKING $REACTIVE 2>/dev/null' EXIT
+until curl -sf localhost:9090/actuator/health > /dev/null && curl -sf localhost:9091/actuator/health > /dev/null; do sleep 1; done
+
+json='Content-Type: application/json'
+user="bench$RANDOM"
+curl -sf -XPOST localhost:8080/api/auth/register -H "$json" -d "{\"username\":\"$user\",\"password\":\"bench\"}" > /dev/null
+token=$(curl -sf -XPOST localhost:8080/api/auth/login -H "$json" -d "{\"username\":\"$user\",\"password\":\"bench\"}" \
+  | sed 's/.*"token":"\([^"]*\)".*/\1/')
+auth="Authorization: Bearer $token"
+for i in $(seq 1 50); do
+  curl -sf -XPOST localhost:8080/api/notes -H "$auth" -H "$json" -d "{\"title\":\"n$i\",\"content\":\"bench\"}" > /dev/null
+done
+
+printf "%-10s %6s %10s %9s %9s %8s\n" stack conns "req/s" "p50 s" "p99 s" "failed"
+for c in "${CONNS[@]}"; do
+  for stack in blocking:8080 reactive:8081; do
+    name=${stack%%:*} port=${stack#*:}
+    hey -z 5s -c 100 -H "$auth" "http://localhost:$port/api/notes?size=10" > /dev/null # warm-up
+    hey -z "$DURATION" -c "$c" -q "$QPS" -t 30 -H "$auth" "http://localhost:$port/api/notes?size=10" \
+      | awk -v s="$name" -v c="$c" '
+          /Requests\/sec/ {rps=$2}
+          /50%/ {p50=$3}
+          /99%/ {p99=$3}
+          /Status code distribution/ {sect="status"; next}
+          /Error distribution/ {sect="error"; next}
+          sect == "status" && /\[[0-9]+\]/ {if ($1 !~ /^\[2/) bad += $2}
+          sect == "error" && /\[[0-9]+\]/ {gsub(/[\[\]]/, "", $1); bad += $1}
+          END {printf "%-10s %6d %10s %9s %9s %8d\n", s, c, rps, p50, p99, bad}'
+  done
+done
@@ -0,0 +1,13 @@
+package org.example.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+
+// Users log in on note-service; this app only verifies its JWTs, so no UserDetailsService.
+@SpringBootApplication(exclude = ReactiveUserDetailsServiceAutoConfiguration.class)
+public class ReactiveNotesMain {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveNotesMain.class, args);
+    }
+}
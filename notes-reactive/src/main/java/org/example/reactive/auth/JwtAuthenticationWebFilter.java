@@ -0,0 +1,61 @@
+package org.example.reactive.auth;
+
+import io.jsonwebtoken.JwtException;
+import org.example.reactive.repository.UserRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive port of note-service's JwtAuthenticationFilter: validates the Bearer token and,
+ * when its user still exists, puts a {@link NotesPrincipal} into the reactive security context.
+ * Continues the chain regardless of token status; unauthenticated requests are rejected later.
+ */
+@Component
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JwtAuthenticationWebFilter.class);
+
+    private final JwtService jwtService;
+    private final UserRepository users;
+
+    public JwtAuthenticationWebFilter(JwtService jwtService, UserRepository users) {
+        this.jwtService = jwtService;
+        this.users = users;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+
+        String username;
+        try {
+            // HMAC check only, cheap enough for the event loop
+            username = jwtService.parseUsername(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.debug("JWT invalid: {}", ex.getMessage());
+            return chain.filter(exchange);
+        }
+        if (username == null || username.isBlank()) {
+            return chain.filter(exchange);
+        }
+
+        return users.findByUsername(username)
+                .map(u -> new UsernamePasswordAuthenticationToken(
+                        new NotesPrincipal(u.id(), u.username()), null, AuthorityUtils.createAuthorityList("ROLE_USER")))
+                .flatMap(auth -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(auth))
+                        .thenReturn(true))
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(true)))
+                .then();
+    }
+}
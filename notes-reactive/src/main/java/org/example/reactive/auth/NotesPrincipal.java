@@ -0,0 +1,4 @@
+package org.example.reactive.auth;
+
+/** The authenticated user, resolved once per request by {@link JwtAuthenticationWebFilter}. */
+public record NotesPrincipal(Long id, String username) {}
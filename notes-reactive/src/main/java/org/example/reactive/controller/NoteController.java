@@ -0,0 +1,52 @@
+package org.example.reactive.controller;
+
+import org.example.reactive.auth.NotesPrincipal;
+import org.example.reactive.model.Note;
+import org.example.reactive.service.NoteService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/** Same paths, parameters and status codes as note-service's NoteController. */
+@RestController
+@RequestMapping("/api/notes")
+public class NoteController {
+
+    private final NoteService noteService;
+
+    public NoteController(NoteService noteService) {
+        this.noteService = noteService;
+    }
+
+    public record UpsertNote(String title, String content) {}
+
+    @GetMapping
+    public Mono<Page<Note>> list(@AuthenticationPrincipal NotesPrincipal principal,
+                                 @RequestParam(defaultValue = "0") int page,
+                                 @RequestParam(defaultValue = "10") int size) {
+        return noteService.listMyNotes(principal, PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    @PostMapping
+    public Mono<Note> create(@AuthenticationPrincipal NotesPrincipal principal, @RequestBody UpsertNote body) {
+        return noteService.create(principal, body.title(), body.content());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Note> one(@AuthenticationPrincipal NotesPrincipal principal, @PathVariable Long id) {
+        return noteService.getOne(principal, id);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<Note> update(@AuthenticationPrincipal NotesPrincipal principal, @PathVariable Long id, @RequestBody UpsertNote body) {
+        return noteService.update(principal, id, body.title(), body.content());
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<Void> delete(@AuthenticationPrincipal NotesPrincipal principal, @PathVariable Long id) {
+        return noteService.delete(principal, id);
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/** The columns of note-service's {@code app_user} table this app reads. */
+@Table("app_user")
+public record AppUser(@Id Long id, String username) {}
@@ -0,0 +1,38 @@
+package org.example.reactive.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Row of note-service's {@code note} table. The owner is kept as its id only,
+ * so responses never carry the owning user's record.
+ */
+@Table("note")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Note {
+
+    @Id
+    private Long id;
+
+    private String title;
+
+    private String content;
+
+    private Long ownerId;
+
+    private Instant createdAt;
+
+    public Note(String title, String content, Long ownerId) {
+        this.title = title;
+        this.content = content;
+        this.ownerId = ownerId;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.reactive.repository;
+
+import org.example.reactive.model.Note;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface NoteRepository extends R2dbcRepository<Note, Long> {
+    /** Same order as note-service's listing, served by the same idx_note_owner_created. */
+    Flux<Note> findByOwnerIdOrderByCreatedAtDescIdDesc(Long ownerId, Pageable pageable);
+    Mono<Long> countByOwnerId(Long ownerId);
+    Mono<Note> findByIdAndOwnerId(Long id, Long ownerId);
+    Mono<Long> deleteByIdAndOwnerId(Long id, Long ownerId);
+}
@@ -0,0 +1,12 @@
+package org.example.reactive.repository;
+
+import org.example.reactive.model.AppUser;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Mono;
+
+/** Read-only: users are created by note-service. */
+public interface UserRepository extends Repository<AppUser, Long> {
+    @Query("select id, username from app_user where username = :username")
+    Mono<AppUser> findByUsername(String username);
+}
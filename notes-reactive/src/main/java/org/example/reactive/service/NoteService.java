@@ -0,0 +1,60 @@
+package org.example.reactive.service;
+
+import org.example.reactive.auth.NotesPrincipal;
+import org.example.reactive.model.Note;
+import org.example.reactive.repository.NoteRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same rules as note-service's NoteService: every read and write is scoped to the owner,
+ * and another user's note is indistinguishable from a missing one (404).
+ * The owner id comes from the principal, so no call looks the user up again.
+ */
+@Service
+public class NoteService {
+
+    private final NoteRepository notesRepo;
+
+    public NoteService(NoteRepository notesRepo) {
+        this.notesRepo = notesRepo;
+    }
+
+    /** One page of the user's notes; the page query and the count run concurrently. */
+    public Mono<Page<Note>> listMyNotes(NotesPrincipal owner, Pageable pageable) {
+        return notesRepo.findByOwnerIdOrderByCreatedAtDescIdDesc(owner.id(), pageable)
+                .collectList()
+                .zipWith(notesRepo.countByOwnerId(owner.id()))
+                .map(t -> new PageImpl<>(t.getT1(), pageable, t.getT2()));
+    }
+
+    public Mono<Note> create(NotesPrincipal owner, String title, String content) {
+        return notesRepo.save(new Note(title, content, owner.id()));
+    }
+
+    public Mono<Note> getOne(NotesPrincipal owner, Long id) {
+        return notesRepo.findByIdAndOwnerId(id, owner.id())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found")));
+    }
+
+    public Mono<Note> update(NotesPrincipal owner, Long id, String title, String content) {
+        return getOne(owner, id)
+                .flatMap(note -> {
+                    note.setTitle(title);
+                    note.setContent(content);
+                    return notesRepo.save(note);
+                });
+    }
+
+    public Mono<Void> delete(NotesPrincipal owner, Long id) {
+        return notesRepo.deleteByIdAndOwnerId(id, owner.id())
+                .flatMap(n -> n == 0
+                        ? Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"))
+                        : Mono.empty());
+    }
+}
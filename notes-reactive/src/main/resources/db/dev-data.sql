@@ -0,0 +1,2 @@
+-- Passwords are checked by note-service only.
+insert into app_user (username, email, password_hash) values ('demo', 'demo@example.com', 'n/a');
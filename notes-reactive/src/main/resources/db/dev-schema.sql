@@ -0,0 +1,19 @@
+-- note-service's tables as its JPA mapping creates them (subset of columns this app uses)
+create table if not exists app_user (
+    id bigint generated by default as identity primary key,
+    username varchar(255) not null,
+    email varchar(255),
+    password_hash varchar(255) not null,
+    constraint uk_app_user_username unique (username),
+    constraint uk_app_user_email unique (email)
+);
+
+create table if not exists note (
+    id bigint generated by default as identity primary key,
+    title varchar(255) not null,
+    content text,
+    owner_id bigint not null references app_user (id),
+    created_at timestamp(6) with time zone not null
+);
+
+create index if not exists idx_note_owner_created on note (owner_id, created_at desc, id desc);
@@ -0,0 +1,104 @@
+package org.example.reactive.controller;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+/** End to end over WebFlux, the JWT WebFilter and R2DBC on the dev H2 schema. */
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles("dev")
+class NoteControllerTest {
+
+    @Autowired WebTestClient client;
+    @Autowired DatabaseClient db;
+
+    @Value("${jwt.secret}")
+    String secret;
+
+    @BeforeEach
+    void setUp() {
+        db.sql("delete from note").then()
+                .then(db.sql("delete from app_user where username <> 'demo'").then())
+                .then(db.sql("insert into app_user (username, email, password_hash) values ('other', 'o@example.com', 'n/a')").then())
+                .block();
+    }
+
+    private String token(String username) {
+        return "Bearer " + Jwts.builder()
+                .setSubject(username)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private long create(String username, String title) {
+        return client.post().uri("/api/notes").header("Authorization", token(username))
+                .bodyValue(Map.of("title", title, "content", "c"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Map.class).returnResult().getResponseBody()
+                .get("id") instanceof Number n ? n.longValue() : -1;
+    }
+
+    @Test
+    void rejectsMissingInvalidAndUnknownTokens() {
+        client.get().uri("/api/notes").exchange().expectStatus().isUnauthorized();
+        client.get().uri("/api/notes").header("Authorization", "Bearer nope").exchange().expectStatus().isUnauthorized();
+        client.get().uri("/api/notes").header("Authorization", token("ghost")).exchange().expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void crudIsScopedToOwner() {
+        long id = create("demo", "t1");
+
+        client.get().uri("/api/notes/{id}", id).header("Authorization", token("demo")).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("t1").jsonPath("$.owner").doesNotExist();
+        client.get().uri("/api/notes/{id}", id).header("Authorization", token("other")).exchange()
+                .expectStatus().isNotFound();
+
+        client.put().uri("/api/notes/{id}", id).header("Authorization", token("other"))
+                .bodyValue(Map.of("title", "x", "content", "x")).exchange()
+                .expectStatus().isNotFound();
+        client.put().uri("/api/notes/{id}", id).header("Authorization", token("demo"))
+                .bodyValue(Map.of("title", "t2", "content", "c2")).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("t2");
+
+        client.delete().uri("/api/notes/{id}", id).header("Authorization", token("other")).exchange()
+                .expectStatus().isNotFound();
+        client.delete().uri("/api/notes/{id}", id).header("Authorization", token("demo")).exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/notes/{id}", id).header("Authorization", token("demo")).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void listPaginatesOwnNotesOnly() {
+        for (int i = 0; i < 5; i++) create("demo", "n" + i);
+        create("other", "theirs");
+
+        client.get().uri("/api/notes?page=1&size=2").header("Authorization", token("demo")).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.content[0].title").isEqualTo("n2")
+                .jsonPath("$.totalElements").isEqualTo(5)
+                .jsonPath("$.totalPages").isEqualTo(3)
+                .jsonPath("$.number").isEqualTo(1);
+    }
+}
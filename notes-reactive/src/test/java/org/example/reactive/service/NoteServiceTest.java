@@ -0,0 +1,84 @@
+package org.example.reactive.service;
+
+import org.example.reactive.auth.NotesPrincipal;
+import org.example.reactive.model.Note;
+import org.example.reactive.repository.NoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NoteServiceTest {
+
+    @Mock NoteRepository notesRepo;
+    @InjectMocks NoteService service;
+
+    private final NotesPrincipal emma = new NotesPrincipal(7L, "emma");
+
+    @Test
+    void listMyNotes_buildsPageFromSliceAndCount() {
+        var pageable = PageRequest.of(1, 2);
+        when(notesRepo.findByOwnerIdOrderByCreatedAtDescIdDesc(7L, pageable)).thenReturn(Flux.just(new Note("a", "", 7L), new Note("b", "", 7L)));
+        when(notesRepo.countByOwnerId(7L)).thenReturn(Mono.just(5L));
+
+        StepVerifier.create(service.listMyNotes(emma, pageable))
+                .assertNext(page -> {
+                    assertThat(page.getContent()).extracting(Note::getTitle).containsExactly("a", "b");
+                    assertThat(page.getTotalElements()).isEqualTo(5);
+                    assertThat(page.getTotalPages()).isEqualTo(3);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void create_bindsOwnerFromPrincipal() {
+        when(notesRepo.save(any(Note.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        StepVerifier.create(service.create(emma, "t", "c"))
+                .assertNext(n -> {
+                    assertThat(n.getOwnerId()).isEqualTo(7L);
+                    assertThat(n.getCreatedAt()).isNotNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void update_notOwned_is404AndDoesNotSave() {
+        when(notesRepo.findByIdAndOwnerId(3L, 7L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.update(emma, 3L, "t", "c"))
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(ResponseStatusException.class)
+                        .hasMessageContaining("Note not found"))
+                .verify();
+        verify(notesRepo, never()).save(any());
+    }
+
+    @Test
+    void delete_nothingDeleted_is404() {
+        when(notesRepo.deleteByIdAndOwnerId(3L, 7L)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(service.delete(emma, 3L))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    void delete_owned_completes() {
+        when(notesRepo.deleteByIdAndOwnerId(3L, 7L)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.delete(emma, 3L)).verifyComplete();
+    }
+}
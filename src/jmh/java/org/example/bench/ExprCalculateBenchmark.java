@@ -0,0 +1,43 @@
+package org.example.bench;
+
+import org.example.util.ExprCalculate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ExprCalculate#calculate(String)}, the hot path of POST /api/calc.
+ * Each thread owns its evaluator (ExprCalculate keeps per-call state).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExprCalculateBenchmark {
+
+    @Param({"short", "long", "nested", "whitespace"})
+    public String shape;
+
+    private String expr;
+    private ExprCalculate calc;
+
+    @Setup
+    public void setup() {
+        calc = new ExprCalculate();
+        expr = Expressions.of(shape);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int singleThread() {
+        return calc.calculate(expr);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int multiThread() {
+        return calc.calculate(expr);
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.bench;
+
+/** Deterministic benchmark inputs, so numbers stay comparable across runs. */
+final class Expressions {
+
+    private Expressions() {}
+
+    static String of(String shape) {
+        switch (shape) {
+            case "short":
+                return "1+2*3";
+            case "long":
+                return longExpr("");
+            case "nested":
+                return nested(64);
+            case "whitespace":
+                return longExpr(" \t  ");
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    /** 200 terms mixing all four operators; the result stays well inside int range. */
+    private static String longExpr(String gap) {
+        StringBuilder sb = new StringBuilder("17");
+        char[] ops = {'+', '*', '-', '/'};
+        for (int i = 0; i < 200; i++) {
+            sb.append(gap).append(ops[i % 4]).append(gap).append(1 + (i * 7) % 9);
+        }
+        return sb.toString();
+    }
+
+    /** ((((1+1)*2+1)*2+1)...) nested {@code depth} levels deep. */
+    private static String nested(int depth) {
+        String s = "1+1";
+        for (int i = 0; i < depth; i++) {
+            s = "(" + s + ")*1+" + (i % 10);
+        }
+        return s;
+    }
+}
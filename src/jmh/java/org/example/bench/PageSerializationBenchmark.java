@@ -0,0 +1,74 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.example.dto.NoteResponse;
+import org.example.dto.PageResponse;
+import org.example.model.AppUser;
+import org.example.model.Note;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Serializing one page of GET /api/notes: the former response (Spring's PageImpl of Note
+ * entities, owner included) against the PageResponse of NoteResponse records, with plain
+ * Jackson and with Blackbird. Mappers are configured like Boot's (ISO dates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PageSerializationBenchmark {
+
+    @Param({"10", "100"})
+    public int rows;
+
+    private Page<Note> page;
+    private ObjectMapper plain;
+    private ObjectMapper blackbird;
+
+    @Setup
+    public void setup() {
+        AppUser owner = new AppUser("emma", "emma@example.com", "$2a$10$abcdefghijklmnopqrstuvabcdefghijklmnopqrstuvwxyz12345");
+        owner.setId(1L);
+        List<Note> notes = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Note n = new Note("Note " + i, "Body of note " + i + " with a little more text in it", owner);
+            n.setId((long) i);
+            notes.add(n);
+        }
+        page = new PageImpl<>(notes, PageRequest.of(0, rows), 10_000);
+        plain = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        blackbird = plain.copy().registerModule(new BlackbirdModule());
+    }
+
+    @Benchmark
+    public byte[] entityPage() throws Exception {
+        return plain.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] dtoPage() throws Exception {
+        return plain.writeValueAsBytes(PageResponse.of(page, NoteResponse::from));
+    }
+
+    @Benchmark
+    public byte[] dtoPageBlackbird() throws Exception {
+        return blackbird.writeValueAsBytes(PageResponse.of(page, NoteResponse::from));
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares throughput against the
+ * checked-in baseline. Exits non-zero if any benchmark is slower than
+ * baseline * (1 - perf.threshold) even at the top of its 99.9% confidence interval,
+ * or if a benchmark has no baseline. Baselines are hardware-specific: regenerate
+ * them on the machine class that runs the gate.
+ */
+public final class PerfGate {
+
+    private PerfGate() {}
+
+    public static void main(String[] args) throws Exception {
+        double threshold = Double.parseDouble(System.getProperty("perf.threshold", "0.25"));
+        boolean update = Boolean.parseBoolean(System.getProperty("perf.update-baseline", "false"));
+        File baselineFile = new File(System.getProperty("perf.baseline", "src/jmh/resources/perf-baseline.json"));
+        String report = System.getProperty("perf.report", "target/jmh-result.json");
+
+        Options opts = new OptionsBuilder()
+                .include(ExprCalculateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(report)
+                .build();
+        Collection<RunResult> results = new Runner(opts).run();
+
+        Map<String, Double> current = new TreeMap<>();
+        Map<String, Double> error = new TreeMap<>();
+        for (RunResult r : results) {
+            String key = r.getParams().getBenchmark().replaceFirst(".*\\.", "")
+                    + ":" + r.getParams().getParam("shape");
+            current.put(key, r.getPrimaryResult().getScore());
+            double err = r.getPrimaryResult().getScoreError();
+            error.put(key, Double.isNaN(err) ? 0 : err);
+        }
+
+        ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (update) {
+            json.writeValue(baselineFile, current);
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Double> baseline = json.readValue(baselineFile, Map.class);
+        boolean failed = false;
+        System.out.printf("%n%-28s %14s %14s %8s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Double> e : current.entrySet()) {
+            Number base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.printf("%-28s %14s %14.1f %8s  NO BASELINE%n", e.getKey(), "-", e.getValue(), "-");
+                failed = true;
+                continue;
+            }
+            double change = e.getValue() / base.doubleValue() - 1;
+            // only a drop that measurement noise cannot explain counts
+            boolean regressed = e.getValue() + error.get(e.getKey()) < base.doubleValue() * (1 - threshold);
+            failed |= regressed;
+            System.out.printf("%-28s %14.1f %14.1f %+7.1f%%%s%n", e.getKey(), base.doubleValue(), e.getValue(),
+                    change * 100, regressed ? "  REGRESSION" : "");
+        }
+        if (failed) {
+            System.out.printf("Throughput regressed more than %.0f%% (ops/ms). See %s%n", threshold * 100, report);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Named unique constraints on app_user.username and app_user.email. Registration no longer checks
+ * for duplicates up front; UserService.register maps violations of these names to its "already
+ * taken" / "already registered" errors.
+ * <p>
+ * Java rather than SQL because the baseline username constraint carries whatever name the database
+ * or Hibernate generated, and finding it takes a query PostgreSQL and H2 can both run.
+ * Fails on the email constraint if duplicate emails already exist; resolve those first:
+ * {@code select email, count(*) from app_user group by email having count(*) > 1}.
+ */
+public class V2__App_user_named_constraints extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        nameUniqueConstraint(c, "app_user", "username", "uk_app_user_username");
+        nameUniqueConstraint(c, "app_user", "email", "uk_app_user_email");
+    }
+
+    /**
+     * Replace the single-column unique constraint on {@code column} with one called {@code name}, or add it.
+     * Dropped and re-added rather than renamed: H2 keeps the old index name on a rename and reports
+     * that, not the constraint name, in violations.
+     */
+    private static void nameUniqueConstraint(Connection c, String table, String column, String name) throws SQLException {
+        String existing = uniqueConstraintOn(c, table, column);
+        if (name.equals(existing)) {
+            return;
+        }
+        try (Statement st = c.createStatement()) {
+            if (existing != null) {
+                st.execute("alter table " + table + " drop constraint " + quote(existing));
+            }
+            st.execute("alter table " + table + " add constraint " + name + " unique (" + column + ")");
+        }
+    }
+
+    private static String uniqueConstraintOn(Connection c, String table, String column) throws SQLException {
+        String sql = """
+                select tc.constraint_name
+                from information_schema.table_constraints tc
+                join information_schema.key_column_usage k
+                  on k.constraint_schema = tc.constraint_schema and k.constraint_name = tc.constraint_name
+                where tc.table_schema = current_schema and tc.table_name = ? and tc.constraint_type = 'UNIQUE'
+                group by tc.constraint_name
+                having count(*) = 1 and max(k.column_name) = ?
+                """;
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
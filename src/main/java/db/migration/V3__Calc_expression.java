@@ -0,0 +1,67 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Moves calc_record.expr into the shared calc_expression table and drops the redundant
+ * calc_record.submitted_by column (owner_id already identifies the user).
+ * <p>
+ * Java rather than SQL because the content hash (hex SHA-256 of the UTF-8 text, same as
+ * CalcExpressionService.hash) is spelled differently on PostgreSQL and H2. Skips the data steps
+ * when calc_record no longer has an expr column.
+ */
+public class V3__Calc_expression extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        String sha256 = "PostgreSQL".equals(c.getMetaData().getDatabaseProductName())
+                ? "encode(sha256(convert_to(%s, 'UTF8')), 'hex')"
+                : "lower(rawtohex(hash('SHA-256', %s)))";
+        boolean hasExpr = hasColumn(c, "calc_record", "expr");
+        try (Statement st = c.createStatement()) {
+            st.execute("""
+                    create table if not exists calc_expression (
+                        id           bigint generated by default as identity primary key,
+                        content_hash varchar(64) not null,
+                        expr_text    text        not null,
+                        constraint uk_calc_expression_hash unique (content_hash)
+                    )""");
+            if (hasExpr) {
+                st.execute("insert into calc_expression (content_hash, expr_text)"
+                        + " select distinct " + sha256.formatted("r.expr") + ", r.expr from calc_record r"
+                        + " where not exists (select 1 from calc_expression e where e.content_hash = "
+                        + sha256.formatted("r.expr") + ")");
+                st.execute("alter table calc_record add column if not exists expression_id bigint");
+                st.execute("update calc_record r set expression_id = (select e.id from calc_expression e"
+                        + " where e.content_hash = " + sha256.formatted("r.expr") + ")"
+                        + " where r.expression_id is null");
+                // rows written before owner was always set
+                st.execute("update calc_record r set owner_id = (select u.id from app_user u"
+                        + " where u.username = r.submitted_by)"
+                        + " where r.owner_id is null");
+                st.execute("alter table calc_record alter column expression_id set not null");
+                st.execute("alter table calc_record alter column owner_id set not null");
+                st.execute("alter table calc_record add constraint fk_calc_record_expression"
+                        + " foreign key (expression_id) references calc_expression (id)");
+                st.execute("drop index if exists idx_calc_record_submitter_created");
+                st.execute("alter table calc_record drop column expr");
+                st.execute("alter table calc_record drop column submitted_by");
+            }
+            st.execute("create index if not exists idx_calc_record_owner_created"
+                    + " on calc_record (owner_id, created_at desc, id desc)");
+        }
+    }
+
+    private static boolean hasColumn(Connection c, String table, String column) throws SQLException {
+        try (ResultSet rs = c.getMetaData().getColumns(c.getCatalog(), c.getSchema(), table, column)) {
+            return rs.next();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.auth;
 
 import org.example.service.UserService;
+import org.example.service.UsernameAvailabilityService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -13,15 +14,19 @@ public class AuthController {
     public record RegisterRequest(String username, String password) {}
     public record LoginRequest(String username, String password) {}
     public record TokenResponse(String token) {}
+    public record AvailabilityResponse(String username, boolean available) {}
 
     private final AuthenticationManager authManager;
     private final JwtService jwtService;
     private final UserService userService;
+    private final UsernameAvailabilityService availability;
 
-    public AuthController(AuthenticationManager authManager, JwtService jwtService, UserService userService) {
+    public AuthController(AuthenticationManager authManager, JwtService jwtService, UserService userService,
+                          UsernameAvailabilityService availability) {
         this.authManager = authManager;
         this.jwtService = jwtService;
         this.userService = userService;
+        this.availability = availability;
     }
 
     @PostMapping("/register")
@@ -31,6 +36,11 @@ public class AuthController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/available")
+    public AvailabilityResponse available(@RequestParam String username) {
+        return new AvailabilityResponse(username, availability.isAvailable(username));
+    }
+
     @PostMapping("/login")
     public TokenResponse login(@RequestBody LoginRequest req) {
         var auth = new UsernamePasswordAuthenticationToken(req.username(), req.password());
@@ -0,0 +1,62 @@
+package org.example.auth;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps how many password hashes run at once. BCrypt is pure CPU; on virtual threads nothing
+ * else bounds it, and a burst of logins would occupy every carrier thread and stall all other
+ * requests. Waiters park on a Semaphore, which unmounts virtual threads instead of pinning them.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final Semaphore permits;
+
+    /**
+     * One permit fewer than there are carrier threads (one per core), so hashing alone can never
+     * occupy every carrier; a single core still gets one permit.
+     */
+    public static int defaultMaxConcurrent(int cores) {
+        return Math.max(1, cores - 1);
+    }
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int maxConcurrent) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        acquire();
+        try {
+            return delegate.encode(rawPassword);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        acquire();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private void acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to hash a password", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.example.auth;
 
 
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.annotation.Timed;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,6 +33,7 @@ public class JwtService {
                 .compact();
     }
 
+    @Timed(value = "auth.jwt.parse", description = "JWT verification and parsing", histogram = true)
     public String parseUsername(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
@@ -0,0 +1,19 @@
+package org.example.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.service.CalcArchiveJob;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Beans that stay eager when spring.main.lazy-initialization is on (faststart profile). */
+@Configuration
+public class LazyInitConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeans() {
+        // @Scheduled methods are only registered once their bean exists; JPA boot stays at startup
+        // so mapping errors fail the pod before it reports ready, not on its first request
+        return LazyInitializationExcludeFilter.forBeanTypes(CalcArchiveJob.class, EntityManagerFactory.class);
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.util.ChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Note change log on local disk (see {@link ChangeLog} and NoteChangeLog). Appends are made
+ * durable together every {@code flush-interval}; retention and then compaction run every
+ * {@code maintenance-interval}. Off unless notes.changelog.enabled=true.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "notes.changelog", name = "enabled", havingValue = "true")
+public class NoteChangeLogConfig {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NoteChangeLogConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public ChangeLog noteChangeLogStore(@Value("${notes.changelog.dir:./data/note-changelog}") String dir,
+                                   @Value("${notes.changelog.segment-size:64MB}") DataSize segmentSize,
+                                   @Value("${notes.changelog.flush-interval:50ms}") Duration flushInterval,
+                                   @Value("${notes.changelog.maintenance-interval:1h}") Duration maintenanceInterval,
+                                   @Value("${notes.changelog.retention:7d}") Duration retention,
+                                   @Value("${notes.changelog.max-size:10GB}") DataSize maxSize,
+                                   @Value("${notes.changelog.compaction:true}") boolean compaction,
+                                   TaskScheduler scheduler,
+                                   MeterRegistry registry) throws IOException {
+        ChangeLog changeLog = ChangeLog.open(Path.of(dir), Math.toIntExact(segmentSize.toBytes()));
+
+        scheduler.scheduleWithFixedDelay(changeLog::syncUnchecked, flushInterval);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                int deleted = changeLog.applyRetention(retention, maxSize.toBytes(), System.currentTimeMillis());
+                int dropped = compaction ? changeLog.compact() : 0;
+                log.info("Note change log maintenance: {} segments deleted, {} records compacted away", deleted, dropped);
+            } catch (IOException e) {
+                log.error("Note change log maintenance failed", e);
+            }
+        }, Instant.now().plus(maintenanceInterval), maintenanceInterval);
+
+        Gauge.builder("notes.changelog.end_offset", changeLog, ChangeLog::endOffset)
+                .description("Offset the next note change will get")
+                .register(registry);
+        Gauge.builder("notes.changelog.durable_offset", changeLog, ChangeLog::durableOffset)
+                .description("Note changes below this offset are on disk and readable")
+                .register(registry);
+        Gauge.builder("notes.changelog.segments", changeLog, ChangeLog::segmentCount)
+                .register(registry);
+        Gauge.builder("notes.changelog.size", changeLog, ChangeLog::sizeBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        return changeLog;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One Hikari pool per note shard. Deliberately not DataSource beans: those would switch off the
+ * auto-configured primary data source and be picked up by JPA and Flyway.
+ */
+public class NoteShardDataSources implements AutoCloseable {
+
+    /** Shard {@code i} hands out note ids from {@code (i + 1) << ID_SHIFT}; ids below 2^40 are pre-sharding. */
+    public static final int ID_SHIFT = 40;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public NoteShardDataSources(NoteShardingProperties properties) {
+        List<NoteShardingProperties.Shard> shards = properties.shards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("notes.sharding.enabled is set but notes.sharding.shards is empty");
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            NoteShardingProperties.Shard s = shards.get(i);
+            HikariDataSource ds = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(s.url()).username(s.username()).password(s.password()).build();
+            ds.setPoolName("note-shard-" + i);
+            ds.setMaximumPoolSize(s.maximumPoolSize());
+            pools.add(ds);
+        }
+    }
+
+    public List<HikariDataSource> pools() {
+        return pools;
+    }
+
+    public int size() {
+        return pools.size();
+    }
+
+    /** First id shard {@code shard} assigns. */
+    public static long idBase(int shard) {
+        return (long) (shard + 1) << ID_SHIFT;
+    }
+
+    /** Apply db/shard to every shard, each with its own id range. */
+    public void migrate() {
+        for (int i = 0; i < pools.size(); i++) {
+            Flyway.configure()
+                    .dataSource(pools.get(i))
+                    .locations("classpath:db/shard")
+                    .placeholders(Map.of("idBase", Long.toString(idBase(i))))
+                    .load()
+                    .migrate();
+        }
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
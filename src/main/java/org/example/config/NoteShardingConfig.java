@@ -0,0 +1,91 @@
+package org.example.config;
+
+import org.example.service.NoteShardAdminService;
+import org.example.service.NoteShardMap;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+
+/**
+ * Notes spread over {@code notes.sharding.shards} by a hash of the owner id; users and
+ * everything else stay in {@code spring.datasource}. Off unless notes.sharding.enabled=true.
+ * Each shard gets the db/shard Flyway migrations when Flyway is enabled.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "notes.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(NoteShardingProperties.class)
+public class NoteShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public NoteShardDataSources noteShardDataSources(NoteShardingProperties properties,
+                                                     @Value("${spring.flyway.enabled:true}") boolean migrate) {
+        NoteShardDataSources shards = new NoteShardDataSources(properties);
+        if (migrate) {
+            shards.migrate();
+        }
+        return shards;
+    }
+
+    /**
+     * Puts shard routing in front of whichever "dataSource" bean exists (auto-configured, or the
+     * read/write router of {@link ReadReplicaConfig}), so JPA, JDBC and transactions all see it.
+     */
+    @Bean
+    public static BeanPostProcessor shardRoutingDataSource(ObjectProvider<NoteShardDataSources> shards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ds && "dataSource".equals(beanName)
+                        ? new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(ds, shards.getObject().pools()))
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public NoteShardMap noteShardMap(JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                                     NoteShardingProperties properties, NoteShardDataSources shards,
+                                     TaskScheduler scheduler) {
+        NoteShardMap map = new NoteShardMap(jdbc, txManager, properties.buckets(), shards.size());
+        map.load();
+        scheduler.scheduleWithFixedDelay(map::refresh,
+                Instant.now().plus(properties.mapRefresh()), properties.mapRefresh());
+        return map;
+    }
+
+    /**
+     * Notes written before sharding was switched on are still on the primary, where sharded reads
+     * never look. Move them before serving with notes.sharding.backfill-on-start, or refuse to start.
+     */
+    @Bean
+    public SmartInitializingSingleton primaryNotesCheck(NoteShardAdminService admin,
+                                                       NoteShardingProperties properties) {
+        return () -> admin.checkPrimary(properties.backfillOnStart());
+    }
+
+    /**
+     * Take a connection at the first statement and return it at the end of each transaction, so
+     * a session that read the owner from the primary does not carry that connection into the
+     * shard transaction.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardConnectionReleaseCustomizer() {
+        return props -> props.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@code notes.sharding.*}. {@code buckets} is fixed for the life of the data: owners hash into
+ * buckets, and only the bucket-to-shard assignment ever changes. {@code backfillOnStart} moves
+ * notes left on the primary from before sharding to their shards at startup.
+ */
+@ConfigurationProperties("notes.sharding")
+public record NoteShardingProperties(boolean enabled,
+                                     @DefaultValue("1024") int buckets,
+                                     @DefaultValue("10s") Duration mapRefresh,
+                                     boolean backfillOnStart,
+                                     @DefaultValue List<Shard> shards) {
+
+    public record Shard(String url, String username, String password,
+                        @DefaultValue("10") int maximumPoolSize) {}
+}
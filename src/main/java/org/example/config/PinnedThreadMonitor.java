@@ -0,0 +1,74 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Watches for virtual threads pinned to their carrier (blocking inside {@code synchronized}
+ * or a native frame) via the JDK 21 {@code jdk.VirtualThreadPinned} JFR event. Each pin
+ * longer than {@code threshold} increments {@code jvm.threads.virtual.pinned} and logs a
+ * WARN with the top application frames, so a regression such as a JDBC driver or library
+ * that blocks under a monitor shows up on dashboards and in logs instead of as lost throughput.
+ */
+public class PinnedThreadMonitor implements SmartLifecycle {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final Duration threshold;
+    private final int frames;
+    private final Counter pinned;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry registry, Duration threshold, int frames) {
+        this.threshold = threshold;
+        this.frames = frames;
+        this.pinned = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual thread pins longer than the monitor threshold")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Watching for virtual thread pinning over {} ms", threshold.toMillis());
+    }
+
+    void onPinned(RecordedEvent event) {
+        pinned.increment();
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), topFrames(event));
+    }
+
+    private String topFrames(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "<no stack>";
+        List<RecordedFrame> all = event.getStackTrace().getFrames();
+        return all.stream()
+                .limit(frames)
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+}
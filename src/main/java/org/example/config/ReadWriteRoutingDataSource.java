@@ -0,0 +1,44 @@
+package org.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * The key is read when a physical connection is taken, so this must sit behind a
+ * LazyConnectionDataSourceProxy and Hibernate must not acquire connections before the
+ * transaction's read-only flag is bound (see {@link ReadReplicaConfig}).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Role { PRIMARY, REPLICA }
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Role.PRIMARY, primary, Role.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRole();
+    }
+
+    Role currentRole() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Role.PRIMARY;
+        }
+        String subject = ReadYourWrites.currentSubject();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.recordOnCommit(subject);
+            return Role.PRIMARY;
+        }
+        return readYourWrites.recentlyWrote(subject) ? Role.PRIMARY : Role.REPLICA;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which users committed a write in the last {@code window}; their read-only
+ * transactions stay on the primary until then, so replica lag never hides their own changes.
+ * State is per instance: behind a load balancer this holds as long as a user's requests are
+ * sticky or the window covers the replica lag seen by the other instances as well.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final int PRUNE_EVERY = 1024;
+
+    private final long windowNanos;
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private LongSupplier clock = System::nanoTime;
+
+    public ReadYourWrites(@Value("${datasource.replica.read-your-writes-window:5s}") Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /** True while {@code subject}'s last committed write is younger than the window. */
+    public boolean recentlyWrote(String subject) {
+        if (subject == null) return false;
+        Long at = lastWrite.get(subject);
+        return at != null && clock.getAsLong() - at < windowNanos;
+    }
+
+    public void recordWrite(String subject) {
+        if (subject == null) return;
+        long now = clock.getAsLong();
+        lastWrite.put(subject, now);
+        if (writes.incrementAndGet() % PRUNE_EVERY == 0) {
+            lastWrite.values().removeIf(at -> now - at >= windowNanos);
+        }
+    }
+
+    /**
+     * Records a write for {@code subject} once the current transaction commits; outside a
+     * transaction it is recorded immediately. Several subjects in one transaction are fine.
+     */
+    public void recordOnCommit(String subject) {
+        if (subject == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordWrite(subject);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> subjects = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, subjects);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    subjects.forEach(ReadYourWrites.this::recordWrite);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWrites.this);
+                }
+            });
+            pending = subjects;
+        }
+        pending.add(subject);
+    }
+
+    /** Name of the authenticated user on this thread, or null for anonymous requests. */
+    public static String currentSubject() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+}
@@ -1,7 +1,11 @@
 package org.example.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.auth.JwtAuthenticationFilter;
+import org.example.auth.TimedPasswordEncoder;
+import org.example.ratelimit.QuotaFilter;
 import org.example.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
@@ -26,18 +30,20 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry registry) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), registry);
     }
 
-    /** Bridge repository user to Spring Security's UserDetails. */
+    /** Bridge repository user to Spring Security's UserDetails; users flagged admin also get ROLE_ADMIN. */
     @Bean
     public UserDetailsService userDetailsService(UserRepository users) {
         return username -> users.findByUsername(username)
                 .map(u -> org.springframework.security.core.userdetails.User
                         .withUsername(u.getUsername())
                         .password(u.getPasswordHash())
-                        .authorities("ROLE_USER")
+                        .authorities(u.isAdmin()
+                                ? new String[]{"ROLE_USER", "ROLE_ADMIN"}
+                                : new String[]{"ROLE_USER"})
                         .build())
                 .orElseThrow(() -> new org.springframework.security.core.userdetails.UsernameNotFoundException("User not found"));
     }
@@ -57,9 +63,10 @@ public class SecurityConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(
-            HttpSecurity http, JwtAuthenticationFilter jwtFilter, AuthenticationProvider authProvider, Environment env) throws Exception {
+            HttpSecurity http, JwtAuthenticationFilter jwtFilter, ObjectProvider<QuotaFilter> quotaFilter,
+            AuthenticationProvider authProvider, Environment env) throws Exception {
 
-        return http
+        http
                 .csrf(csrf -> csrf.disable())
                 .headers(h -> h.frameOptions(f -> f.disable()))
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // <-- stateless
@@ -67,6 +74,8 @@ public class SecurityConfig {
                 .authenticationProvider(authProvider)
                 .authorizeHttpRequests(reg -> {
                     reg.requestMatchers("/api/auth/**", "/h2-console/**").permitAll();
+                    // scrape + probes; in prod these are only served on the internal management port
+                    reg.requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll();
                     // Make debug endpoints public in dev only:
                     if (env.matchesProfiles("dev")) {
                         reg.requestMatchers("/api/debug/**", "/api/notes/**").permitAll();
@@ -74,7 +83,9 @@ public class SecurityConfig {
                     }
                     reg.anyRequest().authenticated();
                 })
-                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
-                .build();
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+        // quotas need the user, so they run right after the JWT filter
+        quotaFilter.ifAvailable(f -> http.addFilterAfter(f, JwtAuthenticationFilter.class));
+        return http.build();
     }
 }
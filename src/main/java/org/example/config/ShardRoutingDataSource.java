@@ -0,0 +1,54 @@
+package org.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections taken while a shard is bound on this thread (see {@link #withShard}) to that
+ * shard's pool, and everything else to the regular data source. Like
+ * {@link ReadWriteRoutingDataSource} the key is read when a physical connection is taken, so this
+ * sits behind a LazyConnectionDataSourceProxy (see {@link NoteShardingConfig}).
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    public ShardRoutingDataSource(DataSource defaultTarget, List<? extends DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(defaultTarget);
+        // an unknown shard index is a bug, not a reason to write notes into the primary
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return SHARD.get();
+    }
+
+    /** Shard bound on this thread, or null. */
+    public static Integer currentShard() {
+        return SHARD.get();
+    }
+
+    /** Run {@code work} with {@code shard} bound on this thread, restoring the previous binding after. */
+    public static <T> T withShard(int shard, Supplier<T> work) {
+        Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) SHARD.remove();
+            else SHARD.set(previous);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.auth.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Extras for the opt-in virtual-thread mode ({@code spring.threads.virtual.enabled=true} on
+ * Java 21+, see the "vthreads" profile). Spring Boot itself moves Tomcat request handling,
+ * the {@code @Async} executor and the {@code @Scheduled} scheduler onto virtual threads;
+ * this adds a pinning monitor and a cap on concurrent BCrypt work.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfig {
+
+    @Bean
+    public PinnedThreadMonitor pinnedThreadMonitor(MeterRegistry registry,
+                                                   @Value("${vthreads.pinning.threshold:20ms}") Duration threshold,
+                                                   @Value("${vthreads.pinning.frames:8}") int frames) {
+        return new PinnedThreadMonitor(registry, threshold, frames);
+    }
+
+    @Bean
+    public static BeanPostProcessor boundedPasswordEncoder(
+            @Value("${vthreads.bcrypt.max-concurrent:0}") int maxConcurrent) {
+        int permits = maxConcurrent > 0
+                ? maxConcurrent
+                : BoundedPasswordEncoder.defaultMaxConcurrent(Runtime.getRuntime().availableProcessors());
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof PasswordEncoder encoder && !(bean instanceof BoundedPasswordEncoder)
+                        ? new BoundedPasswordEncoder(encoder, permits)
+                        : bean;
+            }
+        };
+    }
+}
@@ -1,15 +1,23 @@
 package org.example.controller;
 
+import org.example.dto.CalcRecordResponse;
+import org.example.dto.CursorPageResponse;
 import org.example.model.CalcRecord;
+import org.example.service.CalcArchiveService;
+import org.example.service.CalcStatsService;
 import org.example.service.CalculatorService;
+import org.example.service.ReadCoalescer;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
-import java.util.Map;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/api/calc")
@@ -17,28 +25,54 @@ import java.util.Map;
 public class CalculatorController {
 
     private final CalculatorService svc;
+    private final CalcStatsService statsSvc;
+    private final CalcArchiveService archiveSvc;
+    private final ReadCoalescer reads;
 
-    public CalculatorController(CalculatorService svc) {
+    public CalculatorController(CalculatorService svc, CalcStatsService statsSvc, CalcArchiveService archiveSvc,
+                                ReadCoalescer reads) {
         this.svc = svc;
+        this.statsSvc = statsSvc;
+        this.archiveSvc = archiveSvc;
+        this.reads = reads;
     }
     public record CalcReq(String expr) {}
 
     @PostMapping
-    public Map<String, Object> calculate(@AuthenticationPrincipal UserDetails principal,
-                                         @RequestBody CalcReq req) {
+    public CalcRecordResponse calculate(@AuthenticationPrincipal UserDetails principal,
+                                        @RequestBody CalcReq req) {
         CalcRecord saved = svc.create(principal.getUsername(), req.expr());
-        return Map.of(
-                "id", saved.getId(),
-                "expr", saved.getExpr(),
-                "result", saved.getResult(),
-                "submittedBy", principal.getUsername(),
-                "createdAt", saved.getCreatedAt()
-        );
+        reads.forget(principal.getUsername());
+        return new CalcRecordResponse(saved.getId(), saved.getExpr(), saved.getResult(),
+                principal.getUsername(), saved.getCreatedAt());
     }
 
     @GetMapping("/history")
-    public List<CalcRecord> history(@AuthenticationPrincipal UserDetails principal) {
+    public CursorPageResponse<CalcRecordResponse> history(@AuthenticationPrincipal UserDetails principal,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit) {
         String owner = principal.getUsername();
-        return svc.history(owner);
+        return reads.read(owner, "calc.history", () -> {
+            CalculatorService.HistoryPage page = svc.history(owner, cursor, limit);
+            return new CursorPageResponse<>(page.items().stream().map(CalcRecordResponse::from).toList(), page.nextCursor());
+        }, cursor, limit);
+    }
+
+    /** Archived records as NDJSON, streamed segment by segment rather than buffered. */
+    @GetMapping(value = "/history/archive", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> archive(@AuthenticationPrincipal UserDetails principal,
+                                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        String owner = principal.getUsername();
+        StreamingResponseBody body = out -> archiveSvc.stream(owner, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @GetMapping("/stats")
+    public CalcStatsService.Stats stats(@AuthenticationPrincipal UserDetails principal,
+                                        @RequestParam(defaultValue = "30") int days) {
+        return statsSvc.stats(principal.getUsername(), days);
     }
 }
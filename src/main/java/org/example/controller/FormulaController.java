@@ -0,0 +1,56 @@
+package org.example.controller;
+
+import org.example.dto.FormulaResponse;
+import org.example.service.FormulaService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/calc/formulas")
+public class FormulaController {
+
+    private final FormulaService svc;
+
+    public FormulaController(FormulaService svc) {
+        this.svc = svc;
+    }
+
+    public record SaveFormula(String name, String expr) {}
+    public record Binding(Map<String, Integer> vars) {}
+    public record Columns(Map<String, int[]> columns) {}
+
+    @PostMapping
+    public FormulaResponse save(@AuthenticationPrincipal UserDetails principal, @RequestBody SaveFormula req) {
+        return FormulaResponse.from(svc.save(principal.getUsername(), req.name(), req.expr()));
+    }
+
+    @GetMapping
+    public List<FormulaResponse> list(@AuthenticationPrincipal UserDetails principal) {
+        return svc.list(principal.getUsername()).stream().map(FormulaResponse::from).toList();
+    }
+
+    @DeleteMapping("/{name}")
+    public void delete(@AuthenticationPrincipal UserDetails principal, @PathVariable String name) {
+        svc.delete(principal.getUsername(), name);
+    }
+
+    @PostMapping("/{name}/eval")
+    public Map<String, Object> eval(@AuthenticationPrincipal UserDetails principal,
+                                    @PathVariable String name,
+                                    @RequestBody Binding req) {
+        int result = svc.evaluate(principal.getUsername(), name, req.vars());
+        return Map.of("name", name, "result", result);
+    }
+
+    @PostMapping("/{name}/eval-bulk")
+    public Map<String, Object> evalBulk(@AuthenticationPrincipal UserDetails principal,
+                                        @PathVariable String name,
+                                        @RequestBody Columns req) {
+        int[] results = svc.evaluateColumns(principal.getUsername(), name, req.columns());
+        return Map.of("name", name, "results", results);
+    }
+}
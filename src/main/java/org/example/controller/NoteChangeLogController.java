@@ -0,0 +1,62 @@
+package org.example.controller;
+
+import org.example.util.ChangeLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/note-changes")
+@PreAuthorize("hasRole('ADMIN')")
+@ConditionalOnProperty(prefix = "notes.changelog", name = "enabled", havingValue = "true")
+public class NoteChangeLogController {
+
+    private static final int MAX_LIMIT = 10_000;
+    private static final long MAX_WAIT_MS = 30_000;
+
+    private final ChangeLog changeLog;
+
+    public NoteChangeLogController(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    // GET /api/admin/note-changes?from=0&limit=1000&waitMs=10000 → NDJSON, one {"offset":..,"change":{..}} per line;
+    // X-Next-Offset is where to continue. With waitMs, an empty read waits that long for new changes (tailing).
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<byte[]> tail(@RequestParam(defaultValue = "0") long from,
+                                       @RequestParam(defaultValue = "1000") int limit,
+                                       @RequestParam(defaultValue = "0") long waitMs) throws InterruptedException {
+        long first = changeLog.startOffset();
+        if (from < first) {
+            throw new ResponseStatusException(HttpStatus.GONE,
+                    "Offset " + from + " was removed by retention; the log starts at " + first);
+        }
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<ChangeLog.Entry> entries = changeLog.read(from, n);
+        if (entries.isEmpty() && waitMs > 0
+                && changeLog.awaitDurable(Math.max(from, changeLog.durableOffset()), Duration.ofMillis(Math.min(waitMs, MAX_WAIT_MS)))) {
+            entries = changeLog.read(from, n);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ChangeLog.Entry e : entries) {
+            out.writeBytes(("{\"offset\":" + e.offset() + ",\"change\":").getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(e.payload());
+            out.writeBytes("}\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        long next = entries.isEmpty() ? Math.max(from, first) : entries.get(entries.size() - 1).offset() + 1;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header("X-Next-Offset", Long.toString(next))
+                .body(out.toByteArray());
+    }
+}
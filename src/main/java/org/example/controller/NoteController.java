@@ -1,49 +1,77 @@
 package org.example.controller;
 
-import org.example.model.Note;
+import org.example.dto.NoteResponse;
+import org.example.dto.PageResponse;
 import org.example.service.NoteService;
-import org.springframework.data.domain.Page;
+import org.example.service.ReadCoalescer;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
 
     private final NoteService noteService;
+    private final ReadCoalescer reads;
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, ReadCoalescer reads) {
         this.noteService = noteService;
+        this.reads = reads;
     }
 
-    public record UpsertNote(String title, String content) {}
+    /** {@code tags} null on update keeps the note's current tags. */
+    public record UpsertNote(String title, String content, List<String> tags) {}
 
+    /**
+     * The caller's notes, newest first. With {@code tags} (all of), {@code any} (at least one of)
+     * and {@code not} (none of), comma-separated, only notes matching those tags are listed.
+     */
     @GetMapping
-    public Page<Note> list(@AuthenticationPrincipal UserDetails principal,
-                           @RequestParam(defaultValue = "0") int page,
-                           @RequestParam(defaultValue = "10") int size) {
-        return noteService.listMyNotes(principal.getUsername(), PageRequest.of(page, size));
+    public PageResponse<NoteResponse> list(@AuthenticationPrincipal UserDetails principal,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "10") int size,
+                                           @RequestParam(required = false) List<String> tags,
+                                           @RequestParam(required = false) List<String> any,
+                                           @RequestParam(required = false) List<String> not) {
+        String owner = principal.getUsername();
+        if (tags == null && any == null && not == null) {
+            return reads.read(owner, "notes.list",
+                    () -> PageResponse.of(noteService.listMyNotes(owner, PageRequest.of(page, size)), NoteResponse::from),
+                    page, size);
+        }
+        return reads.read(owner, "notes.tagged",
+                () -> PageResponse.of(noteService.listMyNotesTagged(owner, tags, any, not, PageRequest.of(page, size)),
+                        NoteResponse::from),
+                page, size, tags, any, not);
     }
 
     @PostMapping
-    public Note create(@AuthenticationPrincipal UserDetails principal, @RequestBody UpsertNote body) {
-        return noteService.create(principal.getUsername(), body.title(), body.content());
+    public NoteResponse create(@AuthenticationPrincipal UserDetails principal, @RequestBody UpsertNote body) {
+        NoteResponse created = NoteResponse.from(noteService.create(principal.getUsername(), body.title(), body.content(), body.tags()));
+        reads.forget(principal.getUsername());
+        return created;
     }
 
     @GetMapping("/{id}")
-    public Note one(@AuthenticationPrincipal UserDetails principal, @PathVariable Long id) {
-        return noteService.getOne(principal.getUsername(), id);
+    public NoteResponse one(@AuthenticationPrincipal UserDetails principal, @PathVariable Long id) {
+        String owner = principal.getUsername();
+        return reads.read(owner, "notes.get", () -> NoteResponse.from(noteService.getOne(owner, id)), id);
     }
 
     @PutMapping("/{id}")
-    public Note update(@AuthenticationPrincipal UserDetails principal, @PathVariable Long id, @RequestBody UpsertNote body) {
-        return noteService.update(principal.getUsername(), id, body.title(), body.content());
+    public NoteResponse update(@AuthenticationPrincipal UserDetails principal, @PathVariable Long id, @RequestBody UpsertNote body) {
+        NoteResponse updated = NoteResponse.from(noteService.update(principal.getUsername(), id, body.title(), body.content(), body.tags()));
+        reads.forget(principal.getUsername());
+        return updated;
     }
 
     @DeleteMapping("/{id}")
     public void delete(@AuthenticationPrincipal UserDetails principal, @PathVariable Long id) {
         noteService.delete(principal.getUsername(), id);
+        reads.forget(principal.getUsername());
     }
 }
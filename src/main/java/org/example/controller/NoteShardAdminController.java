@@ -0,0 +1,33 @@
+package org.example.controller;
+
+import org.example.service.NoteShardAdminService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/note-shards")
+@PreAuthorize("hasRole('ADMIN')")
+@ConditionalOnProperty(prefix = "notes.sharding", name = "enabled", havingValue = "true")
+public class NoteShardAdminController {
+
+    private final NoteShardAdminService admin;
+
+    public NoteShardAdminController(NoteShardAdminService admin) {
+        this.admin = admin;
+    }
+
+    // GET /api/admin/note-shards → notes, owners and buckets per shard (all shards scanned in parallel)
+    @GetMapping
+    public List<NoteShardAdminService.ShardStats> stats() {
+        return admin.stats();
+    }
+
+    // POST /api/admin/note-shards/buckets/{bucket}/move?to=2 → move one bucket of owners to shard 2
+    @PostMapping("/buckets/{bucket}/move")
+    public NoteShardAdminService.BucketMove move(@PathVariable int bucket, @RequestParam int to) {
+        return admin.moveBucket(bucket, to);
+    }
+}
@@ -2,31 +2,78 @@ package org.example.controller;
 
 
 import org.example.model.AppUser;
+import org.example.model.UserSummary;
+import org.example.service.UserProvisioningService;
 import org.example.service.UserService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final UserProvisioningService provisioning;
 
     // Constructor Injection (recommended)
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserProvisioningService provisioning) {
         this.userService = userService;
+        this.provisioning = provisioning;
     }
 
     // POST /users → Create new user
     @PostMapping
-    public AppUser createUser(@RequestBody AppUser user) {
-        return userService.createUser(user);
+    public UserSummary createUser(@RequestBody AppUser user) {
+        AppUser saved = userService.createUser(user);
+        return new UserSummary(saved.getId(), saved.getUsername(), saved.getEmail());
     }
 
-    // GET /users → Get all users
+    // GET /users?after=&limit= → One page of users (no password hashes)
     @GetMapping
-    public List<AppUser> getAllUsers() {
-        return userService.getAllUsers();
+    public UserService.UserPage listUsers(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit) {
+        return userService.listUsers(after, limit);
+    }
+
+    // GET /users/export → Every user as NDJSON, streamed from a DB cursor
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = userService::exportUsers;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // PUT /users/{username}/admin → Admin: grant ROLE_ADMIN
+    @PutMapping("/{username}/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> grantAdmin(@PathVariable String username) {
+        userService.setAdmin(username, true);
+        return ResponseEntity.noContent().build();
+    }
+
+    // DELETE /users/{username}/admin → Admin: revoke ROLE_ADMIN
+    @DeleteMapping("/{username}/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> revokeAdmin(@PathVariable String username) {
+        userService.setAdmin(username, false);
+        return ResponseEntity.noContent().build();
+    }
+
+    // POST /users/bulk → Admin: create many users (+ welcome notes) from CSV or NDJSON
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserProvisioningService.Report bulkCreate(@RequestHeader("Content-Type") String contentType,
+                                                     InputStream body) throws IOException {
+        var format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? UserProvisioningService.Format.CSV
+                : UserProvisioningService.Format.NDJSON;
+        return provisioning.provision(body, format);
     }
 }
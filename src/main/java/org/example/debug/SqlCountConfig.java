@@ -0,0 +1,31 @@
+package org.example.debug;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/** Per-request SQL statement counting; see {@link SqlCountFilter}. On unless debug.sql-count.enabled=false. */
+@Configuration
+@ConditionalOnProperty(prefix = "debug.sql-count", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlCountConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return props -> props.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlCountFilter> sqlCountFilter(
+            @Value("${debug.sql-count.header:false}") boolean header,
+            @Value("${debug.sql-count.warn-threshold:10}") int warnThreshold) {
+        var reg = new FilterRegistrationBean<>(new SqlCountFilter(header, warnThreshold));
+        // ahead of Spring Security (-100) so the JWT filter's user lookup is counted
+        reg.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return reg;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.debug;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Counts the SQL statements each request issues, including the JWT filter's user lookup
+ * (this filter runs before Spring Security). The count is logged at DEBUG, or at WARN above
+ * {@code warnThreshold}, and stored as request attribute {@value #ATTRIBUTE} for tests.
+ * With {@code header} on (dev) it is also returned as {@value #HEADER}, stamped just
+ * before the response body starts.
+ *
+ * <p>Only Hibernate statements are counted; plain JdbcTemplate calls are not. Work done on
+ * other threads (async streaming bodies, write-behind) is not attributed to the request.
+ */
+public class SqlCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-SQL-Count";
+    public static final String ATTRIBUTE = "org.example.debug.sqlCount";
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SqlCountFilter.class);
+
+    private final boolean header;
+    private final int warnThreshold;
+
+    public SqlCountFilter(boolean header, int warnThreshold) {
+        this.header = header;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, header ? new Stamping(response) : response);
+        } finally {
+            int n = SqlStatementCounter.stop();
+            request.setAttribute(ATTRIBUTE, n);
+            if (header && !response.isCommitted()) {
+                response.setIntHeader(HEADER, n);
+            }
+            if (n > warnThreshold) {
+                log.warn("{} {} issued {} SQL statements", request.getMethod(), request.getRequestURI(), n);
+            } else {
+                log.debug("{} {} issued {} SQL statements", request.getMethod(), request.getRequestURI(), n);
+            }
+        }
+    }
+
+    /** Sets the header with the count so far when the body is about to be written. */
+    private static final class Stamping extends HttpServletResponseWrapper {
+        Stamping(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void stamp() {
+            if (!isCommitted()) {
+                setIntHeader(HEADER, SqlStatementCounter.current());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            stamp();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            stamp();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            stamp();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            stamp();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            stamp();
+            super.flushBuffer();
+        }
+    }
+}
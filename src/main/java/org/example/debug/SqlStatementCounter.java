@@ -0,0 +1,65 @@
+package org.example.debug;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between
+ * {@link #start()} and {@link #stop()}. Registered as Hibernate's StatementInspector;
+ * outside a started scope it only passes statements through.
+ * A scope opened with {@link #startCapturing()} also keeps the SQL text, for query-plan checks.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private static final class Scope {
+        int count;
+        final List<String> statements;
+
+        Scope(boolean capture) {
+            this.statements = capture ? new ArrayList<>() : null;
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Scope s = SCOPE.get();
+        if (s != null) {
+            s.count++;
+            if (s.statements != null) s.statements.add(sql);
+        }
+        return sql;
+    }
+
+    /** Begin counting on this thread, discarding any previous count. */
+    public static void start() {
+        SCOPE.set(new Scope(false));
+    }
+
+    /** Like {@link #start()}, and also record each statement's SQL; see {@link #captured()}. */
+    public static void startCapturing() {
+        SCOPE.set(new Scope(true));
+    }
+
+    /** Statements so far in the current scope, or -1 when not counting. */
+    public static int current() {
+        Scope s = SCOPE.get();
+        return s == null ? -1 : s.count;
+    }
+
+    /** SQL of the statements so far in a capturing scope; empty otherwise. */
+    public static List<String> captured() {
+        Scope s = SCOPE.get();
+        return s == null || s.statements == null ? List.of() : List.copyOf(s.statements);
+    }
+
+    /** End the current scope and return its count (-1 when not counting). */
+    public static int stop() {
+        int n = current();
+        SCOPE.remove();
+        return n;
+    }
+}
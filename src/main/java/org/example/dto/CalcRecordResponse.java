@@ -0,0 +1,13 @@
+package org.example.dto;
+
+import org.example.model.CalcRecord;
+
+import java.time.Instant;
+
+/** A calculation; {@code id} is null in write-behind mode, where the row is inserted after the response. */
+public record CalcRecordResponse(Long id, String expr, Integer result, String submittedBy, Instant createdAt) {
+
+    public static CalcRecordResponse from(CalcRecord r) {
+        return new CalcRecordResponse(r.getId(), r.getExpr(), r.getResult(), r.getSubmittedBy(), r.getCreatedAt());
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.dto;
+
+import java.util.List;
+
+/** One keyset page plus the opaque cursor for the next one (null on the last page). */
+public record CursorPageResponse<T>(List<T> items, String nextCursor) {}
@@ -0,0 +1,12 @@
+package org.example.dto;
+
+import org.example.model.Formula;
+
+import java.time.Instant;
+
+public record FormulaResponse(Long id, String name, String expr, String variables, Instant createdAt) {
+
+    public static FormulaResponse from(Formula f) {
+        return new FormulaResponse(f.getId(), f.getName(), f.getExpr(), f.getVariables(), f.getCreatedAt());
+    }
+}
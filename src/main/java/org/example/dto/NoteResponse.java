@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import org.example.model.Note;
+
+import java.time.Instant;
+import java.util.Set;
+
+/** A note as returned by the API; the owner is implied by the token and never serialized. */
+public record NoteResponse(Long id, String title, String content, Set<String> tags, Instant createdAt) {
+
+    public static NoteResponse from(Note note) {
+        return new NoteResponse(note.getId(), note.getTitle(), note.getContent(), note.getTags(), note.getCreatedAt());
+    }
+}
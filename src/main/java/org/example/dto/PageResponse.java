@@ -0,0 +1,18 @@
+package org.example.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compact, stable JSON envelope for one page of results, used instead of serializing
+ * Spring's {@link Page} (whose JSON shape is an implementation detail and repeats itself).
+ */
+public record PageResponse<T>(List<T> items, int page, int size, long totalElements, int totalPages) {
+
+    public static <E, T> PageResponse<T> of(Page<E> page, Function<? super E, ? extends T> mapper) {
+        List<T> items = page.getContent().stream().<T>map(mapper).toList();
+        return new PageResponse<>(items, page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages());
+    }
+}
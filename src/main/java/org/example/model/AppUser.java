@@ -1,20 +1,27 @@
 package org.example.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "app_user")
+@Table(name = "app_user", uniqueConstraints = {
+        @UniqueConstraint(name = AppUser.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = AppUser.EMAIL_CONSTRAINT, columnNames = "email")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class AppUser {
+    public static final String USERNAME_CONSTRAINT = "uk_app_user_username";
+    public static final String EMAIL_CONSTRAINT = "uk_app_user_email";
+
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
     private String email;
@@ -22,6 +29,11 @@ public class AppUser {
     @Column(nullable = false)
     private String passwordHash;
 
+    /** Grants ROLE_ADMIN. Never bound from request bodies; see UserService.setAdmin. */
+    @JsonIgnore
+    @Column(nullable = false)
+    private boolean admin;
+
     public AppUser(String username, String email, String passwordHash) {
         this.username = username;
         this.email = email;
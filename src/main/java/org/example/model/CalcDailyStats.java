@@ -0,0 +1,45 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/** One histogram bucket of {@link CalcStats}: results a user submitted on one UTC day. */
+@Entity
+@Getter
+@Setter
+@Table(name = "calc_daily_stats",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "bucket_day"}))
+@NoArgsConstructor // JPA needs a no-args constructor
+public class CalcDailyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // "day" is reserved in H2
+    @Column(name = "bucket_day", nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long count;
+
+    @Column(nullable = false)
+    private long sum;
+
+    public CalcDailyStats(Long userId, LocalDate day) {
+        this.userId = userId;
+        this.day = day;
+    }
+
+    public void add(long n, long total) {
+        this.count += n;
+        this.sum += total;
+    }
+}
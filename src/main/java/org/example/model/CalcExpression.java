@@ -0,0 +1,33 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A distinct expression text, keyed by the hex SHA-256 of its UTF-8 bytes.
+ * Rows are immutable and shared by every {@link CalcRecord} that evaluated the same text.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "calc_expression")
+@NoArgsConstructor // JPA needs a no-args constructor
+public class CalcExpression {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content_hash", nullable = false, unique = true, updatable = false, length = 64)
+    private String hash;
+
+    @Column(name = "expr_text", nullable = false, updatable = false, columnDefinition = "text")
+    private String text;
+
+    public CalcExpression(String hash, String text) {
+        this.hash = hash;
+        this.text = text;
+    }
+}
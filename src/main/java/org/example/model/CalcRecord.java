@@ -10,30 +10,43 @@ import java.time.Instant;
 @Entity
 @Getter
 @Setter
-@Table(name = "calc_record")
+@Table(name = "calc_record", indexes = {
+        // matches the keyset order of CalcRecordRepository history queries
+        @Index(name = "idx_calc_record_owner_created", columnList = "owner_id, created_at desc, id desc"),
+        // matches CalcRecordRepository.findArchivable
+        @Index(name = "idx_calc_record_created", columnList = "created_at, id")
+})
 @NoArgsConstructor // JPA needs a no-args constructor
+@com.fasterxml.jackson.annotation.JsonPropertyOrder({"id", "expr", "result", "submittedBy", "createdAt"})
 public class CalcRecord {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
-    private String expr;
+    /** Expression text, stored once in calc_expression and shared by every record that used it. */
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "expression_id")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private CalcExpression expression;
 
     @Column(nullable = false)
     private Integer result;
 
-    @Column(nullable = false, length = 100)
-    private String submittedBy;
-
-    @ManyToOne(optional = true, fetch = FetchType.LAZY)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @com.fasterxml.jackson.annotation.JsonIgnore        //在序列化时忽略掉  解决history失败的问题
     private AppUser owner;
 
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
+    // Not persisted: carried until the record is written, then derived from expression/owner.
+    @Transient
+    private String expr;
+
+    @Transient
+    private String submittedBy;
+
     public CalcRecord(String expr, Integer result, String submittedBy, AppUser owner) {
         this.expr = expr;
         this.result = result;
@@ -41,4 +54,12 @@ public class CalcRecord {
         this.owner  = owner;
         this.createdAt = Instant.now();
     }
+
+    public String getExpr() {
+        return expr != null || expression == null ? expr : expression.getText();
+    }
+
+    public String getSubmittedBy() {
+        return submittedBy != null || owner == null ? submittedBy : owner.getUsername();
+    }
 }
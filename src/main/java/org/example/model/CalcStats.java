@@ -0,0 +1,53 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Running per-user aggregates over calc_record, maintained in the same
+ * transaction as each insert so stats reads never scan the history.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "calc_stats")
+@NoArgsConstructor // JPA needs a no-args constructor
+public class CalcStats {
+
+    /** Same value as the owning AppUser's id. */
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private long count;
+
+    @Column(nullable = false)
+    private long sum;
+
+    @Column(nullable = false)
+    private int minResult;
+
+    @Column(nullable = false)
+    private int maxResult;
+
+    @Column(nullable = false)
+    private Instant updatedAt = Instant.now();
+
+    public CalcStats(Long userId) {
+        this.userId = userId;
+        this.minResult = Integer.MAX_VALUE;
+        this.maxResult = Integer.MIN_VALUE;
+    }
+
+    public void add(long n, long total, int min, int max) {
+        this.count += n;
+        this.sum += total;
+        this.minResult = Math.min(this.minResult, min);
+        this.maxResult = Math.max(this.maxResult, max);
+        this.updatedAt = Instant.now();
+    }
+}
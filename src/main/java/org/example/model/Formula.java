@@ -0,0 +1,50 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A named, user-owned expression with variables, e.g. {@code rate * (x + y)}.
+ * Only the source is stored; it is compiled by {@link org.example.util.CompiledFormula} on use.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "formula",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner_id", "name"}))
+@NoArgsConstructor // JPA needs a no-args constructor
+public class Formula {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String expr;
+
+    /** Comma-separated variable names, in slot order; as long as the expression allows. */
+    @Column(nullable = false, columnDefinition = "text")
+    private String variables;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private AppUser owner;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    public Formula(String name, String expr, String variables, AppUser owner) {
+        this.name = name;
+        this.expr = expr;
+        this.variables = variables;
+        this.owner = owner;
+        this.createdAt = Instant.now();
+    }
+}
@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * Note entity representing a user-owned note.
@@ -15,6 +17,10 @@ import java.time.Instant;
 @Entity
 @Getter
 @Setter
+@Table(indexes = {
+        // matches NoteRepository.findByOwnerIdOrderByCreatedAtDescIdDesc
+        @Index(name = "idx_note_owner_created", columnList = "owner_id, created_at desc, id desc")
+})
 @NoArgsConstructor // JPA requires a no-args constructor
 public class Note {
 
@@ -34,6 +40,11 @@ public class Note {
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
 
+    /** Normalized tags (see NoteService); replace the whole set rather than mutating it. */
+    @Convert(converter = TagSetConverter.class)
+    @Column(length = 1000)
+    private Set<String> tags = Collections.emptySet();
+
     /**
      * Custom constructor for easy creation.
      * This is used in the service layer instead of setter chaining.
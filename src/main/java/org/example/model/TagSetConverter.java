@@ -0,0 +1,29 @@
+package org.example.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Stores a note's tags as one sorted, comma-separated column; no tags is stored as null.
+ * Tags are never queried in SQL (NoteTagIndex serves tag filters), so a join table would
+ * only add a statement to every read.
+ */
+@Converter
+public class TagSetConverter implements AttributeConverter<Set<String>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Set<String> tags) {
+        return tags == null || tags.isEmpty() ? null : String.join(",", new TreeSet<>(tags));
+    }
+
+    @Override
+    public Set<String> convertToEntityAttribute(String column) {
+        if (column == null || column.isEmpty()) return Collections.emptySet();
+        return Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(column.split(","))));
+    }
+}
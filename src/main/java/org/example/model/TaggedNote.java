@@ -0,0 +1,6 @@
+package org.example.model;
+
+import java.util.Set;
+
+/** A note's tags with its id and owner: what NoteTagIndex is rebuilt from. */
+public record TaggedNote(Long id, Long ownerId, Set<String> tags) {}
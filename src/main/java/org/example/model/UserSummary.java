@@ -0,0 +1,4 @@
+package org.example.model;
+
+/** Public view of an account: what user listings return instead of the AppUser entity. */
+public record UserSummary(Long id, String username, String email) {}
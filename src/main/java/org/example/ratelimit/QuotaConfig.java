@@ -0,0 +1,51 @@
+package org.example.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.util.TokenBucketTable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+
+/** Per-user request quotas; see {@link QuotaFilter}. On unless quotas.enabled=false. */
+@Configuration
+@ConditionalOnProperty(prefix = "quotas", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(QuotaProperties.class)
+public class QuotaConfig {
+
+    @Bean
+    public TokenBucketTable quotaBuckets(QuotaProperties properties, MeterRegistry registry, TaskScheduler scheduler) {
+        TokenBucketTable table = new TokenBucketTable(properties.stripes(), properties.maxEntries(), System::nanoTime);
+        Gauge.builder("api.quota.buckets", table, TokenBucketTable::size)
+                .description("User quota buckets in memory")
+                .register(registry);
+        FunctionCounter.builder("api.quota.evicted", table, TokenBucketTable::evicted)
+                .description("Refilled quota buckets dropped from memory")
+                .register(registry);
+        FunctionCounter.builder("api.quota.untracked", table, TokenBucketTable::untracked)
+                .description("Requests let through unmetered because the bucket table was full")
+                .register(registry);
+        scheduler.scheduleWithFixedDelay(table::sweep,
+                Instant.now().plus(properties.sweepInterval()), properties.sweepInterval());
+        return table;
+    }
+
+    @Bean
+    public QuotaFilter quotaFilter(TokenBucketTable quotaBuckets, QuotaProperties properties, MeterRegistry registry) {
+        return new QuotaFilter(quotaBuckets, properties.classes(), registry);
+    }
+
+    /** Runs inside the security chain (see SecurityConfig), not as a servlet filter of its own. */
+    @Bean
+    public FilterRegistrationBean<QuotaFilter> quotaFilterRegistration(QuotaFilter quotaFilter) {
+        var reg = new FilterRegistrationBean<>(quotaFilter);
+        reg.setEnabled(false);
+        return reg;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.util.TokenBucketTable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user quotas, run in the security chain right after the JWT filter so the user is known.
+ * Each request to an endpoint class takes a token from that user's bucket for the class; an
+ * empty bucket answers 429 with {@code Retry-After} in whole seconds and counts the rejection
+ * in {@code api.quota.rejected}. Anonymous requests and paths outside every class pass through.
+ */
+public class QuotaFilter extends OncePerRequestFilter {
+
+    private record EndpointClass(String name, List<String> prefixes, double rate, int burst, Counter rejected) {
+
+        boolean matches(String path) {
+            for (String p : prefixes) {
+                if (path.startsWith(p) && (path.length() == p.length() || path.charAt(p.length()) == '/')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final TokenBucketTable buckets;
+    private final List<EndpointClass> classes = new ArrayList<>();
+
+    public QuotaFilter(TokenBucketTable buckets, Map<String, QuotaProperties.Limit> limits, MeterRegistry registry) {
+        this.buckets = buckets;
+        limits.forEach((name, limit) -> classes.add(new EndpointClass(name, limit.paths(), limit.rate(), limit.burst(),
+                Counter.builder("api.quota.rejected")
+                        .description("Requests answered 429 because the user's quota was used up")
+                        .tag("class", name)
+                        .register(registry))));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        EndpointClass c = auth == null ? null : classify(request.getRequestURI().substring(request.getContextPath().length()));
+        if (c == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = buckets.tryAcquire(auth.getName() + ' ' + c.name(), c.rate(), c.burst());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        c.rejected().increment();
+        long seconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Quota for "
+                + c.name() + " used up, retry in " + seconds + "s\"}");
+    }
+
+    private EndpointClass classify(String path) {
+        for (EndpointClass c : classes) {
+            if (c.matches(path)) return c;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code quotas.*}: per-user request quotas, one token bucket per user and endpoint class.
+ * A class covers the request paths under any of its {@code paths} prefixes.
+ */
+@ConfigurationProperties("quotas")
+public record QuotaProperties(boolean enabled,
+                              @DefaultValue("64") int stripes,
+                              @DefaultValue("1000000") int maxEntries,
+                              @DefaultValue("30s") Duration sweepInterval,
+                              @DefaultValue Map<String, Limit> classes) {
+
+    /** {@code rate} requests per second on average, up to {@code burst} at once. */
+    public record Limit(List<String> paths, double rate, int burst) {}
+}
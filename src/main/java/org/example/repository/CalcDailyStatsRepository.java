@@ -0,0 +1,31 @@
+package org.example.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.model.CalcDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface CalcDailyStatsRepository extends JpaRepository<CalcDailyStats, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from CalcDailyStats d where d.userId = :userId and d.day = :day")
+    Optional<CalcDailyStats> findForUpdate(@Param("userId") Long userId, @Param("day") LocalDate day);
+
+    /** Create an empty bucket unless uk_calc_daily_stats_user_day already has one. */
+    @Modifying
+    @Query(value = """
+            insert into calc_daily_stats (user_id, bucket_day, count, sum)
+            values (:userId, :day, 0, 0)
+            on conflict do nothing
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("day") LocalDate day);
+
+    List<CalcDailyStats> findByUserIdAndDayGreaterThanEqualOrderByDayAsc(Long userId, LocalDate from);
+}
@@ -0,0 +1,21 @@
+package org.example.repository;
+
+import org.example.model.CalcExpression;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface CalcExpressionRepository extends JpaRepository<CalcExpression, Long> {
+
+    @Query("select e.id from CalcExpression e where e.hash = :hash")
+    Optional<Long> findIdByHash(@Param("hash") String hash);
+
+    /** Insert unless the hash exists; a concurrent insert of the same text is not an error. */
+    @Modifying
+    @Query(value = "insert into calc_expression (content_hash, expr_text) values (:hash, :text) on conflict do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("text") String text);
+}
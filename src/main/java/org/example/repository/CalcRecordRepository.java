@@ -1,9 +1,78 @@
 package org.example.repository;
 
 import org.example.model.CalcRecord;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface CalcRecordRepository extends JpaRepository<CalcRecord, Long> {
-    List<CalcRecord> findBySubmittedByOrderByCreatedAtDesc(String username);
+
+    /** First page of a user's history; served by idx_calc_record_owner_created. */
+    @Query("""
+            select r from CalcRecord r join fetch r.owner o join fetch r.expression
+            where o.username = :username
+            order by r.createdAt desc, r.id desc
+            """)
+    List<CalcRecord> findHistory(@Param("username") String username, Limit limit);
+
+    /** Keyset page: rows strictly after (createdAt, id) in (createdAt desc, id desc) order. */
+    @Query("""
+            select r from CalcRecord r join fetch r.owner o join fetch r.expression
+            where o.username = :username
+              and (r.createdAt < :createdAt or (r.createdAt = :createdAt and r.id < :id))
+            order by r.createdAt desc, r.id desc
+            """)
+    List<CalcRecord> findHistoryAfter(@Param("username") String username,
+                                      @Param("createdAt") Instant createdAt,
+                                      @Param("id") Long id,
+                                      Limit limit);
+
+    /**
+     * Oldest records created before the cutoff, with owner and expression, at most {@code limit}.
+     * The ids come first, from a range scan of idx_calc_record_created that stops after
+     * {@code limit} entries however large the backlog is; joined into the same query, the
+     * planner may start from app_user and walk every owner's records instead. Then the rows
+     * are read by primary key.
+     */
+    default List<CalcRecord> findArchivable(Instant cutoff, Limit limit) {
+        List<Long> ids = findArchivableIds(cutoff, limit);
+        return ids.isEmpty() ? List.of() : findWithOwnerAndExpressionByIdIn(ids);
+    }
+
+    @Query("select r.id from CalcRecord r where r.createdAt < :cutoff order by r.createdAt, r.id")
+    List<Long> findArchivableIds(@Param("cutoff") Instant cutoff, Limit limit);
+
+    @Query("""
+            select r from CalcRecord r join fetch r.owner join fetch r.expression
+            where r.id in :ids
+            order by r.createdAt, r.id
+            """)
+    List<CalcRecord> findWithOwnerAndExpressionByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Per-UTC-day aggregates of one owner's records; only used to seed CalcStats once per user.
+     * Native so the day is cut in UTC, as CalcStatsService.record does, not in the session time zone.
+     */
+    @Query(value = """
+            select cast(created_at at time zone 'UTC' as date) as "day", count(*) as count, sum(result) as sum,
+                   min(result) as minResult, max(result) as maxResult
+            from calc_record
+            where owner_id = :ownerId
+            group by cast(created_at at time zone 'UTC' as date)
+            """, nativeQuery = true)
+    List<DailyAggregate> aggregateByDay(@Param("ownerId") Long ownerId);
+
+    interface DailyAggregate {
+        LocalDate getDay();
+        long getCount();
+        long getSum();
+        int getMinResult();
+        int getMaxResult();
+    }
 }
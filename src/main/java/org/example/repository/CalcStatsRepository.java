@@ -0,0 +1,31 @@
+package org.example.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.model.CalcStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface CalcStatsRepository extends JpaRepository<CalcStats, Long> {
+
+    /** Row-locks the aggregate so concurrent inserts for one user serialize on it. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CalcStats s where s.userId = :userId")
+    Optional<CalcStats> findForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Create the user's empty aggregate unless it exists; 1 if this call created it. A concurrent
+     * creator's uncommitted row makes this wait for it rather than fail on the primary key.
+     */
+    @Modifying
+    @Query(value = """
+            insert into calc_stats (user_id, count, sum, min_result, max_result, updated_at)
+            values (:userId, 0, 0, 2147483647, -2147483648, current_timestamp)
+            on conflict do nothing
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+}
@@ -0,0 +1,12 @@
+package org.example.repository;
+
+import org.example.model.Formula;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface FormulaRepository extends JpaRepository<Formula, Long> {
+    List<Formula> findByOwnerIdOrderByNameAsc(Long ownerId);
+    Optional<Formula> findByOwnerIdAndName(Long ownerId, String name);
+}
@@ -1,13 +1,30 @@
 package org.example.repository;
 
 import org.example.model.Note;
+import org.example.model.TaggedNote;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
-    Page<Note> findByOwnerId(Long ownerId, Pageable pageable);
+    /** Newest first, id breaking ties so pages are stable; served by idx_note_owner_created. */
+    Page<Note> findByOwnerIdOrderByCreatedAtDescIdDesc(Long ownerId, Pageable pageable);
     Optional<Note> findByIdAndOwnerId(Long id, Long ownerId);
-}
\ No newline at end of file
+    List<Note> findByOwnerIdAndIdIn(Long ownerId, Collection<Long> ids);
+
+    /** Keyset page of tagged notes by id, for rebuilding NoteTagIndex. */
+    @Query("""
+            select new org.example.model.TaggedNote(n.id, n.owner.id, n.tags)
+            from Note n
+            where n.tags is not null and n.id > :afterId
+            order by n.id
+            """)
+    List<TaggedNote> findTaggedAfter(@Param("afterId") long afterId, Limit limit);
+}
@@ -1,12 +1,58 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.model.AppUser;
+import org.example.model.UserSummary;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface UserRepository extends JpaRepository<AppUser, Long> {
     Optional<AppUser> findByUsername(String username);
+    List<AppUser> findByUsernameIn(Collection<String> usernames);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    @Query("select u.username from AppUser u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from AppUser u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /** Keyset page of users by id; selects only the summary columns. */
+    @Query("""
+            select new org.example.model.UserSummary(u.id, u.username, u.email)
+            from AppUser u
+            where u.id > :afterId
+            order by u.id
+            """)
+    List<UserSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * All users as a server-side cursor, read {@code fetchSize} rows per round trip.
+     * Must be consumed and closed inside a transaction.
+     */
+    @Query("select new org.example.model.UserSummary(u.id, u.username, u.email) from AppUser u order by u.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<UserSummary> streamSummaries();
+
+    /** Every username, for warming the availability filter; same cursor rules as streamSummaries. */
+    @Query("select u.username from AppUser u")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<String> streamUsernames();
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package org.example.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Runs the calc record archival on {@code calc.archive.cron} when archiving is enabled. */
+@Component
+@ConditionalOnProperty(prefix = "calc.archive", name = "enabled", havingValue = "true")
+public class CalcArchiveJob {
+    private final CalcArchiveService archive;
+
+    public CalcArchiveJob(CalcArchiveService archive) {
+        this.archive = archive;
+    }
+
+    @Scheduled(cron = "${calc.archive.cron:0 30 3 * * *}")
+    public void run() {
+        archive.archiveExpired();
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.AppUser;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.example.util.CalcArchiveStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves calc records older than {@code retention-days} out of calc_record into
+ * per-user, per-month archive segments (see {@link CalcArchiveStore}), keeping the
+ * hot table and its history index small.
+ *
+ * <p>Each batch appends and fsyncs the segments first and then deletes the rows in the
+ * same transaction, so a failure never loses a record. A crash between the two can leave
+ * a record both archived and still in the table; the next run archives it again and
+ * readers drop the duplicate by id.
+ */
+@Service
+public class CalcArchiveService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CalcArchiveService.class);
+
+    private final CalcRecordRepository calcRepo;
+    private final UserRepository usersRepo;
+    private final CalcStatsService statsService;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate tx;
+    private final CalcArchiveStore store;
+    private final int retentionDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private Clock clock = Clock.systemUTC();
+
+    /** One archived record; field order keeps "id" first on every line. */
+    public record ArchivedCalc(long id, String expr, int result, Instant createdAt) {}
+
+    public CalcArchiveService(CalcRecordRepository calcRepo,
+                              UserRepository usersRepo,
+                              CalcStatsService statsService,
+                              ObjectMapper mapper,
+                              PlatformTransactionManager txManager,
+                              @Value("${calc.archive.dir:./data/calc-archive}") String dir,
+                              @Value("${calc.archive.retention-days:365}") int retentionDays,
+                              @Value("${calc.archive.batch-size:1000}") int batchSize,
+                              @Value("${calc.archive.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.calcRepo = calcRepo;
+        this.usersRepo = usersRepo;
+        this.statsService = statsService;
+        this.mapper = mapper;
+        this.tx = new TransactionTemplate(txManager);
+        this.store = new CalcArchiveStore(Path.of(dir));
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Archive everything past the retention window, one transaction per batch, stopping
+     * early after {@code max-batches-per-run} so a large backlog is spread over several runs.
+     *
+     * @return number of records moved
+     */
+    public int archiveExpired() {
+        Instant cutoff = clock.instant().minus(Duration.ofDays(retentionDays));
+        int total = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer moved = tx.execute(status -> archiveBatch(cutoff));
+            total += moved;
+            if (moved < batchSize) break;
+        }
+        if (total > 0) {
+            log.info("Archived {} calc records created before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<CalcRecord> rows = calcRepo.findArchivable(cutoff, Limit.of(batchSize));
+        if (rows.isEmpty()) return 0;
+
+        // rows arrive in time order, so grouping keeps each segment's lines in append order
+        Map<AppUser, Map<YearMonth, List<String>>> segments = new LinkedHashMap<>();
+        for (CalcRecord r : rows) {
+            YearMonth month = YearMonth.from(r.getCreatedAt().atOffset(ZoneOffset.UTC));
+            segments.computeIfAbsent(r.getOwner(), o -> new LinkedHashMap<>())
+                    .computeIfAbsent(month, m -> new ArrayList<>())
+                    .add(toLine(r));
+        }
+
+        try {
+            for (Map.Entry<AppUser, Map<YearMonth, List<String>>> byOwner : segments.entrySet()) {
+                statsService.ensureSeeded(byOwner.getKey());
+                for (Map.Entry<YearMonth, List<String>> seg : byOwner.getValue().entrySet()) {
+                    store.append(byOwner.getKey().getId(), seg.getKey(), seg.getValue());
+                }
+            }
+        } catch (IOException ex) {
+            // roll back: nothing is deleted unless every segment write reached disk
+            throw new UncheckedIOException(ex);
+        }
+
+        calcRepo.deleteAllInBatch(rows);
+        return rows.size();
+    }
+
+    /**
+     * Write a user's archived records in [from, to] (months, UTC) to {@code out} as NDJSON,
+     * oldest month first, one segment at a time.
+     */
+    public void stream(String username, YearMonth from, YearMonth to, OutputStream out) throws IOException {
+        AppUser owner = usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        YearMonth lo = from == null ? YearMonth.of(1970, 1) : from;
+        YearMonth hi = to == null ? YearMonth.now(clock) : to;
+        if (lo.isAfter(hi)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+
+        for (YearMonth month : store.months(owner.getId(), lo, hi)) {
+            Set<Long> seen = new HashSet<>();
+            store.read(owner.getId(), month, line -> {
+                if (!seen.add(idOf(line))) return;
+                try {
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+        out.flush();
+    }
+
+    private String toLine(CalcRecord r) {
+        try {
+            return mapper.writeValueAsString(new ArchivedCalc(r.getId(), r.getExpr(), r.getResult(), r.getCreatedAt()));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /** Lines always start with {"id":N, so the id is read without parsing the whole line. */
+    private static long idOf(String line) {
+        int start = line.indexOf(':') + 1;
+        int end = line.indexOf(',', start);
+        return Long.parseLong(line, start, end, 10);
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.service;
+
+import org.example.model.CalcExpression;
+import org.example.repository.CalcExpressionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Interns expression texts into calc_expression so each distinct text is stored once.
+ * Recently used text-to-id mappings are cached; a hit costs no SQL at all.
+ */
+@Service
+public class CalcExpressionService {
+    private final CalcExpressionRepository exprRepo;
+    private final Map<String, Long> cache;
+    // a j.u.c lock rather than synchronized: virtual threads waiting on it unmount instead of pinning
+    private final ReentrantLock cacheLock = new ReentrantLock();
+
+    public CalcExpressionService(CalcExpressionRepository exprRepo,
+                                 @Value("${calc.expression-cache-size:10000}") int cacheSize) {
+        this.exprRepo = exprRepo;
+        // access-ordered LinkedHashMap as a small LRU
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /** Reference to the calc_expression row for this text, inserting it if new. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public CalcExpression intern(String text) {
+        Long id;
+        cacheLock.lock();
+        try {
+            id = cache.get(text);
+        } finally {
+            cacheLock.unlock();
+        }
+        if (id == null) {
+            String hash = hash(text);
+            exprRepo.insertIfAbsent(hash, text);
+            id = exprRepo.findIdByHash(hash).orElseThrow();
+            remember(text, id);
+        }
+        return exprRepo.getReferenceById(id);
+    }
+
+    /** Hex SHA-256 of the UTF-8 bytes; must match the hash used by the SQL migration. */
+    static String hash(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // only cache once the row is committed, or a rollback would leave a dangling id behind
+    private void remember(String text, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(text, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(text, id);
+            }
+        });
+    }
+
+    private void put(String text, Long id) {
+        cacheLock.lock();
+        try {
+            cache.put(text, id);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.service;
+
+import org.example.model.CalcRecord;
+
+/**
+ * Persists evaluated calculations. The implementation is picked by
+ * {@code calc.write-behind.enabled}: {@link DirectCalcRecordWriter} inserts in the
+ * caller's request, {@link WriteBehindCalcRecordWriter} queues and group-commits.
+ */
+public interface CalcRecordWriter {
+
+    /**
+     * Record a result for the given user. The returned record has an id only
+     * if it was inserted before returning.
+     */
+    CalcRecord write(String username, String expr, int value);
+}
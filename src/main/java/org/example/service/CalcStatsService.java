@@ -0,0 +1,138 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.CalcRecord;
+import org.example.model.CalcDailyStats;
+import org.example.model.CalcStats;
+import org.example.repository.CalcDailyStatsRepository;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.CalcStatsRepository;
+import org.example.repository.UserRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Incrementally maintained calculation statistics.
+ * record() runs inside CalculatorService.create's transaction, so the aggregates
+ * commit or roll back together with the calc_record row.
+ */
+@Service
+public class CalcStatsService {
+    private final CalcStatsRepository statsRepo;
+    private final CalcDailyStatsRepository dailyRepo;
+    private final CalcRecordRepository calcRepo;
+    private final UserRepository usersRepo;
+
+    public CalcStatsService(CalcStatsRepository statsRepo, CalcDailyStatsRepository dailyRepo,
+                            CalcRecordRepository calcRepo, UserRepository usersRepo) {
+        this.statsRepo = statsRepo;
+        this.dailyRepo = dailyRepo;
+        this.calcRepo = calcRepo;
+        this.usersRepo = usersRepo;
+    }
+
+    public record DayBucket(LocalDate day, long count, long sum) {}
+
+    public record Stats(long count, long sum, Integer min, Integer max, Double mean, List<DayBucket> histogram) {}
+
+    /** Fold one new result into the owner's aggregates. Must be called before the record is inserted. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(AppUser owner, int value, Instant at) {
+        CalcStats stats = lockStats(owner.getId());
+        stats.add(1, value, value, value);
+        addToBucket(owner.getId(), LocalDate.ofInstant(at, ZoneOffset.UTC), 1, value);
+    }
+
+    /**
+     * Fold a batch of one owner's new records in with one lock per aggregate row
+     * rather than one per record. Must be called before the records are inserted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(AppUser owner, Collection<CalcRecord> records) {
+        if (records.isEmpty()) return;
+        CalcStats stats = lockStats(owner.getId());
+
+        Map<LocalDate, long[]> byDay = new TreeMap<>();
+        for (CalcRecord r : records) {
+            int v = r.getResult();
+            stats.add(1, v, v, v);
+            long[] acc = byDay.computeIfAbsent(LocalDate.ofInstant(r.getCreatedAt(), ZoneOffset.UTC), d -> new long[2]);
+            acc[0]++;
+            acc[1] += v;
+        }
+        byDay.forEach((day, acc) -> addToBucket(owner.getId(), day, acc[0], acc[1]));
+    }
+
+    /**
+     * Make sure the owner's aggregates exist before any of their history leaves calc_record,
+     * since seeding later would no longer see the archived rows.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ensureSeeded(AppUser owner) {
+        lockStats(owner.getId());
+    }
+
+    /**
+     * The owner's aggregate row, locked until the transaction ends. On their first write it is
+     * created with insert-if-absent before the lock is taken, so concurrent first writes queue on
+     * the one row instead of both inserting it, and only the creator seeds it from history.
+     */
+    private CalcStats lockStats(Long userId) {
+        Optional<CalcStats> existing = statsRepo.findForUpdate(userId);
+        if (existing.isPresent()) return existing.get();
+        boolean created = statsRepo.insertIfAbsent(userId) == 1;
+        CalcStats stats = statsRepo.findForUpdate(userId).orElseThrow();
+        if (created) seed(stats);
+        return stats;
+    }
+
+    private void addToBucket(Long userId, LocalDate day, long n, long total) {
+        CalcDailyStats bucket = dailyRepo.findForUpdate(userId, day).orElseGet(() -> {
+            dailyRepo.insertIfAbsent(userId, day);
+            return dailyRepo.findForUpdate(userId, day).orElseThrow();
+        });
+        bucket.add(n, total);
+    }
+
+    /** Aggregates plus the histogram for the last {@code days} UTC days. */
+    @Transactional(readOnly = true)
+    public Stats stats(String username, int days) {
+        AppUser owner = usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        LocalDate from = LocalDate.now(ZoneOffset.UTC).minusDays(Math.max(days, 1) - 1L);
+        List<DayBucket> histogram = dailyRepo.findByUserIdAndDayGreaterThanEqualOrderByDayAsc(owner.getId(), from)
+                .stream()
+                .map(d -> new DayBucket(d.getDay(), d.getCount(), d.getSum()))
+                .toList();
+
+        return statsRepo.findById(owner.getId())
+                .filter(s -> s.getCount() > 0)
+                .map(s -> new Stats(s.getCount(), s.getSum(), s.getMinResult(), s.getMaxResult(),
+                        (double) s.getSum() / s.getCount(), histogram))
+                .orElse(new Stats(0, 0, null, null, null, histogram));
+    }
+
+    /**
+     * First write for a user: fold in any history recorded before stats existed.
+     * This is the only scan of calc_record and happens once per user.
+     */
+    private void seed(CalcStats stats) {
+        for (CalcRecordRepository.DailyAggregate agg : calcRepo.aggregateByDay(stats.getUserId())) {
+            stats.add(agg.getCount(), agg.getSum(), agg.getMinResult(), agg.getMaxResult());
+            addToBucket(stats.getUserId(), agg.getDay(), agg.getCount(), agg.getSum());
+        }
+    }
+}
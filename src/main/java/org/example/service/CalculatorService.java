@@ -1,43 +1,115 @@
 package org.example.service;
 
-import org.example.model.AppUser;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import org.example.model.CalcRecord;
 import org.example.repository.CalcRecordRepository;
-import org.example.repository.UserRepository;
 import org.example.util.ExprCalculate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
 
 @Service
+@Timed(value = "calc.service", histogram = true)
 public class CalculatorService {
     private final CalcRecordRepository calcRepo;
-    private final UserRepository usersRepo;
-    private final ExprCalculate eval = new ExprCalculate();
+    private final CalcRecordWriter writer;
+    private ExprCalculate eval = new ExprCalculate();
 
-    public CalculatorService(CalcRecordRepository calcRepo, UserRepository usersRepo) {
+    @Value("${calc.limits.max-length:" + ExprCalculate.DEFAULT_MAX_LENGTH + "}")
+    private int maxLength = ExprCalculate.DEFAULT_MAX_LENGTH;
+
+    @Value("${calc.limits.max-depth:" + ExprCalculate.DEFAULT_MAX_DEPTH + "}")
+    private int maxDepth = ExprCalculate.DEFAULT_MAX_DEPTH;
+
+    @Value("${calc.limits.max-tokens:" + ExprCalculate.DEFAULT_MAX_TOKENS + "}")
+    private int maxTokens = ExprCalculate.DEFAULT_MAX_TOKENS;
+
+    @Value("${calc.history.default-limit:20}")
+    private int defaultLimit = 20;
+
+    @Value("${calc.history.max-limit:100}")
+    private int maxLimit = 100;
+
+    /** One page of history plus an opaque cursor for the next one (null on the last page). */
+    public record HistoryPage(List<CalcRecord> items, String nextCursor) {}
+
+    public CalculatorService(CalcRecordRepository calcRepo, CalcRecordWriter writer) {
         this.calcRepo = calcRepo;
-        this.usersRepo = usersRepo;
+        this.writer = writer;
     }
 
-    @Transactional
+    @PostConstruct
+    void configureLimits() {
+        eval = new ExprCalculate(maxLength, maxDepth, maxTokens);
+    }
+
+    /** Evaluate and record; persistence (direct or write-behind) is up to the configured writer. */
     public CalcRecord create(String username, String expr) {
         if (expr == null || expr.isBlank())
             throw new IllegalArgumentException("expr is required");
 
-        int value = eval.calculate(expr);
+        int value;
+        try {
+            value = eval.calculate(expr);
+        } catch (IllegalArgumentException | ArithmeticException ex) {
+            // malformed or over-limit input is the client's problem, not a server error
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        return writer.write(username, expr, value);
+    }
+
+    /**
+     * Keyset-paginated history, newest first. Each page is one index range scan,
+     * so latency does not depend on how much history the user has.
+     */
+    @Transactional(readOnly = true)
+    public HistoryPage history(String username, String cursor, Integer limit) {
+        int size = limit == null ? defaultLimit : Math.min(Math.max(limit, 1), maxLimit);
+        // fetch one extra row to learn whether another page exists
+        Limit fetch = Limit.of(size + 1);
 
-        AppUser owner = usersRepo.findByUsername(username)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        List<CalcRecord> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = calcRepo.findHistory(username, fetch);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            rows = calcRepo.findHistoryAfter(username, after.createdAt(), after.id(), fetch);
+        }
 
-        var record = new CalcRecord(expr, value, owner.getUsername(), owner);
-        return calcRepo.save(record);
+        if (rows.size() <= size) {
+            return new HistoryPage(rows, null);
+        }
+        List<CalcRecord> items = rows.subList(0, size);
+        CalcRecord last = items.get(size - 1);
+        return new HistoryPage(items, new Cursor(last.getCreatedAt(), last.getId()).encode());
     }
 
-    public List<CalcRecord> history(String username) {
-        return calcRepo.findBySubmittedByOrderByCreatedAtDesc(username);
+    /** Position of the last row of a page, encoded as URL-safe base64 of "createdAt|id". */
+    private record Cursor(Instant createdAt, Long id) {
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(Instant.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
     }
 }
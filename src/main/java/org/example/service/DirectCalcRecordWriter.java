@@ -0,0 +1,41 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Default writer: user lookup, stats update and insert in one transaction per request. */
+@Service
+@ConditionalOnProperty(prefix = "calc.write-behind", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class DirectCalcRecordWriter implements CalcRecordWriter {
+    private final CalcRecordRepository calcRepo;
+    private final UserRepository usersRepo;
+    private final CalcStatsService statsService;
+    private final CalcExpressionService expressions;
+
+    public DirectCalcRecordWriter(CalcRecordRepository calcRepo, UserRepository usersRepo,
+                                  CalcStatsService statsService, CalcExpressionService expressions) {
+        this.calcRepo = calcRepo;
+        this.usersRepo = usersRepo;
+        this.statsService = statsService;
+        this.expressions = expressions;
+    }
+
+    @Override
+    @Transactional
+    public CalcRecord write(String username, String expr, int value) {
+        AppUser owner = usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        var record = new CalcRecord(expr, value, owner.getUsername(), owner);
+        record.setExpression(expressions.intern(expr));
+        statsService.record(owner, value, record.getCreatedAt());
+        return calcRepo.save(record);
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.Formula;
+import org.example.repository.FormulaRepository;
+import org.example.repository.UserRepository;
+import org.example.util.CompiledFormula;
+import org.example.util.ExprCalculate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Named formulas with variables, owned per user.
+ * Each evaluation request parses the formula once, however many bindings it carries.
+ * Expressions are held to the calculator's calc.limits; columnar requests also to max-rows,
+ * since their working memory is stack depth times rows.
+ */
+@Service
+public class FormulaService {
+    static final int DEFAULT_MAX_ROWS = 10_000;
+
+    private final FormulaRepository formulaRepo;
+    private final UserRepository usersRepo;
+
+    @Value("${calc.limits.max-length:" + ExprCalculate.DEFAULT_MAX_LENGTH + "}")
+    private int maxLength = ExprCalculate.DEFAULT_MAX_LENGTH;
+
+    @Value("${calc.limits.max-depth:" + ExprCalculate.DEFAULT_MAX_DEPTH + "}")
+    private int maxDepth = ExprCalculate.DEFAULT_MAX_DEPTH;
+
+    @Value("${calc.limits.max-rows:" + DEFAULT_MAX_ROWS + "}")
+    private int maxRows = DEFAULT_MAX_ROWS;
+
+    public FormulaService(FormulaRepository formulaRepo, UserRepository usersRepo) {
+        this.formulaRepo = formulaRepo;
+        this.usersRepo = usersRepo;
+    }
+
+    /** Create or replace the caller's formula with this name. */
+    @Transactional
+    public Formula save(String username, String name, String expr) {
+        if (name == null || name.isBlank())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "name is required");
+
+        CompiledFormula compiled = compile(expr);
+        AppUser owner = findOwner(username);
+        String variables = String.join(",", compiled.variables());
+
+        Formula formula = formulaRepo.findByOwnerIdAndName(owner.getId(), name)
+                .orElseGet(() -> new Formula(name, expr, variables, owner));
+        formula.setExpr(expr);
+        formula.setVariables(variables);
+        return formulaRepo.save(formula);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Formula> list(String username) {
+        AppUser owner = findOwner(username);
+        return formulaRepo.findByOwnerIdOrderByNameAsc(owner.getId());
+    }
+
+    @Transactional
+    public void delete(String username, String name) {
+        formulaRepo.delete(findFormula(username, name));
+    }
+
+    /** Evaluate against a single binding of variable name to value. */
+    public int evaluate(String username, String name, Map<String, Integer> vars) {
+        CompiledFormula compiled = compile(findFormula(username, name).getExpr());
+        List<String> names = compiled.variables();
+        int[] values = new int[names.size()];
+        for (int i = 0; i < values.length; i++) {
+            Integer v = vars == null ? null : vars.get(names.get(i));
+            if (v == null)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing variable: " + names.get(i));
+            values[i] = v;
+        }
+        try {
+            return compiled.evaluate(values);
+        } catch (ArithmeticException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    /** Evaluate once per row of columnar bindings, e.g. {@code {x:[1,2], y:[3,4]}}. */
+    public int[] evaluateColumns(String username, String name, Map<String, int[]> columns) {
+        CompiledFormula compiled = compile(findFormula(username, name).getExpr());
+        List<String> names = compiled.variables();
+        int[][] ordered = new int[names.size()][];
+        int rows = -1;
+        for (int i = 0; i < ordered.length; i++) {
+            int[] col = columns == null ? null : columns.get(names.get(i));
+            if (col == null)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing variable: " + names.get(i));
+            if (rows >= 0 && col.length != rows)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "All columns must have the same length");
+            rows = col.length;
+            ordered[i] = col;
+        }
+        if (rows > maxRows)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxRows + " rows per request");
+        if (rows < 0) {
+            // no variables: nothing tells us how many rows were meant
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formula has no variables");
+        }
+        try {
+            return compiled.evaluateColumns(ordered, rows);
+        } catch (ArithmeticException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    private CompiledFormula compile(String expr) {
+        if (expr != null && expr.length() > maxLength)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Expression longer than " + maxLength + " characters");
+        CompiledFormula compiled;
+        try {
+            compiled = CompiledFormula.compile(expr);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        if (compiled.stackDepth() > maxDepth)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Expression nested deeper than " + maxDepth + " levels");
+        return compiled;
+    }
+
+    private Formula findFormula(String username, String name) {
+        AppUser owner = findOwner(username);
+        return formulaRepo.findByOwnerIdAndName(owner.getId(), name)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Formula not found"));
+    }
+
+    private AppUser findOwner(String username) {
+        return usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    }
+}
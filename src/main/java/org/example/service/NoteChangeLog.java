@@ -0,0 +1,108 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.model.Note;
+import org.example.util.ChangeLog;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Captures note creates, updates and deletes in the change log (notes.changelog.enabled), keyed
+ * by note id. The change is serialized when it happens and appended once the transaction that
+ * made it commits, so rolled-back work never shows up; the log's flusher makes it durable.
+ * Concurrent changes to one note are logged in the order their commits finish.
+ * Without a change log this does nothing.
+ */
+@Component
+public class NoteChangeLog {
+
+    public enum Op { CREATE, UPDATE, DELETE }
+
+    /** One logged change; title, content and tags are null for deletes. */
+    public record Change(Op op, long noteId, long ownerId, String title, String content, Set<String> tags,
+                         Instant at) {}
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NoteChangeLog.class);
+
+    private final ChangeLog changeLog;
+    private final ObjectMapper mapper;
+    private final Counter failures;
+
+    public NoteChangeLog(Optional<ChangeLog> changeLog, ObjectMapper mapper, MeterRegistry registry) {
+        this.changeLog = changeLog.orElse(null);
+        this.mapper = mapper;
+        this.failures = Counter.builder("notes.changelog.append.failures")
+                .description("Committed note changes that could not be written to the change log")
+                .register(registry);
+    }
+
+    public void created(Note note) {
+        record(note, Op.CREATE);
+    }
+
+    public void updated(Note note) {
+        record(note, Op.UPDATE);
+    }
+
+    public void deleted(Note note) {
+        record(note, Op.DELETE);
+    }
+
+    /** A note inserted with plain JDBC (bulk provisioning), so there is no entity to take it from. */
+    public void created(long noteId, long ownerId, String title, String content) {
+        if (changeLog == null) return;
+        record(new Change(Op.CREATE, noteId, ownerId, title, content, Set.of(), Instant.now()));
+    }
+
+    /** Whether changes are logged; lets batch writers skip reading back what only the log needs. */
+    public boolean enabled() {
+        return changeLog != null;
+    }
+
+    private void record(Note note, Op op) {
+        if (changeLog == null) return;
+        boolean delete = op == Op.DELETE;
+        record(new Change(op, note.getId(), note.getOwner().getId(),
+                delete ? null : note.getTitle(), delete ? null : note.getContent(), delete ? null : note.getTags(),
+                Instant.now()));
+    }
+
+    private void record(Change change) {
+        byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(change);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(change, payload);
+                }
+            });
+        } else {
+            append(change, payload);
+        }
+    }
+
+    private void append(Change change, byte[] payload) {
+        try {
+            changeLog.append(change.noteId(), change.at().toEpochMilli(), payload);
+        } catch (IOException | RuntimeException e) {
+            // the change is committed; failing the request now would only hide that
+            failures.increment();
+            log.error("Could not log {} of note {}", change.op(), change.noteId(), e);
+        }
+    }
+}
@@ -1,71 +1,157 @@
 package org.example.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.val;
 import org.example.model.AppUser;
 import org.example.model.Note;
 import org.example.repository.NoteRepository;
 import org.example.repository.UserRepository;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 /**
  * NoteService handles all business logic for notes.
  * Controller should never directly call repository.
+ * Owners are looked up in the primary database; note access goes through {@link NoteShards}.
+ * Every change is also handed to {@link NoteChangeLog}, which logs it once it commits,
+ * and tag changes to {@link NoteTagIndex}, which serves tag filters.
  */
 @Service
+@Timed(value = "notes.service", histogram = true)
 public class NoteService {
 
     private final NoteRepository notesRepo;
     private final UserRepository usersRepo;
+    private final NoteShards shards;
+    private final NoteChangeLog changes;
+    private final NoteTagIndex tagIndex;
+
+    /** Tags are lower-cased; at most {@link #MAX_TAGS} per note and per filter parameter. */
+    public static final int MAX_TAGS = 16;
+    private static final Pattern TAG = Pattern.compile("[a-z0-9][a-z0-9_-]{0,31}");
 
-    public NoteService(NoteRepository notes, UserRepository usersRepo) {
+    public NoteService(NoteRepository notes, UserRepository usersRepo, NoteShards shards, NoteChangeLog changes,
+                       NoteTagIndex tagIndex) {
         this.notesRepo = notes;
         this.usersRepo = usersRepo;
+        this.shards = shards;
+        this.changes = changes;
+        this.tagIndex = tagIndex;
     }
 
-    /** List all notes for the authenticated user. */
+    /** One page of the authenticated user's notes, newest first. */
+    @Transactional(readOnly = true)
     public Page<Note> listMyNotes(String username, Pageable pageable) {
         AppUser owner = usersRepo.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        return notesRepo.findByOwnerId(owner.getId(), pageable);
+        return shards.read(owner.getId(),
+                () -> notesRepo.findByOwnerIdOrderByCreatedAtDescIdDesc(owner.getId(), pageable));
     }
 
-    /** Create a note (with ownership binding). */
+    /**
+     * One page of the user's notes having every tag in {@code all}, at least one in {@code any}
+     * and none in {@code none}, newest (highest id) first. {@link NoteTagIndex} picks the page's
+     * ids; only those notes are loaded, and any the index had stale are left out.
+     */
+    @Transactional(readOnly = true)
+    public Page<Note> listMyNotesTagged(String username, Collection<String> all, Collection<String> any,
+                                        Collection<String> none, Pageable pageable) {
+        NoteTagIndex.TagFilter filter = new NoteTagIndex.TagFilter(
+                normalizeTags(all, "tags"), normalizeTags(any, "any"), normalizeTags(none, "not"));
+        if (filter.all().isEmpty() && filter.any().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Filter by tags or any");
+        }
+        AppUser owner = usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        NoteTagIndex.Match match = tagIndex.match(owner.getId(), filter, pageable.getOffset(), pageable.getPageSize());
+        if (match.ids().isEmpty()) return new PageImpl<>(List.of(), pageable, match.total());
+        Map<Long, Note> byId = shards.read(owner.getId(),
+                        () -> notesRepo.findByOwnerIdAndIdIn(owner.getId(), match.ids())).stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        List<Note> notes = match.ids().stream()
+                .map(byId::get)
+                .filter(note -> note != null && filter.matches(note.getTags()))
+                .toList();
+        return new PageImpl<>(notes, pageable, match.total());
+    }
+
+    /** Create an untagged note. */
     @Transactional
     public Note create(String username, String title, String content) {
+        return create(username, title, content, null);
+    }
+
+    /** Create a note (with ownership binding). */
+    @Transactional
+    public Note create(String username, String title, String content, Collection<String> tags) {
+        Set<String> normalized = normalizeTags(tags, "tags");
         AppUser owner = usersRepo.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
         // Use constructor instead of setters
         Note note = new Note(title, content, owner);
-        return notesRepo.save(note);
+        note.setTags(normalized);
+        return shards.write(owner.getId(), () -> {
+            Note saved = notesRepo.save(note);
+            changes.created(saved);
+            if (!normalized.isEmpty()) tagIndex.changed(owner.getId(), saved.getId(), Set.of(), normalized);
+            return saved;
+        });
     }
 
     /** Retrieve one note, ensuring ownership validation. */
+    @Transactional(readOnly = true)
     public Note getOne(String username, Long id) {
         AppUser owner = usersRepo.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        return notesRepo.findByIdAndOwnerId(id, owner.getId())
+        return shards.read(owner.getId(), () -> notesRepo.findByIdAndOwnerId(id, owner.getId()))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"));
     }
 
-    /** Update a note, ensuring user owns it. */
+    /** Update a note's title and content, keeping its tags. */
     @Transactional
     public Note update(String username, Long id, String title, String content) {
+        return update(username, id, title, content, null);
+    }
+
+    /** Update a note, ensuring user owns it; {@code tags} null keeps the current ones. */
+    @Transactional
+    public Note update(String username, Long id, String title, String content, Collection<String> tags) {
+        Set<String> normalized = tags == null ? null : normalizeTags(tags, "tags");
         AppUser owner = usersRepo.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        Note note = notesRepo.findByIdAndOwnerId(id, owner.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"));
-        note.setTitle(title);
-        note.setContent(content);
-        return notesRepo.save(note);
+        return shards.write(owner.getId(), () -> {
+            Note note = notesRepo.findByIdAndOwnerId(id, owner.getId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"));
+            Set<String> before = note.getTags();
+            note.setTitle(title);
+            note.setContent(content);
+            if (normalized != null) note.setTags(normalized);
+            Note saved = notesRepo.save(note);
+            changes.updated(saved);
+            tagIndex.changed(owner.getId(), id, before, saved.getTags());
+            return saved;
+        });
     }
 
     /** Delete a note, ensuring user owns it. */
@@ -74,8 +160,32 @@ public class NoteService {
         AppUser owner = usersRepo.findByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        Note note = notesRepo.findByIdAndOwnerId(id, owner.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"));
-        notesRepo.delete(note);
+        shards.write(owner.getId(), () -> {
+            Note note = notesRepo.findByIdAndOwnerId(id, owner.getId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Note not found"));
+            notesRepo.delete(note);
+            changes.deleted(note);
+            tagIndex.changed(owner.getId(), id, note.getTags(), Set.of());
+            return null;
+        });
+    }
+
+    /** Trimmed, lower-cased and de-duplicated; 400 on a malformed tag or more than {@link #MAX_TAGS}. */
+    static Set<String> normalizeTags(Collection<String> tags, String param) {
+        if (tags == null) return Set.of();
+        Set<String> out = new TreeSet<>();
+        for (String tag : tags) {
+            if (tag == null || tag.isBlank()) continue;
+            String t = tag.trim().toLowerCase(Locale.ROOT);
+            if (!TAG.matcher(t).matches()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid " + param + " value '" + tag + "': use 1-32 of a-z, 0-9, '-', '_'");
+            }
+            out.add(t);
+        }
+        if (out.size() > MAX_TAGS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_TAGS + " " + param);
+        }
+        return Collections.unmodifiableSet(out);
     }
 }
@@ -0,0 +1,210 @@
+package org.example.service;
+
+import org.example.config.NoteShardDataSources;
+import org.example.config.NoteShardingProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Cross-shard admin work: per-shard statistics, scanned on all shards in parallel, and moving
+ * a bucket of owners to another shard.
+ *
+ * <p>A move flags the bucket (writes to it get 503), waits one map refresh so every instance
+ * has seen the flag, and then fences the bucket on the old shard: that waits for writes other
+ * instances still have open there and rejects any that arrive later, so nothing changes on the
+ * old shard after the copy. It then copies the bucket's notes with their ids to the target, points
+ * the bucket there, waits one more refresh for readers of the old shard, and deletes the old
+ * copies. The fence on the old shard stays up. The target's rows for those owners are cleared
+ * before copying, so a failed move can simply be retried. Moves are run one at a time.
+ *
+ * <p>Notes written before sharding was switched on stay on the primary with ids below 2^40 until
+ * {@link #backfillPrimary} copies them to their owners' shards the same way.
+ */
+@Service
+@ConditionalOnProperty(prefix = "notes.sharding", name = "enabled", havingValue = "true")
+public class NoteShardAdminService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NoteShardAdminService.class);
+
+    private static final int CHUNK = 500;
+    /** {@link #copy} source for notes still on the primary. */
+    private static final int PRIMARY = -1;
+    /** Shards hand out ids from here up; every note below it was written before sharding. */
+    private static final long PRE_SHARDING_IDS = NoteShardDataSources.idBase(0);
+
+    public record ShardStats(int shard, int buckets, long notes, long owners) {}
+
+    public record BucketMove(int bucket, int from, int to, int owners, int notes) {}
+
+    private final NoteShards shards;
+    private final NoteShardMap map;
+    private final JdbcTemplate jdbc;
+    private final Duration settle;
+
+    public NoteShardAdminService(NoteShards shards, NoteShardMap map, JdbcTemplate jdbc,
+                                 NoteShardingProperties properties) {
+        this.shards = shards;
+        this.map = map;
+        this.jdbc = jdbc;
+        this.settle = properties.mapRefresh();
+    }
+
+    /** Note and owner counts per shard. */
+    public List<ShardStats> stats() {
+        return shards.onEveryShard(shard -> jdbc.queryForObject(
+                "select count(*), count(distinct owner_id) from note",
+                (rs, i) -> new ShardStats(shard, map.bucketsOn(shard), rs.getLong(1), rs.getLong(2))));
+    }
+
+    public synchronized BucketMove moveBucket(int bucket, int to) {
+        if (bucket < 0 || bucket >= map.buckets()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No bucket " + bucket);
+        }
+        if (to < 0 || to >= map.shardCount()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No shard " + to);
+        }
+        int from = map.shardOfBucket(bucket);
+        if (from == to) return new BucketMove(bucket, from, to, 0, 0);
+
+        List<Long> owners;
+        int copied = 0;
+        map.setMoving(bucket, true);
+        try {
+            map.awaitWritesDrained(bucket, settle.multipliedBy(3));
+            Thread.sleep(settle.toMillis());
+            // an instance that missed the flag may still be writing there; this waits for it
+            map.fence(from, bucket, true);
+            // up since an earlier move away from the target, if there was one
+            map.fence(to, bucket, false);
+            // listed once nobody can write: an owner registered after this cannot get a note here
+            owners = jdbc.queryForList("select id from app_user", Long.class).stream()
+                    .filter(id -> map.bucketOf(id) == bucket)
+                    .toList();
+            for (List<Long> chunk : chunks(owners)) {
+                copied += copy(chunk, from, to, Long.MAX_VALUE);
+            }
+            map.assign(bucket, to);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucket, from);
+            throw new IllegalStateException("Interrupted while moving bucket " + bucket, e);
+        } catch (RuntimeException e) {
+            abort(bucket, from);
+            throw e;
+        }
+
+        try {
+            Thread.sleep(settle.toMillis());
+        } catch (InterruptedException e) {
+            // the move itself is done; the old copies are only left behind
+            Thread.currentThread().interrupt();
+            return new BucketMove(bucket, from, to, owners.size(), copied);
+        }
+        for (List<Long> chunk : chunks(owners)) {
+            shards.onShard(from, false, () -> jdbc.update("delete from note where owner_id in (" + in(chunk) + ")", chunk.toArray()));
+        }
+        return new BucketMove(bucket, from, to, owners.size(), copied);
+    }
+
+    /** Notes still on the primary from before sharding was switched on. */
+    public long primaryNotes() {
+        return shards.onPrimary(() -> jdbc.queryForObject(
+                "select count(*) from note where id < ?", Long.class, PRE_SHARDING_IDS));
+    }
+
+    /**
+     * Startup check: notes left on the primary are invisible to sharded reads. With
+     * {@code backfill} they are moved to their shards first; without, startup fails.
+     */
+    public void checkPrimary(boolean backfill) {
+        long left = primaryNotes();
+        if (left == 0) return;
+        if (!backfill) {
+            throw new IllegalStateException(left + " notes from before sharding are still on the primary, where "
+                    + "sharded reads do not look; start once with notes.sharding.backfill-on-start=true to move them");
+        }
+        int moved = backfillPrimary();
+        log.info("Moved {} notes from the primary to their shards", moved);
+    }
+
+    /**
+     * One-time move of the notes written before sharding (ids below 2^40, on the primary) to their
+     * owners' shards, a chunk of owners at a time: copied, then deleted from the primary. A rerun
+     * after a failure replaces what an earlier run already copied. Run it before any instance
+     * serves sharded traffic, and with no unsharded instance still writing to the primary.
+     */
+    public synchronized int backfillPrimary() {
+        List<Long> owners = shards.onPrimary(() -> jdbc.queryForList(
+                "select distinct owner_id from note where id < ?", Long.class, PRE_SHARDING_IDS));
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long owner : owners) {
+            byShard.computeIfAbsent(map.shardOf(owner), s -> new ArrayList<>()).add(owner);
+        }
+        int copied = 0;
+        for (Map.Entry<Integer, List<Long>> e : byShard.entrySet()) {
+            for (List<Long> chunk : chunks(e.getValue())) {
+                copied += copy(chunk, PRIMARY, e.getKey(), PRE_SHARDING_IDS);
+                shards.onPrimary(() -> jdbc.update("delete from note where owner_id in (" + in(chunk) + ") and id < ?",
+                        args(chunk, PRE_SHARDING_IDS)));
+            }
+        }
+        return copied;
+    }
+
+    /** Leave the bucket where it was, writable again. */
+    private void abort(int bucket, int from) {
+        map.fence(from, bucket, false);
+        map.setMoving(bucket, false);
+    }
+
+    /**
+     * Copy {@code owners}' notes with ids below {@code belowId} from shard {@code from} (or the
+     * primary, for {@link #PRIMARY}) to shard {@code to}, replacing the ones already there.
+     */
+    private int copy(List<Long> owners, int from, int to, long belowId) {
+        String in = in(owners);
+        Object[] args = args(owners, belowId);
+        Supplier<List<Object[]>> read = () -> jdbc.query(
+                "select id, title, content, owner_id, created_at, tags from note where owner_id in (" + in + ") and id < ?",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4),
+                        rs.getObject(5, OffsetDateTime.class), rs.getString(6)},
+                args);
+        List<Object[]> rows = from == PRIMARY ? shards.onPrimary(read) : shards.onShard(from, true, read);
+        shards.onShard(to, false, () -> {
+            jdbc.update("delete from note where owner_id in (" + in + ") and id < ?", args);
+            return jdbc.batchUpdate("insert into note (id, title, content, owner_id, created_at, tags) values (?, ?, ?, ?, ?, ?)", rows);
+        });
+        return rows.size();
+    }
+
+    private static Object[] args(List<Long> owners, long belowId) {
+        Object[] args = Arrays.copyOf(owners.toArray(), owners.size() + 1);
+        args[owners.size()] = belowId;
+        return args;
+    }
+
+    private static String in(List<Long> ids) {
+        return String.join(",", Collections.nCopies(ids.size(), "?"));
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + CHUNK)));
+        }
+        return chunks;
+    }
+}
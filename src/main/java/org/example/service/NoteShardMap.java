@@ -0,0 +1,223 @@
+package org.example.service;
+
+import org.example.config.ShardRoutingDataSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Which shard holds which owner's notes. An owner's bucket is a hash of the owner id modulo the
+ * fixed bucket count; the bucket-to-shard assignment lives in note_shard_bucket on the primary
+ * and is cached here, re-read every {@code notes.sharding.map-refresh}.
+ *
+ * <p>Rebalancing moves whole buckets (see {@link NoteShardAdminService}). While a bucket is
+ * flagged moving its notes can still be read from the old shard but not written; writers
+ * register per bucket so a move can wait for this instance's in-flight writes to finish.
+ * The flag only reaches other instances on their next refresh, so each shard also keeps a
+ * note_bucket_fence row per bucket: every write locks its bucket's row in the shard transaction
+ * ({@link #checkFence}), and a move fences the old shard ({@link #fence}), which waits for
+ * writes still open there from any instance and rejects all later ones.
+ */
+public class NoteShardMap {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int buckets;
+    private final int shardCount;
+    private final AtomicIntegerArray writing;
+    // writers only need to keep a move out; PostgreSQL can share the row, H2 has exclusive locks only
+    private volatile String fenceLock = "for update";
+
+    // replaced as a whole, never modified in place
+    private volatile int[] shardOf;
+    private volatile boolean[] moving;
+
+    public NoteShardMap(JdbcTemplate jdbc, PlatformTransactionManager txManager, int buckets, int shardCount) {
+        if (buckets < shardCount) {
+            throw new IllegalStateException("notes.sharding.buckets (" + buckets + ") is below the shard count (" + shardCount + ")");
+        }
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.buckets = buckets;
+        this.shardCount = shardCount;
+        this.writing = new AtomicIntegerArray(buckets);
+    }
+
+    /** Read the map, creating the round-robin assignment on the very first start. */
+    public void load() {
+        Integer rows = jdbc.queryForObject("select count(*) from note_shard_bucket", Integer.class);
+        if (rows == null || rows == 0) {
+            List<Object[]> initial = new ArrayList<>(buckets);
+            for (int b = 0; b < buckets; b++) {
+                initial.add(new Object[]{b, b % shardCount});
+            }
+            try {
+                tx.executeWithoutResult(status ->
+                        jdbc.batchUpdate("insert into note_shard_bucket (bucket, shard) values (?, ?)", initial));
+            } catch (DataIntegrityViolationException raced) {
+                // another instance created it first
+            }
+        }
+        refresh();
+        prepareFences();
+    }
+
+    /** Make sure every shard has a fence row for every bucket, so every write has a row to lock. */
+    private void prepareFences() {
+        List<Object[]> rows = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            rows.add(new Object[]{b});
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardRoutingDataSource.withShard(shard, () -> tx.execute(status ->
+                    jdbc.batchUpdate("insert into note_bucket_fence (bucket) values (?) on conflict do nothing", rows)));
+        }
+        String product = ShardRoutingDataSource.withShard(0, () ->
+                jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName()));
+        fenceLock = "PostgreSQL".equals(product) ? "for share" : "for update";
+    }
+
+    /** Re-read the assignment and moving flags. */
+    public synchronized void refresh() {
+        int[] shards = new int[buckets];
+        boolean[] flags = new boolean[buckets];
+        int[] seen = {0};
+        jdbc.query("select bucket, shard, moving from note_shard_bucket", rs -> {
+            int b = rs.getInt(1);
+            int s = rs.getInt(2);
+            if (b < 0 || b >= buckets) {
+                throw new IllegalStateException("note_shard_bucket has bucket " + b + " but notes.sharding.buckets is " + buckets);
+            }
+            if (s < 0 || s >= shardCount) {
+                throw new IllegalStateException("Bucket " + b + " is assigned to shard " + s + " but only " + shardCount + " are configured");
+            }
+            shards[b] = s;
+            flags[b] = rs.getBoolean(3);
+            seen[0]++;
+        });
+        if (seen[0] != buckets) {
+            throw new IllegalStateException("note_shard_bucket has " + seen[0] + " rows but notes.sharding.buckets is " + buckets);
+        }
+        this.shardOf = shards;
+        this.moving = flags;
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int bucketOf(long ownerId) {
+        return bucketOf(ownerId, buckets);
+    }
+
+    /** Owner ids are sequential, so they are mixed (MurmurHash3's finalizer) before taking the modulus. */
+    static int bucketOf(long ownerId, int buckets) {
+        long h = ownerId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53fe185ec53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) buckets);
+    }
+
+    public int shardOf(long ownerId) {
+        return shardOf[bucketOf(ownerId)];
+    }
+
+    public int shardOfBucket(int bucket) {
+        return shardOf[bucket];
+    }
+
+    public boolean isMoving(int bucket) {
+        return moving[bucket];
+    }
+
+    public int bucketsOn(int shard) {
+        return (int) Arrays.stream(shardOf).filter(s -> s == shard).count();
+    }
+
+    /**
+     * Register a write to {@code ownerId}'s notes and return its bucket, to pass to
+     * {@link #endWrite}. Fails with 503 while the bucket is moving.
+     */
+    public int beginWrite(long ownerId) {
+        int bucket = bucketOf(ownerId);
+        // count first, then check: a move sets the flag first, then waits for the count
+        writing.incrementAndGet(bucket);
+        if (moving[bucket]) {
+            writing.decrementAndGet(bucket);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Notes are being moved, retry shortly");
+        }
+        return bucket;
+    }
+
+    public void endWrite(int bucket) {
+        writing.decrementAndGet(bucket);
+    }
+
+    /**
+     * Called first in the shard transaction of a write to {@code bucket}: locks the bucket's fence
+     * row on that shard until commit, and fails with 503 if a move has fenced the bucket there.
+     */
+    public void checkFence(int bucket) {
+        Boolean fenced = jdbc.queryForObject(
+                "select moving from note_bucket_fence where bucket = ? " + fenceLock, Boolean.class, bucket);
+        if (Boolean.TRUE.equals(fenced)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Notes are being moved, retry shortly");
+        }
+    }
+
+    /**
+     * Fence {@code bucket} on {@code shard} (or lift the fence). Fencing waits until every write
+     * holding the bucket's fence row there has finished; no write to it commits there afterwards.
+     */
+    public void fence(int shard, int bucket, boolean fenced) {
+        ShardRoutingDataSource.withShard(shard, () -> tx.execute(status ->
+                jdbc.update("update note_bucket_fence set moving = ? where bucket = ?", fenced, bucket)));
+    }
+
+    /** Flag a bucket as moving (or not) in the table and here. */
+    public synchronized void setMoving(int bucket, boolean flag) {
+        jdbc.update("update note_shard_bucket set moving = ? where bucket = ?", flag, bucket);
+        boolean[] next = moving.clone();
+        next[bucket] = flag;
+        moving = next;
+    }
+
+    /** Point a bucket at {@code shard} and clear its moving flag. */
+    public synchronized void assign(int bucket, int shard) {
+        jdbc.update("update note_shard_bucket set shard = ?, moving = false where bucket = ?", shard, bucket);
+        int[] shards = shardOf.clone();
+        shards[bucket] = shard;
+        boolean[] flags = moving.clone();
+        flags[bucket] = false;
+        shardOf = shards;
+        moving = flags;
+    }
+
+    /** Wait until no write registered here is still running against {@code bucket}. */
+    public void awaitWritesDrained(int bucket, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (writing.get(bucket) > 0) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Writes to bucket " + bucket + " did not finish within " + timeout);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
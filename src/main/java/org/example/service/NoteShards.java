@@ -0,0 +1,176 @@
+package org.example.service;
+
+import org.example.config.ShardRoutingDataSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs note work against the database that holds the owner's notes.
+ *
+ * <p>Without {@code notes.sharding.enabled} there is one database: work runs in a transaction
+ * that joins the caller's, exactly as if it were called directly. With sharding, work runs in
+ * its own transaction on the owner's shard (see {@link NoteShardMap}), and the caller's
+ * transaction, if any, stays open on the primary around it.
+ */
+@Component
+public class NoteShards {
+
+    private final NoteShardMap map;
+    private final TransactionTemplate readTx;
+    private final TransactionTemplate writeTx;
+    private final ExecutorService scanPool;
+
+    public NoteShards(PlatformTransactionManager txManager, Optional<NoteShardMap> map) {
+        this.map = map.orElse(null);
+        int propagation = this.map == null
+                ? TransactionDefinition.PROPAGATION_REQUIRED
+                : TransactionDefinition.PROPAGATION_REQUIRES_NEW;
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setPropagationBehavior(propagation);
+        this.readTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(txManager);
+        this.writeTx.setPropagationBehavior(propagation);
+
+        if (this.map == null) {
+            this.scanPool = null;
+        } else {
+            AtomicInteger seq = new AtomicInteger();
+            this.scanPool = Executors.newFixedThreadPool(this.map.shardCount(), r -> {
+                Thread t = new Thread(r, "note-shard-scan-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** A single-database instance, for tests and tools. */
+    public static NoteShards unsharded(PlatformTransactionManager txManager) {
+        return new NoteShards(txManager, Optional.empty());
+    }
+
+    public boolean sharded() {
+        return map != null;
+    }
+
+    public int shardCount() {
+        return map == null ? 1 : map.shardCount();
+    }
+
+    /** Read-only work on {@code ownerId}'s notes. */
+    public <T> T read(long ownerId, Supplier<T> work) {
+        if (map == null) return readTx.execute(status -> work.get());
+        return onShard(map.shardOf(ownerId), readTx, work);
+    }
+
+    /** Work that changes {@code ownerId}'s notes; 503 while the owner's bucket is being moved. */
+    public <T> T write(long ownerId, Supplier<T> work) {
+        if (map == null) return writeTx.execute(status -> work.get());
+        int bucket = map.beginWrite(ownerId);
+        try {
+            return onShard(map.shardOfBucket(bucket), writeTx, () -> {
+                map.checkFence(bucket);
+                return work.get();
+            });
+        } finally {
+            map.endWrite(bucket);
+        }
+    }
+
+    /**
+     * Writes for many owners: {@code work} runs once per shard involved, each time in that
+     * shard's transaction and with the owners whose notes live there.
+     */
+    public void writeAll(Collection<Long> ownerIds, Consumer<Set<Long>> work) {
+        if (map == null) {
+            writeTx.executeWithoutResult(status -> work.accept(new LinkedHashSet<>(ownerIds)));
+            return;
+        }
+        List<Integer> claimed = new ArrayList<>(ownerIds.size());
+        try {
+            Map<Integer, Set<Long>> byShard = new TreeMap<>();
+            Map<Integer, Set<Integer>> bucketsByShard = new TreeMap<>();
+            for (Long ownerId : ownerIds) {
+                int bucket = map.beginWrite(ownerId);
+                claimed.add(bucket);
+                int shard = map.shardOfBucket(bucket);
+                byShard.computeIfAbsent(shard, s -> new LinkedHashSet<>()).add(ownerId);
+                bucketsByShard.computeIfAbsent(shard, s -> new TreeSet<>()).add(bucket);
+            }
+            byShard.forEach((shard, owners) -> onShard(shard, writeTx, () -> {
+                // in bucket order, so two of these never wait on each other's fence rows
+                bucketsByShard.get(shard).forEach(map::checkFence);
+                work.accept(owners);
+                return null;
+            }));
+        } finally {
+            claimed.forEach(map::endWrite);
+        }
+    }
+
+    /** Work on one shard regardless of owner, for rebalancing. */
+    public <T> T onShard(int shard, boolean readOnly, Supplier<T> work) {
+        requireSharded();
+        return onShard(shard, readOnly ? readTx : writeTx, work);
+    }
+
+    /**
+     * Work on the primary regardless of owner, for the notes written there before sharding was
+     * switched on. Never read-only, so it cannot be routed to a lagging replica.
+     */
+    public <T> T onPrimary(Supplier<T> work) {
+        requireSharded();
+        return writeTx.execute(status -> work.get());
+    }
+
+    /**
+     * Read-only work on every shard at once, one thread per shard; results in shard order.
+     * Unsharded, {@code work} runs once, for shard 0, on the calling thread.
+     */
+    public <T> List<T> onEveryShard(IntFunction<T> work) {
+        if (map == null) return Collections.singletonList(readTx.execute(status -> work.apply(0)));
+        List<CompletableFuture<T>> futures = new ArrayList<>(map.shardCount());
+        for (int i = 0; i < map.shardCount(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(shard, readTx, () -> work.apply(shard)), scanPool));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private <T> T onShard(int shard, TransactionTemplate tx, Supplier<T> work) {
+        return ShardRoutingDataSource.withShard(shard, () -> tx.execute(status -> work.get()));
+    }
+
+    private void requireSharded() {
+        if (map == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Note sharding is not enabled");
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.model.TaggedNote;
+import org.example.repository.NoteRepository;
+import org.example.util.CompressedBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory tag index for note filtering: per owner, one {@link CompressedBitmap} of note ids
+ * per tag. A filter is answered with bitmap AND/OR/AND-NOT, and only the requested page of ids
+ * is then read from the database.
+ *
+ * <p>NoteService reports tag changes here, applied once their transaction commits. The index
+ * is built from every shard when the application is ready and rebuilt every
+ * {@code notes.tags.rebuild-interval}, which is how changes made on other instances arrive.
+ * Until then it may be stale, so callers re-check the notes they load against the filter.
+ */
+@Component
+public class NoteTagIndex {
+
+    /** Notes with every tag in {@code all}, at least one in {@code any} (if given), and none in {@code none}. */
+    public record TagFilter(Set<String> all, Set<String> any, Set<String> none) {
+        public boolean matches(Set<String> tags) {
+            return tags.containsAll(all)
+                    && (any.isEmpty() || any.stream().anyMatch(tags::contains))
+                    && none.stream().noneMatch(tags::contains);
+        }
+    }
+
+    /** One page of matching note ids, highest (newest) first, and the total number of matches. */
+    public record Match(long total, List<Long> ids) {}
+
+    private record Change(long ownerId, long noteId, Set<String> removed, Set<String> added) {}
+
+    private static final int SCAN_BATCH = 5_000;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NoteTagIndex.class);
+
+    private final NoteRepository notesRepo;
+    private final NoteShards shards;
+    private final TaskScheduler scheduler;
+    private final Duration rebuildInterval;
+
+    private volatile Map<Long, Map<String, CompressedBitmap>> owners = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // non-null while a rebuild runs: changes to replay onto the new index before it replaces the old one
+    private final Object rebuildLock = new Object();
+    private List<Change> pending;
+
+    public NoteTagIndex(NoteRepository notesRepo, NoteShards shards, TaskScheduler scheduler,
+                        @Value("${notes.tags.rebuild-interval:10m}") Duration rebuildInterval,
+                        MeterRegistry registry) {
+        this.notesRepo = notesRepo;
+        this.shards = shards;
+        this.scheduler = scheduler;
+        this.rebuildInterval = rebuildInterval;
+        Gauge.builder("notes.tags.index.owners", this, index -> index.owners.size())
+                .description("Owners with tagged notes in the in-memory tag index")
+                .register(registry);
+    }
+
+    /** Build the index; until this finishes, tag filters get 503. Then rebuild it periodically. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        rebuild();
+        if (!rebuildInterval.isZero()) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Tag index rebuild failed; keeping the current one", e);
+                }
+            }, Instant.now().plus(rebuildInterval), rebuildInterval);
+        }
+    }
+
+    /** Re-read every tagged note; changes committed meanwhile are replayed onto the result. */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            if (pending != null) return; // one rebuild at a time
+            pending = new ArrayList<>();
+        }
+        Map<Long, Map<String, CompressedBitmap>> fresh = new ConcurrentHashMap<>();
+        long started = System.nanoTime();
+        long notes;
+        try {
+            notes = shards.onEveryShard(shard -> load(fresh)).stream().mapToLong(Long::longValue).sum();
+        } catch (RuntimeException e) {
+            synchronized (rebuildLock) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (rebuildLock) {
+            pending.forEach(change -> apply(fresh, change));
+            owners = fresh;
+            pending = null;
+        }
+        ready = true;
+        log.info("Tag index built from {} tagged notes of {} owners in {} ms", notes, fresh.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // one shard, inside its read transaction; an owner can be on two shards mid-move, hence the locks
+    private long load(Map<Long, Map<String, CompressedBitmap>> into) {
+        long n = 0;
+        long after = 0;
+        List<TaggedNote> batch;
+        do {
+            batch = notesRepo.findTaggedAfter(after, Limit.of(SCAN_BATCH));
+            for (TaggedNote note : batch) {
+                apply(into, new Change(note.ownerId(), note.id(), Set.of(), note.tags()));
+                after = note.id();
+            }
+            n += batch.size();
+        } while (batch.size() == SCAN_BATCH);
+        return n;
+    }
+
+    /**
+     * Record that {@code noteId}'s tags went from {@code before} to {@code after}; empty sets for a
+     * create or delete. Inside a transaction it is applied once that commits.
+     */
+    public void changed(long ownerId, long noteId, Set<String> before, Set<String> after) {
+        if (before.equals(after)) return;
+        Set<String> removed = new HashSet<>(before);
+        removed.removeAll(after);
+        Set<String> added = new HashSet<>(after);
+        added.removeAll(before);
+        Change change = new Change(ownerId, noteId, removed, added);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Change change) {
+        Map<Long, Map<String, CompressedBitmap>> target;
+        synchronized (rebuildLock) {
+            if (pending != null) pending.add(change);
+            target = owners;
+        }
+        apply(target, change);
+    }
+
+    private static void apply(Map<Long, Map<String, CompressedBitmap>> into, Change change) {
+        Map<String, CompressedBitmap> tags = into.computeIfAbsent(change.ownerId(), k -> new HashMap<>());
+        synchronized (tags) {
+            for (String tag : change.removed()) {
+                CompressedBitmap ids = tags.get(tag);
+                if (ids != null && ids.remove(change.noteId()) && ids.isEmpty()) tags.remove(tag);
+            }
+            for (String tag : change.added()) {
+                tags.computeIfAbsent(tag, k -> new CompressedBitmap()).add(change.noteId());
+            }
+        }
+    }
+
+    /**
+     * The page of {@code ownerId}'s note ids matching {@code filter}, after skipping {@code skip}.
+     * The filter needs {@code all} or {@code any}: without a positive term there is nothing to subtract from.
+     */
+    public Match match(long ownerId, TagFilter filter, long skip, int limit) {
+        if (!ready) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Tag index is still loading");
+        }
+        Map<String, CompressedBitmap> tags = owners.get(ownerId);
+        if (tags == null) return new Match(0, List.of());
+        synchronized (tags) {
+            CompressedBitmap result = null;
+            // smallest first, so every AND after it only walks what is left
+            List<CompressedBitmap> required = new ArrayList<>();
+            for (String tag : filter.all()) {
+                CompressedBitmap ids = tags.get(tag);
+                if (ids == null) return new Match(0, List.of());
+                required.add(ids);
+            }
+            required.sort(Comparator.comparingLong(CompressedBitmap::cardinality));
+            for (CompressedBitmap ids : required) {
+                result = result == null ? ids : result.and(ids);
+            }
+            if (!filter.any().isEmpty()) {
+                CompressedBitmap union = new CompressedBitmap();
+                for (String tag : filter.any()) {
+                    CompressedBitmap ids = tags.get(tag);
+                    if (ids != null) union = union.or(ids);
+                }
+                result = result == null ? union : result.and(union);
+            }
+            if (result == null) throw new IllegalArgumentException("Filter has no tags or any");
+            for (String tag : filter.none()) {
+                CompressedBitmap ids = tags.get(tag);
+                if (ids != null) result = result.andNot(ids);
+            }
+            long[] page = result.descending(skip, limit);
+            List<Long> ids = new ArrayList<>(page.length);
+            for (long id : page) ids.add(id);
+            return new Match(result.cardinality(), Collections.unmodifiableList(ids));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Single-flight for per-user reads: identical concurrent reads by one user (same operation and
+ * arguments), e.g. every tab of a reconnecting client refreshing at once, share one execution.
+ * Callers pass the finished response so only immutable DTOs cross threads, never entities.
+ *
+ * <p>Writes call {@link #forget} after they commit, so a read sent after a write never shares
+ * a read that started before it. Metrics: {@code reads.coalescing} by {@code outcome}.
+ */
+@Component
+public class ReadCoalescer {
+
+    record Key(String owner, String op, List<Object> args) {}
+
+    private final boolean enabled;
+    private final SingleFlight<Key, Object> flight;
+
+    public ReadCoalescer(@Value("${reads.coalescing.enabled:true}") boolean enabled,
+                         @Value("${reads.coalescing.max-wait:2s}") Duration maxWait,
+                         MeterRegistry registry) {
+        this.enabled = enabled;
+        this.flight = new SingleFlight<>(maxWait);
+        counter(registry, "led", SingleFlight::led);
+        counter(registry, "shared", SingleFlight::shared);
+        counter(registry, "abandoned", SingleFlight::abandoned);
+        Gauge.builder("reads.coalescing.in_flight", flight, SingleFlight::inFlight)
+                .description("Coalesced reads currently executing")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String outcome,
+                         ToLongFunction<SingleFlight<Key, Object>> value) {
+        FunctionCounter.builder("reads.coalescing", flight, f -> value.applyAsLong(f))
+                .description("Reads by whether they ran, shared a concurrent identical read, or gave up waiting")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /** Runs {@code loader}, or shares the result of the same owner's identical read in progress. */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String owner, String op, Supplier<T> loader, Object... args) {
+        if (!enabled) return loader.get();
+        return (T) flight.execute(new Key(owner, op, Arrays.asList(args.clone())), loader::get);
+    }
+
+    /** After a write by {@code owner} commits: later reads by that owner start afresh. */
+    public void forget(String owner) {
+        if (enabled) flight.forget(k -> k.owner().equals(owner));
+    }
+}
@@ -0,0 +1,296 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.example.model.AppUser;
+import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk user provisioning from CSV ({@code username,email,password}) or NDJSON
+ * ({@code {"username":..,"email":..,"password":..}}), for onboarding many accounts at once.
+ *
+ * <p>The whole upload is parsed and checked for in-file duplicates first, so an upload over
+ * {@code max-rows} is rejected with 413 before any user is created. Rows are then handled in
+ * chunks of {@code chunk-size}. For each chunk, names and emails that
+ * already exist are rejected with two IN queries, the remaining passwords are BCrypt-hashed
+ * in parallel on a bounded pool, and users plus welcome notes are inserted as JDBC batches
+ * in one transaction. If a batch hits a unique constraint (a concurrent registration), that
+ * chunk is retried row by row so only the conflicting rows fail.
+ */
+@Service
+public class UserProvisioningService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(UserProvisioningService.class);
+
+    public enum Format { CSV, NDJSON }
+
+    /** Outcome of one input line; {@code error} is null when the user was created. */
+    public record RowResult(int line, String username, boolean created, String error) {}
+
+    public record Report(int created, int failed, List<RowResult> results) {}
+
+    private record Row(int line, String username, String email, String password) {}
+
+    private final UserRepository usersRepo;
+    private final PasswordEncoder encoder;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper mapper;
+    private final UsernameAvailabilityService availability;
+    private final NoteShards noteShards;
+    private final NoteChangeLog changes;
+    private final ThreadPoolExecutor hashPool;
+    private final int chunkSize;
+    private final int maxRows;
+
+    public UserProvisioningService(UserRepository usersRepo,
+                                   PasswordEncoder encoder,
+                                   JdbcTemplate jdbc,
+                                   PlatformTransactionManager txManager,
+                                   ObjectMapper mapper,
+                                   UsernameAvailabilityService availability,
+                                   NoteShards noteShards,
+                                   NoteChangeLog changes,
+                                   @Value("${users.provisioning.hash-threads:0}") int hashThreads,
+                                   @Value("${users.provisioning.chunk-size:500}") int chunkSize,
+                                   @Value("${users.provisioning.max-rows:100000}") int maxRows) {
+        this.usersRepo = usersRepo;
+        this.encoder = encoder;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.mapper = mapper;
+        this.availability = availability;
+        this.noteShards = noteShards;
+        this.changes = changes;
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+
+        // BCrypt is pure CPU: one thread per core; a chunk's tasks fit in the queue, and if
+        // several imports run at once the submitting thread hashes instead of queueing more
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.hashPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chunkSize),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    public Report provision(InputStream body, Format format) throws IOException {
+        List<RowResult> results = new ArrayList<>();
+        // names/emails seen earlier in this upload, to reject in-file duplicates
+        Set<String> seenNames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+
+        // read everything before writing anything: at most max-rows rows are held
+        List<Row> rows = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            int count = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (format == Format.CSV && lineNo == 1 && line.trim().toLowerCase(Locale.ROOT).startsWith("username,")) {
+                    continue; // header
+                }
+                if (++count > maxRows) {
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "At most " + maxRows + " rows per request");
+                }
+                Row row;
+                try {
+                    row = format == Format.CSV ? parseCsv(lineNo, line) : parseJson(lineNo, line);
+                } catch (IllegalArgumentException ex) {
+                    results.add(new RowResult(lineNo, null, false, ex.getMessage()));
+                    continue;
+                }
+                if (!seenNames.add(row.username())) {
+                    results.add(new RowResult(lineNo, row.username(), false, "Duplicate username in upload"));
+                    continue;
+                }
+                if (row.email() != null && !seenEmails.add(row.email())) {
+                    results.add(new RowResult(lineNo, row.username(), false, "Duplicate email in upload"));
+                    continue;
+                }
+                rows.add(row);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            results.addAll(processChunk(rows.subList(from, Math.min(rows.size(), from + chunkSize))));
+        }
+
+        results.sort((a, b) -> Integer.compare(a.line(), b.line()));
+        int created = (int) results.stream().filter(RowResult::created).count();
+        log.info("Provisioned {} users, {} rows failed", created, results.size() - created);
+        return new Report(created, results.size() - created, results);
+    }
+
+    private List<RowResult> processChunk(List<Row> chunk) {
+        List<RowResult> results = new ArrayList<>(chunk.size());
+
+        // reject rows that already exist before spending BCrypt time on them
+        Set<String> takenNames = new HashSet<>(usersRepo.findExistingUsernames(
+                chunk.stream().map(Row::username).toList()));
+        List<String> emails = chunk.stream().map(Row::email).filter(e -> e != null).toList();
+        Set<String> takenEmails = emails.isEmpty() ? Set.of() : new HashSet<>(usersRepo.findExistingEmails(emails));
+
+        List<Row> fresh = new ArrayList<>(chunk.size());
+        for (Row r : chunk) {
+            if (takenNames.contains(r.username())) {
+                results.add(new RowResult(r.line(), r.username(), false, "Username already taken"));
+            } else if (r.email() != null && takenEmails.contains(r.email())) {
+                results.add(new RowResult(r.line(), r.username(), false, "Email already registered"));
+            } else {
+                fresh.add(r);
+            }
+        }
+        if (fresh.isEmpty()) return results;
+
+        List<String> hashes = hashAll(fresh);
+
+        try {
+            tx.executeWithoutResult(status -> insertBatch(fresh, hashes));
+            for (Row r : fresh) {
+                availability.markTaken(r.username());
+                results.add(new RowResult(r.line(), r.username(), true, null));
+            }
+        } catch (DataIntegrityViolationException raced) {
+            // someone registered one of these names meanwhile; isolate the conflicting rows
+            for (int i = 0; i < fresh.size(); i++) {
+                results.add(insertOne(fresh.get(i), hashes.get(i)));
+            }
+        }
+        return results;
+    }
+
+    private List<String> hashAll(List<Row> rows) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(rows.size());
+        for (Row r : rows) {
+            futures.add(CompletableFuture.supplyAsync(() -> encoder.encode(r.password()), hashPool));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private void insertBatch(List<Row> rows, List<String> hashes) {
+        List<Object[]> users = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            users.add(new Object[]{r.username(), r.email(), hashes.get(i)});
+        }
+        jdbc.batchUpdate("insert into app_user (username, email, password_hash) values (?, ?, ?)", users);
+
+        // identity ids are not reliably returned from batches across drivers, so read them back
+        Map<String, Long> ids = new HashMap<>();
+        String in = String.join(",", Collections.nCopies(rows.size(), "?"));
+        jdbc.query("select id, username from app_user where username in (" + in + ")",
+                rs -> { ids.put(rs.getString(2), rs.getLong(1)); },
+                rows.stream().map(Row::username).toArray());
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        Map<Long, Object[]> notes = new LinkedHashMap<>();
+        for (Row r : rows) {
+            Long id = ids.get(r.username());
+            notes.put(id, new Object[]{"Welcome", UserService.welcomeText(r.username()), id, now});
+        }
+        // one batch per note shard; unsharded, one batch in this transaction
+        noteShards.writeAll(notes.keySet(), owners -> {
+            jdbc.batchUpdate("insert into note (title, content, owner_id, created_at) values (?, ?, ?, ?)",
+                    owners.stream().map(notes::get).toList());
+            if (changes.enabled()) {
+                // each new owner has just this one note; its id is only known after the insert
+                jdbc.query("select id, owner_id from note where owner_id in ("
+                                + String.join(",", Collections.nCopies(owners.size(), "?")) + ")",
+                        rs -> {
+                            Object[] note = notes.get(rs.getLong(2));
+                            changes.created(rs.getLong(1), rs.getLong(2), (String) note[0], (String) note[1]);
+                        },
+                        owners.toArray());
+            }
+        });
+    }
+
+    private RowResult insertOne(Row r, String hash) {
+        try {
+            tx.executeWithoutResult(status -> insertBatch(List.of(r), List.of(hash)));
+            availability.markTaken(r.username());
+            return new RowResult(r.line(), r.username(), true, null);
+        } catch (DataIntegrityViolationException ex) {
+            String msg = String.valueOf(ex.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+            String error = msg.contains(AppUser.EMAIL_CONSTRAINT) ? "Email already registered" : "Username already taken";
+            return new RowResult(r.line(), r.username(), false, error);
+        } catch (DataAccessException ex) {
+            return new RowResult(r.line(), r.username(), false, "Insert failed");
+        }
+    }
+
+    private static Row parseCsv(int line, String text) {
+        // passwords may contain commas, so the third field is everything after the second comma
+        String[] f = text.split(",", 3);
+        if (f.length < 3) {
+            throw new IllegalArgumentException("Expected username,email,password");
+        }
+        return validated(line, f[0].trim(), f[1].trim(), f[2]);
+    }
+
+    private Row parseJson(int line, String text) {
+        JsonNode n;
+        try {
+            n = mapper.readTree(text);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        if (n == null || !n.isObject()) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        return validated(line, n.path("username").asText(""), n.path("email").asText(""), n.path("password").asText(""));
+    }
+
+    private static Row validated(int line, String username, String email, String password) {
+        if (username.isBlank()) throw new IllegalArgumentException("username is required");
+        if (password.isEmpty()) throw new IllegalArgumentException("password is required");
+        return new Row(line, username, email.isBlank() ? null : email, password);
+    }
+}
@@ -1,59 +1,157 @@
 package org.example.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ReadYourWrites;
 import org.example.model.AppUser;
 import org.example.model.Note;
+import org.example.model.UserSummary;
 import org.example.repository.NoteRepository;
 import org.example.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
     private final UserRepository usersRepo;
     private final NoteRepository notesRepo;
     private final PasswordEncoder encoderRepo;
+    private final ObjectMapper mapper;
+    private final UsernameAvailabilityService availability;
+    private final ReadYourWrites readYourWrites;
+    private final NoteShards noteShards;
+    private final NoteChangeLog changes;
 
-    public UserService(UserRepository users, NoteRepository notes, PasswordEncoder encoderRepo) {
+    @Value("${users.list.default-limit:50}")
+    private int defaultLimit = 50;
+
+    @Value("${users.list.max-limit:500}")
+    private int maxLimit = 500;
+
+    /** One page of users plus the id to pass as {@code after} for the next one (null on the last page). */
+    public record UserPage(List<UserSummary> items, Long nextAfter) {}
+
+    public UserService(UserRepository users, NoteRepository notes, PasswordEncoder encoderRepo,
+                       ObjectMapper mapper, UsernameAvailabilityService availability,
+                       ReadYourWrites readYourWrites, NoteShards noteShards, NoteChangeLog changes) {
         this.usersRepo = users;
         this.notesRepo = notes;
         this.encoderRepo = encoderRepo;
+        this.mapper = mapper;
+        this.availability = availability;
+        this.readYourWrites = readYourWrites;
+        this.noteShards = noteShards;
+        this.changes = changes;
     }
 
-    /** Atomic registration: create user and welcome note in one transaction. */
+    /**
+     * Atomic registration: create user and welcome note in one transaction.
+     * Duplicates are caught by the unique constraints on the insert itself rather
+     * than by separate existence queries beforehand.
+     * With note sharding the welcome note commits on its shard just before the user commits;
+     * if that last commit fails the note is left without an owner, never the other way round.
+     */
     @Transactional
     public void register(String username, String email, String rawPassword) {
-        if (usersRepo.existsByUsername(username)) {
-            throw new IllegalArgumentException("Username already taken");
-        }
-        if (usersRepo.existsByEmail(email)) {
-            throw new IllegalArgumentException("Email already registered");
-        }
-
         AppUser user = new AppUser(
                 username,
                 email,
                 encoderRepo.encode(rawPassword)
         );
 
-        AppUser saved = createUser(user);
+        AppUser saved;
+        try {
+            saved = createUser(user);
+        } catch (DataIntegrityViolationException ex) {
+            String constraint = violatedConstraint(ex);
+            if (constraint.contains(AppUser.USERNAME_CONSTRAINT)) {
+                throw new IllegalArgumentException("Username already taken");
+            }
+            if (constraint.contains(AppUser.EMAIL_CONSTRAINT)) {
+                throw new IllegalArgumentException("Email already registered");
+            }
+            throw ex;
+        }
+        availability.markTaken(saved.getUsername());
+        // registration is anonymous; keep the new user's first logins off a lagging replica
+        readYourWrites.recordOnCommit(saved.getUsername());
 
         Note welcome = new Note(
                 "Welcome",
-                "Welcome to Note Service, " + saved.getUsername() + "!",
+                welcomeText(saved.getUsername()),
                 saved
         );
-        notesRepo.save(welcome);
+        noteShards.write(saved.getId(), () -> {
+            Note note = notesRepo.save(welcome);
+            changes.created(note);
+            return note;
+        });
+    }
+
+    static String welcomeText(String username) {
+        return "Welcome to Note Service, " + username + "!";
+    }
+
+    /** Lower-cased name of the violated constraint, or the driver message when Hibernate could not tell. */
+    private static String violatedConstraint(DataIntegrityViolationException ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+                return cve.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        return String.valueOf(ex.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
     }
 
     public AppUser createUser(AppUser user) {
+        user.setAdmin(false);
         return usersRepo.save(user);
     }
 
-    // Get all users
-    public List<AppUser> getAllUsers() {
-        return usersRepo.findAll();
+    /** Grant or revoke ROLE_ADMIN; callers must already be admins (UserController). */
+    @Transactional
+    public void setAdmin(String username, boolean admin) {
+        AppUser user = usersRepo.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setAdmin(admin);
+    }
+
+    /** Keyset-paginated user summaries in id order; each page is one index range scan. */
+    @Transactional(readOnly = true)
+    public UserPage listUsers(Long after, Integer limit) {
+        int size = limit == null ? defaultLimit : Math.min(Math.max(limit, 1), maxLimit);
+        List<UserSummary> rows = usersRepo.findSummariesAfter(after == null ? 0L : after, Limit.of(size + 1));
+        if (rows.size() <= size) {
+            return new UserPage(rows, null);
+        }
+        List<UserSummary> items = rows.subList(0, size);
+        return new UserPage(items, items.get(size - 1).id());
+    }
+
+    /**
+     * Write every user summary to {@code out} as NDJSON straight from a database cursor,
+     * so memory stays flat however many accounts there are.
+     */
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream out) throws IOException {
+        try (Stream<UserSummary> users = usersRepo.streamSummaries()) {
+            for (Iterator<UserSummary> it = users.iterator(); it.hasNext(); ) {
+                out.write(mapper.writeValueAsBytes(it.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
     }
 }
@@ -0,0 +1,63 @@
+package org.example.service;
+
+import org.example.repository.UserRepository;
+import org.example.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * Cheap "is this username free?" checks backed by an in-memory Bloom filter of taken
+ * usernames. A filter miss means the name is free and needs no query; a hit is confirmed
+ * against the database, since it may be a false positive.
+ *
+ * <p>The answer is advisory: names registered on other instances after this one warmed up
+ * are not in its filter, and the unique constraint on app_user.username is what actually
+ * decides a registration.
+ */
+@Service
+public class UsernameAvailabilityService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(UsernameAvailabilityService.class);
+
+    private final UserRepository usersRepo;
+    private final BloomFilter taken;
+    private volatile boolean warmed;
+
+    public UsernameAvailabilityService(UserRepository usersRepo,
+                                       @Value("${auth.username-filter.expected-users:1000000}") long expectedUsers,
+                                       @Value("${auth.username-filter.fpp:0.01}") double fpp) {
+        this.usersRepo = usersRepo;
+        this.taken = new BloomFilter(expectedUsers, fpp);
+    }
+
+    /** Load every existing username; until this finishes, every check goes to the database. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warm() {
+        long n = 0;
+        try (Stream<String> names = usersRepo.streamUsernames()) {
+            for (var it = names.iterator(); it.hasNext(); n++) {
+                taken.put(it.next());
+            }
+        }
+        warmed = true;
+        log.info("Username filter warmed with {} names", n);
+    }
+
+    public boolean isAvailable(String username) {
+        if (warmed && !taken.mightContain(username)) {
+            return true;
+        }
+        return !usersRepo.existsByUsername(username);
+    }
+
+    /** Called after a successful registration so the name stops looking free locally. */
+    public void markTaken(String username) {
+        taken.put(username);
+    }
+}
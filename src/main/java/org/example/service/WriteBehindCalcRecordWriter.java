@@ -0,0 +1,234 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.model.AppUser;
+import org.example.model.CalcExpression;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind mode: results are returned as soon as they are evaluated, and records
+ * are queued to a bounded buffer that a single writer thread flushes in group-commit
+ * batches (one transaction per batch, up to {@code max-batch} records or
+ * {@code flush-interval-ms} after the first queued record, whichever comes first).
+ *
+ * <p>When the buffer is full, callers wait up to {@code offer-timeout-ms} and then get a 503.
+ * A batch whose transaction fails is retried {@value #BATCH_ATTEMPTS} times in all, backing
+ * off from {@code retry-backoff-ms}, and then written one record per transaction so that only
+ * the records that fail on their own are dropped.
+ * On shutdown the queue stops accepting records and is drained before the context closes.
+ * Records still buffered when the JVM dies are lost; that is the trade-off of this mode.
+ */
+@Service
+@ConditionalOnProperty(prefix = "calc.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindCalcRecordWriter implements CalcRecordWriter {
+
+    static final int BATCH_ATTEMPTS = 3;
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(WriteBehindCalcRecordWriter.class);
+
+    private final CalcRecordRepository calcRepo;
+    private final UserRepository usersRepo;
+    private final CalcStatsService statsService;
+    private final CalcExpressionService expressions;
+    private final TransactionTemplate tx;
+
+    private final BlockingQueue<CalcRecord> queue;
+    private final int maxBatch;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long retryBackoffMs;
+    private final Thread flusher;
+    // write() checks and offers under the read lock, so no record is queued once shutdown() holds the write lock
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting = true;
+
+    public WriteBehindCalcRecordWriter(CalcRecordRepository calcRepo,
+                                       UserRepository usersRepo,
+                                       CalcStatsService statsService,
+                                       CalcExpressionService expressions,
+                                       PlatformTransactionManager txManager,
+                                       @Value("${calc.write-behind.capacity:10000}") int capacity,
+                                       @Value("${calc.write-behind.max-batch:500}") int maxBatch,
+                                       @Value("${calc.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                                       @Value("${calc.write-behind.offer-timeout-ms:100}") long offerTimeoutMs,
+                                       @Value("${calc.write-behind.retry-backoff-ms:100}") long retryBackoffMs) {
+        this.calcRepo = calcRepo;
+        this.usersRepo = usersRepo;
+        this.statsService = statsService;
+        this.expressions = expressions;
+        this.tx = new TransactionTemplate(txManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.flusher = new Thread(this::run, "calc-write-behind");
+        this.flusher.setDaemon(false);
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.start();
+    }
+
+    @Override
+    public CalcRecord write(String username, String expr, int value) {
+        var record = new CalcRecord(expr, value, username, null);
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting)
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down");
+            if (!queue.offer(record, offerTimeoutMs, TimeUnit.MILLISECONDS))
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Calculation log is busy, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        return record;
+    }
+
+    /** Number of records accepted but not yet flushed. */
+    public int pending() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // waits out writes already past the check, at most offer-timeout-ms each
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        if (!queue.isEmpty()) {
+            log.warn("Write-behind writer stopped with {} unflushed calc records", queue.size());
+        }
+    }
+
+    private void run() {
+        List<CalcRecord> batch = new ArrayList<>(maxBatch);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                // shutdown: stop waiting for more and flush what is already queued
+                queue.drainTo(batch, maxBatch - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /** Block for the first record, then keep collecting until the batch is full or the interval elapses. */
+    private void fill(List<CalcRecord> batch) throws InterruptedException {
+        CalcRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < maxBatch) {
+            queue.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) break;
+            CalcRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+
+    void flush(List<CalcRecord> batch) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; attempt <= BATCH_ATTEMPTS; attempt++) {
+            try {
+                persist(batch);
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Failed to flush {} calc records (attempt {} of {})", batch.size(), attempt, BATCH_ATTEMPTS, ex);
+            }
+            if (attempt < BATCH_ATTEMPTS) {
+                backOff(backoff);
+                backoff *= 2;
+            }
+        }
+        // one bad record must not take the rest of its batch down with it
+        int dropped = 0;
+        for (CalcRecord record : batch) {
+            try {
+                persist(List.of(record));
+            } catch (RuntimeException ex) {
+                dropped++;
+                log.error("Dropping calc record of {} after its batch and a single insert failed",
+                        record.getSubmittedBy(), ex);
+            }
+        }
+        if (dropped > 0) {
+            log.error("Dropped {} of {} calc records", dropped, batch.size());
+        }
+    }
+
+    private void persist(List<CalcRecord> batch) {
+        // a rolled-back attempt leaves its generated ids behind; without them the records are new again
+        batch.forEach(r -> r.setId(null));
+        tx.executeWithoutResult(status -> {
+            Map<String, List<CalcRecord>> byUser = batch.stream()
+                    .collect(Collectors.groupingBy(CalcRecord::getSubmittedBy, LinkedHashMap::new, Collectors.toList()));
+            Map<String, AppUser> owners = usersRepo.findByUsernameIn(byUser.keySet()).stream()
+                    .collect(Collectors.toMap(AppUser::getUsername, Function.identity()));
+
+            List<CalcRecord> toSave = new ArrayList<>(batch.size());
+            // new texts only reach the shared cache on commit, so dedupe within the batch here
+            Map<String, CalcExpression> interned = new HashMap<>();
+            byUser.forEach((username, records) -> {
+                AppUser owner = owners.get(username);
+                if (owner == null) {
+                    log.warn("Dropping {} calc records for unknown user {}", records.size(), username);
+                    return;
+                }
+                records.forEach(r -> {
+                    r.setOwner(owner);
+                    r.setExpression(interned.computeIfAbsent(r.getExpr(), expressions::intern));
+                });
+                statsService.recordAll(owner, records);
+                toSave.addAll(records);
+            });
+            calcRepo.saveAll(toSave);
+        });
+    }
+
+    private static void backOff(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // shutdown() interrupts to stop waiting for new records; the retry itself still runs
+        }
+    }
+}
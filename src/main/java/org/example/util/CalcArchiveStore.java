@@ -0,0 +1,178 @@
+package org.example.util;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only archive segments on local disk: one gzip-compressed NDJSON file per user
+ * and month, at {@code <root>/<userId>/<yyyy-MM>.ndjson.gz}.
+ *
+ * <p>Each append writes one complete gzip member and fsyncs it; concatenated members form
+ * a valid gzip stream. Before writing, the segment's length is fsynced to a
+ * {@code <yyyy-MM>.ndjson.gz.pending} marker that is removed once the member is on disk. While
+ * the marker exists, readers stop at that length; a failed append, or the next one after a
+ * crash, truncates the segment back to it. A torn member therefore never has anything appended
+ * after it, where it would make every later member unreadable.
+ */
+public class CalcArchiveStore {
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final String PENDING = ".pending";
+
+    private final Path root;
+
+    public CalcArchiveStore(Path root) {
+        this.root = root;
+    }
+
+    /** Append already-serialized JSON lines to one user's segment for one month. */
+    public void append(long userId, YearMonth month, List<String> lines) throws IOException {
+        Path dir = Files.createDirectories(root.resolve(Long.toString(userId)));
+        Path segment = dir.resolve(month + SUFFIX);
+        Path pending = dir.resolve(month + SUFFIX + PENDING);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Long torn = pendingLength(pending);
+            if (torn != null) {
+                // the previous append never finished: drop its partial member
+                ch.truncate(torn);
+                ch.force(false);
+            }
+            long start = ch.size();
+            Files.writeString(pending, Long.toString(start), StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+            ch.position(start);
+            try {
+                OutputStream raw = Channels.newOutputStream(ch);
+                // not try-with-resources: closing the gzip stream would close the channel before force()
+                GZIPOutputStream gz = new GZIPOutputStream(raw, 64 * 1024);
+                Writer w = new OutputStreamWriter(gz, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    w.write(line);
+                    w.write('\n');
+                }
+                w.flush();
+                gz.finish();
+                ch.force(false);
+            } catch (IOException | RuntimeException ex) {
+                try {
+                    ch.truncate(start);
+                    ch.force(false);
+                    Files.delete(pending);
+                } catch (IOException cleanupFailed) {
+                    // the marker stays, so readers and the next append still stop at start
+                    ex.addSuppressed(cleanupFailed);
+                }
+                throw ex;
+            }
+            Files.delete(pending);
+        }
+    }
+
+    /** Length the segment had before an unfinished append, or null when none is pending. */
+    private static Long pendingLength(Path pending) throws IOException {
+        String text;
+        try {
+            text = Files.readString(pending, StandardCharsets.US_ASCII).trim();
+        } catch (NoSuchFileException none) {
+            return null;
+        }
+        // an empty marker was itself cut short, before anything was appended to the segment
+        return text.isEmpty() ? null : Long.parseLong(text);
+    }
+
+    /** Months that have a segment for this user, oldest first, within [from, to]. */
+    public List<YearMonth> months(long userId, YearMonth from, YearMonth to) throws IOException {
+        Path dir = root.resolve(Long.toString(userId));
+        List<YearMonth> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                YearMonth m = YearMonth.parse(name.substring(0, name.length() - SUFFIX.length()));
+                if (!m.isBefore(from) && !m.isAfter(to)) out.add(m);
+            }
+        }
+        out.sort(null);
+        return out;
+    }
+
+    /** Stream the lines of one segment without loading it into memory. */
+    public void read(long userId, YearMonth month, Consumer<String> sink) throws IOException {
+        Path dir = root.resolve(Long.toString(userId));
+        Path segment = dir.resolve(month + SUFFIX);
+        if (!Files.exists(segment)) return;
+        Long limit = pendingLength(dir.resolve(month + SUFFIX + PENDING));
+        try (InputStream file = Files.newInputStream(segment);
+             BufferedReader r = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                     limit == null ? file : new BoundedInputStream(file, limit), 64 * 1024), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                sink.accept(line);
+            }
+        } catch (EOFException truncatedTail) {
+            // empty up to a pending append, or a torn last member written before pending markers
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Reads at most {@code remaining} bytes of the underlying stream. */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+    }
+}
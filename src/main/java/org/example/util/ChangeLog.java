@@ -0,0 +1,416 @@
+package org.example.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of keyed byte records, stored in segment files of a fixed size under one
+ * directory and written through memory maps. Every record gets the next offset (0, 1, 2, ...);
+ * a segment is named after the offset of its first record and a new one is started when the
+ * next record does not fit.
+ *
+ * <p>Record layout: length (int), CRC32C (int) of everything after it, offset (long),
+ * timestamp (long, epoch millis), key (long), then {@code length} payload bytes. The unused
+ * tail of a segment is zero, so a zero length ends it.
+ *
+ * <p>{@link #append} only copies into the map. {@link #sync} forces everything appended so far to
+ * disk in one go and advances {@link #durableOffset}; readers only ever see durable records.
+ * On open, the last segment is scanned and cut back to its last record with a valid CRC, so a
+ * record torn by a crash is dropped along with anything after it.
+ *
+ * <p>Maintenance works on closed segments only: {@link #applyRetention} deletes the oldest ones,
+ * and {@link #compact} rewrites them without records whose key has a later record, keeping the
+ * original offsets (readers skip the gaps). One writer and any number of readers may use a log
+ * concurrently. Segment files are deleted or replaced while still mapped, which is safe on Linux
+ * and macOS but not on Windows.
+ */
+public final class ChangeLog implements Closeable {
+
+    public record Entry(long offset, long timestamp, long key, byte[] payload) {}
+
+    static final int HEADER = 32;
+    private static final String SUFFIX = ".log";
+    private static final int INDEX_EVERY = 64;
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+        // sparse offset -> position index, one entry per INDEX_EVERY records
+        final ConcurrentSkipListMap<Long, Integer> index = new ConcurrentSkipListMap<>();
+        volatile int limit;
+        volatile long lastOffset = -1;
+        volatile long lastTimestamp;
+        int records;
+
+        Segment(long base, Path path, FileChannel channel, MappedByteBuffer map) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.map = map;
+        }
+
+        void indexed(long offset, int position, long timestamp) {
+            if (records++ % INDEX_EVERY == 0) index.put(offset, position);
+            lastOffset = offset;
+            lastTimestamp = timestamp;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object durableSignal = new Object();
+    private final Object maintenance = new Object();
+
+    // guarded by this
+    private Segment active;
+    private long nextOffset;
+
+    private volatile long durableOffset;
+
+    private ChangeLog(Path dir, int segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /** Open the log in {@code dir}, creating it, and recover whatever a previous run left there. */
+    public static ChangeLog open(Path dir, int segmentSize) throws IOException {
+        if (segmentSize < HEADER + 1) throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        Files.createDirectories(dir);
+        ChangeLog log = new ChangeLog(dir, segmentSize);
+        log.recover();
+        return log;
+    }
+
+    private void recover() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+        bases.sort(null);
+        long expected = 0;
+        for (int i = 0; i < bases.size(); i++) {
+            long base = bases.get(i);
+            boolean last = i == bases.size() - 1;
+            Segment s = last ? mapWritable(base) : mapReadOnly(pathOf(base));
+            expected = scan(s, Math.max(expected, base));
+            segments.put(base, s);
+            if (last) active = s;
+        }
+        if (active == null) {
+            active = mapWritable(0);
+            segments.put(0L, active);
+        } else {
+            // clear whatever follows the last good record, so it can never be read as a record later
+            for (int p = active.limit; p < segmentSize; p++) {
+                if (active.map.get(p) != 0) active.map.put(p, (byte) 0);
+            }
+            active.map.force();
+        }
+        nextOffset = expected;
+        durableOffset = expected;
+    }
+
+    /** Index a segment's valid records from its start; returns the offset after its last one. */
+    private long scan(Segment s, long expected) {
+        ByteBuffer buf = s.map;
+        int pos = 0;
+        while (pos + HEADER <= buf.capacity()) {
+            int length = buf.getInt(pos);
+            if (length <= 0 || pos + HEADER + length > buf.capacity()) break;
+            long offset = buf.getLong(pos + 8);
+            if (offset < expected || crc(buf, pos, length) != buf.getInt(pos + 4)) break;
+            s.indexed(offset, pos, buf.getLong(pos + 16));
+            expected = offset + 1;
+            pos += HEADER + length;
+        }
+        s.limit = pos;
+        return expected;
+    }
+
+    private static int crc(ByteBuffer buf, int pos, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.duplicate().position(pos + 8).limit(pos + HEADER + length));
+        return (int) crc.getValue();
+    }
+
+    private Path pathOf(long base) {
+        return dir.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private Segment mapWritable(long base) throws IOException {
+        Path path = pathOf(base);
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(base, path, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private static Segment mapReadOnly(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new Segment(base, path, null, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /** Append one record and return its offset. It becomes durable and readable at the next {@link #sync}. */
+    public synchronized long append(long key, long timestamp, byte[] payload) throws IOException {
+        if (payload.length == 0 || HEADER + payload.length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a segment of " + segmentSize);
+        }
+        if (active.limit + HEADER + payload.length > segmentSize) {
+            roll();
+        }
+        Segment s = active;
+        int pos = s.limit;
+        long offset = nextOffset;
+        MappedByteBuffer buf = s.map;
+        buf.putLong(pos + 8, offset);
+        buf.putLong(pos + 16, timestamp);
+        buf.putLong(pos + 24, key);
+        buf.put(pos + HEADER, payload);
+        buf.putInt(pos + 4, crc(buf, pos, payload.length));
+        // the length goes last: until it is set, a crash leaves a zero that ends the segment here
+        buf.putInt(pos, payload.length);
+        s.indexed(offset, pos, timestamp);
+        s.limit = pos + HEADER + payload.length;
+        nextOffset = offset + 1;
+        return offset;
+    }
+
+    /** Close the active segment and start the next one; the closed one is forced first. */
+    private void roll() throws IOException {
+        active.map.force();
+        active.channel.close();
+        Segment next = mapWritable(nextOffset);
+        segments.put(nextOffset, next);
+        active = next;
+    }
+
+    /** Force everything appended so far to disk and make it visible to readers. */
+    public void sync() throws IOException {
+        Segment s;
+        long end;
+        synchronized (this) {
+            s = active;
+            end = nextOffset;
+        }
+        if (end == durableOffset) return;
+        // earlier segments were forced when they were rolled
+        s.map.force();
+        synchronized (durableSignal) {
+            if (end > durableOffset) {
+                durableOffset = end;
+                durableSignal.notifyAll();
+            }
+        }
+    }
+
+    /** Offset the next record will get. */
+    public synchronized long endOffset() {
+        return nextOffset;
+    }
+
+    /** Records below this offset are on disk. */
+    public long durableOffset() {
+        return durableOffset;
+    }
+
+    /**
+     * Offsets below this were deleted by retention. Compaction leaves gaps above it but never
+     * moves it: a compacted segment keeps its file, even when no record in it survives.
+     */
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    /** Wait until the record at {@code offset} is durable; false on timeout. */
+    public boolean awaitDurable(long offset, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (durableSignal) {
+            while (durableOffset <= offset) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                durableSignal.wait(Math.max(1, left / 1_000_000));
+            }
+            return true;
+        }
+    }
+
+    /** Up to {@code max} durable records with offsets from {@code from} on, in offset order. */
+    public List<Entry> read(long from, int max) {
+        List<Entry> out = new ArrayList<>(Math.min(max, 1024));
+        long durable = durableOffset;
+        Long start = segments.floorKey(from);
+        ConcurrentNavigableMap<Long, Segment> tail = start == null ? segments : segments.tailMap(start, true);
+        for (Segment s : tail.values()) {
+            Map.Entry<Long, Integer> hint = s.index.floorEntry(from);
+            int pos = hint == null ? 0 : hint.getValue();
+            int limit = s.limit;
+            ByteBuffer buf = s.map;
+            while (pos < limit && out.size() < max) {
+                int length = buf.getInt(pos);
+                long offset = buf.getLong(pos + 8);
+                if (offset >= durable) return out;
+                if (offset >= from) {
+                    byte[] payload = new byte[length];
+                    buf.get(pos + HEADER, payload);
+                    out.add(new Entry(offset, buf.getLong(pos + 16), buf.getLong(pos + 24), payload));
+                }
+                pos += HEADER + length;
+            }
+            if (out.size() >= max) break;
+        }
+        return out;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /** Bytes of records held, not counting the unused tail of the active segment. */
+    public long sizeBytes() {
+        long n = 0;
+        for (Segment s : segments.values()) {
+            n += s.limit;
+        }
+        return n;
+    }
+
+    /**
+     * Delete closed segments, oldest first, whose newest record is older than {@code maxAge}, and
+     * then more while the log holds over {@code maxBytes}. Returns how many were deleted.
+     */
+    public int applyRetention(Duration maxAge, long maxBytes, long nowMillis) throws IOException {
+        synchronized (maintenance) {
+            int deleted = 0;
+            long size = sizeBytes();
+            for (Segment s : closedSegments()) {
+                boolean expired = s.lastOffset < 0 || s.lastTimestamp < nowMillis - maxAge.toMillis();
+                if (!expired && size <= maxBytes) break;
+                segments.remove(s.base);
+                Files.deleteIfExists(s.path);
+                size -= s.limit;
+                deleted++;
+            }
+            return deleted;
+        }
+    }
+
+    /**
+     * Rewrite closed segments without the records whose key appears again at a later durable
+     * offset anywhere in the log. A newer record that is not durable yet does not count: a crash
+     * before the next {@link #sync} would lose it and leave nothing for the key. Offsets are kept.
+     * Returns how many records were dropped.
+     */
+    public int compact() throws IOException {
+        synchronized (maintenance) {
+            List<Segment> closed = closedSegments();
+            if (closed.isEmpty()) return 0;
+
+            long durable = durableOffset;
+            Map<Long, Long> latest = new HashMap<>();
+            for (Segment s : segments.values()) {
+                forEachHeader(s, (pos, offset, key) -> {
+                    if (offset < durable) latest.put(key, offset);
+                });
+            }
+
+            int dropped = 0;
+            for (Segment s : closed) {
+                List<int[]> keep = new ArrayList<>();
+                int[] total = {0};
+                forEachHeader(s, (pos, offset, key) -> {
+                    total[0]++;
+                    if (offset >= durable || latest.get(key) == offset) {
+                        keep.add(new int[]{pos, HEADER + s.map.getInt(pos)});
+                    }
+                });
+                if (keep.size() == total[0]) continue;
+                dropped += total[0] - keep.size();
+                replace(s, keep);
+            }
+            return dropped;
+        }
+    }
+
+    private interface HeaderVisitor {
+        void visit(int pos, long offset, long key);
+    }
+
+    private static void forEachHeader(Segment s, HeaderVisitor visitor) {
+        ByteBuffer buf = s.map;
+        int limit = s.limit;
+        for (int pos = 0; pos < limit; pos += HEADER + buf.getInt(pos)) {
+            visitor.visit(pos, buf.getLong(pos + 8), buf.getLong(pos + 24));
+        }
+    }
+
+    /** Swap a closed segment for a copy holding only the records at {@code keep} (position, size). */
+    private void replace(Segment s, List<int[]> keep) throws IOException {
+        Path tmp = s.path.resolveSibling(s.path.getFileName() + ".compacting");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            for (int[] r : keep) {
+                ByteBuffer record = s.map.duplicate().position(r[0]).limit(r[0] + r[1]);
+                while (record.hasRemaining()) out.write(record);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, s.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Segment copy = mapReadOnly(s.path);
+        scan(copy, s.base);
+        segments.put(s.base, copy);
+    }
+
+    private List<Segment> closedSegments() {
+        Segment current;
+        synchronized (this) {
+            current = active;
+        }
+        List<Segment> closed = new ArrayList<>();
+        for (Segment s : segments.values()) {
+            if (s != current) closed.add(s);
+        }
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (this) {
+            active.channel.close();
+        }
+    }
+
+    /** {@link #sync} for callers that cannot throw IOException, e.g. scheduled tasks. */
+    public void syncUnchecked() {
+        try {
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.example.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression in the {@link ExprCalculate} grammar, extended with identifiers,
+ * compiled once into a flat postfix program over int slots.
+ * The program can then be evaluated against one binding, or column-at-a-time
+ * against arrays of bindings without parsing again.
+ */
+public final class CompiledFormula {
+
+    private static final byte CONST = 0;
+    private static final byte VAR = 1;
+    private static final byte ADD = 2;
+    private static final byte SUB = 3;
+    private static final byte MUL = 4;
+    private static final byte DIV = 5;
+    private static final byte NEG = 6;
+
+    // marker for '(' on the operator stack
+    private static final byte OPEN = -1;
+
+    private final byte[] ops;
+    private final int[] args;
+    private final List<String> variables;
+    private final int maxDepth;
+
+    private CompiledFormula(byte[] ops, int[] args, List<String> variables, int maxDepth) {
+        this.ops = ops;
+        this.args = args;
+        this.variables = variables;
+        this.maxDepth = maxDepth;
+    }
+
+    /** Variable names in order of first appearance; this is the slot order used by evaluate(). */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /** Operand stack slots evaluation needs; evaluateColumns() allocates this many rows-long arrays. */
+    public int stackDepth() {
+        return maxDepth;
+    }
+
+    /** Parse and compile an expression (shunting-yard, no recursion). */
+    public static CompiledFormula compile(String s) {
+        if (s == null || s.isBlank()) {
+            throw new IllegalArgumentException("expr is required");
+        }
+        List<Byte> ops = new ArrayList<>();
+        List<Integer> args = new ArrayList<>();
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        Deque<Byte> pending = new ArrayDeque<>();
+        boolean expectOperand = true;
+        int depth = 0;
+        int maxDepth = 0;
+
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (expectOperand) {
+                if (Character.isDigit(c)) {
+                    int num = 0;
+                    while (i < s.length() && Character.isDigit(s.charAt(i))) {
+                        num = num * 10 + (s.charAt(i++) - '0');
+                    }
+                    ops.add(CONST);
+                    args.add(num);
+                    maxDepth = Math.max(maxDepth, ++depth);
+                    expectOperand = false;
+                } else if (isIdentStart(c)) {
+                    int start = i;
+                    while (i < s.length() && isIdentPart(s.charAt(i))) i++;
+                    String name = s.substring(start, i);
+                    Integer slot = slots.computeIfAbsent(name, k -> slots.size());
+                    ops.add(VAR);
+                    args.add(slot);
+                    maxDepth = Math.max(maxDepth, ++depth);
+                    expectOperand = false;
+                } else if (c == '(') {
+                    pending.push(OPEN);
+                    i++;
+                } else if (c == '-') {
+                    pending.push(NEG);
+                    i++;
+                } else if (c == '+') {
+                    i++; // unary plus is a no-op
+                } else {
+                    throw new IllegalArgumentException("Invalid character: " + c);
+                }
+                continue;
+            }
+
+            byte op;
+            switch (c) {
+                case '+': op = ADD; break;
+                case '-': op = SUB; break;
+                case '*': op = MUL; break;
+                case '/': op = DIV; break;
+                case ')':
+                    while (!pending.isEmpty() && pending.peek() != OPEN) {
+                        depth = emit(pending.pop(), ops, args, depth);
+                    }
+                    if (pending.isEmpty()) {
+                        throw new IllegalArgumentException("Unbalanced parentheses");
+                    }
+                    pending.pop();
+                    i++;
+                    continue;
+                default:
+                    throw new IllegalArgumentException("Invalid character: " + c);
+            }
+            // all binary operators are left-associative; unary minus binds tightest
+            while (!pending.isEmpty() && pending.peek() != OPEN
+                    && precedence(pending.peek()) >= precedence(op)) {
+                depth = emit(pending.pop(), ops, args, depth);
+            }
+            pending.push(op);
+            expectOperand = true;
+            i++;
+        }
+
+        if (expectOperand) {
+            throw new IllegalArgumentException("Incomplete expression");
+        }
+        while (!pending.isEmpty()) {
+            byte op = pending.pop();
+            if (op == OPEN) {
+                throw new IllegalArgumentException("Unbalanced parentheses");
+            }
+            depth = emit(op, ops, args, depth);
+        }
+
+        byte[] opArr = new byte[ops.size()];
+        int[] argArr = new int[args.size()];
+        for (int k = 0; k < opArr.length; k++) {
+            opArr[k] = ops.get(k);
+            argArr[k] = args.get(k);
+        }
+        return new CompiledFormula(opArr, argArr, List.copyOf(slots.keySet()), maxDepth);
+    }
+
+    /** Evaluate against one binding; values[i] is bound to variables().get(i). */
+    public int evaluate(int[] values) {
+        checkArity(values.length);
+        int[] stack = new int[maxDepth];
+        int sp = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case CONST: stack[sp++] = args[pc]; break;
+                case VAR: stack[sp++] = values[args[pc]]; break;
+                case NEG: stack[sp - 1] = -stack[sp - 1]; break;
+                case ADD: sp--; stack[sp - 1] += stack[sp]; break;
+                case SUB: sp--; stack[sp - 1] -= stack[sp]; break;
+                case MUL: sp--; stack[sp - 1] *= stack[sp]; break;
+                default: sp--; stack[sp - 1] /= stack[sp]; break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Evaluate once per row over columnar bindings; columns[i] holds the values of variables().get(i)
+     * and all columns must have the same length. Each instruction runs as one loop over a whole
+     * column, so the per-row cost is a handful of primitive array operations.
+     */
+    public int[] evaluateColumns(int[][] columns, int rows) {
+        checkArity(columns.length);
+        for (int[] col : columns) {
+            if (col.length != rows) {
+                throw new IllegalArgumentException("All columns must have " + rows + " rows");
+            }
+        }
+        int[][] stack = new int[maxDepth][rows];
+        int sp = 0;
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case CONST: {
+                    Arrays.fill(stack[sp++], args[pc]);
+                    break;
+                }
+                case VAR: {
+                    System.arraycopy(columns[args[pc]], 0, stack[sp++], 0, rows);
+                    break;
+                }
+                case NEG: {
+                    int[] a = stack[sp - 1];
+                    for (int r = 0; r < rows; r++) a[r] = -a[r];
+                    break;
+                }
+                default: {
+                    int[] b = stack[--sp];
+                    int[] a = stack[sp - 1];
+                    switch (ops[pc]) {
+                        case ADD: for (int r = 0; r < rows; r++) a[r] += b[r]; break;
+                        case SUB: for (int r = 0; r < rows; r++) a[r] -= b[r]; break;
+                        case MUL: for (int r = 0; r < rows; r++) a[r] *= b[r]; break;
+                        default: for (int r = 0; r < rows; r++) a[r] /= b[r]; break;
+                    }
+                }
+            }
+        }
+        return stack[0];
+    }
+
+    private void checkArity(int n) {
+        if (n != variables.size()) {
+            throw new IllegalArgumentException(
+                    "Expected bindings for " + variables + " but got " + n + " value(s)");
+        }
+    }
+
+    private static int emit(byte op, List<Byte> ops, List<Integer> args, int depth) {
+        ops.add(op);
+        args.add(0);
+        return op == NEG ? depth : depth - 1;
+    }
+
+    private static int precedence(byte op) {
+        switch (op) {
+            case NEG: return 3;
+            case MUL:
+            case DIV: return 2;
+            default: return 1;
+        }
+    }
+
+    private static boolean isIdentStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isIdentPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,346 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative longs, laid out like a Roaring bitmap: values are grouped by
+ * their high 48 bits, and each group's low 16 bits are kept either as a sorted {@code char[]}
+ * (up to 4096 values, 2 bytes each) or as a 65536-bit {@code long[]} (8 KB, for denser groups).
+ * Ids handed out by one sequence land in few groups, so a set costs about 2 bytes per value
+ * and {@link #and}, {@link #or} and {@link #andNot} work a group or a 64-bit word at a time.
+ *
+ * <p>Not thread-safe; callers guard shared instances. The set operations return new bitmaps.
+ */
+public final class CompressedBitmap {
+    static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public boolean add(long value) {
+        checkValue(value);
+        long key = value >>> 16;
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertAt(i, key, new Container(new char[4], null, 0));
+        }
+        return containers[i].add((char) value);
+    }
+
+    public boolean remove(long value) {
+        if (value < 0) return false;
+        int i = indexOf(value >>> 16);
+        if (i < 0 || !containers[i].remove((char) value)) return false;
+        if (containers[i].card == 0) removeAt(i);
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value < 0) return false;
+        int i = indexOf(value >>> 16);
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public long cardinality() {
+        long n = 0;
+        for (int i = 0; i < size; i++) n += containers[i].card;
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Approximate heap footprint of the values, for metrics. */
+    public long sizeInBytes() {
+        long bytes = 16L * keys.length;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            bytes += c.bits != null ? 8L * WORDS : 2L * c.array.length;
+        }
+        return bytes;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap out = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            int cmp = Long.compare(keys[i], other.keys[j]);
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                Container c = containers[i].and(other.containers[j]);
+                if (c.card > 0) out.append(keys[i], c);
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap out = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            int cmp = i == size ? 1 : j == other.size ? -1 : Long.compare(keys[i], other.keys[j]);
+            if (cmp < 0) {
+                out.append(keys[i], containers[i].copy());
+                i++;
+            } else if (cmp > 0) {
+                out.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                out.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    /** Values in this bitmap and not in {@code other}. */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap out = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) j++;
+            Container c = j < other.size && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i].copy();
+            if (c.card > 0) out.append(keys[i], c);
+        }
+        return out;
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap out = new CompressedBitmap();
+        for (int i = 0; i < size; i++) out.append(keys[i], containers[i].copy());
+        return out;
+    }
+
+    /**
+     * Up to {@code limit} values in descending order, after skipping the {@code skip} largest.
+     * Whole groups inside the skipped range are passed over by their counts.
+     */
+    public long[] descending(long skip, int limit) {
+        long[] out = new long[(int) Math.max(0, Math.min(limit, cardinality() - skip))];
+        int n = 0;
+        for (int i = size - 1; i >= 0 && n < out.length; i--) {
+            Container c = containers[i];
+            if (skip >= c.card) {
+                skip -= c.card;
+                continue;
+            }
+            long high = keys[i] << 16;
+            if (c.bits == null) {
+                for (int k = c.card - 1 - (int) skip; k >= 0 && n < out.length; k--) {
+                    out[n++] = high | c.array[k];
+                }
+            } else {
+                for (int w = WORDS - 1; w >= 0 && n < out.length; w--) {
+                    long word = c.bits[w];
+                    while (word != 0 && n < out.length) {
+                        int bit = 63 - Long.numberOfLeadingZeros(word);
+                        word &= ~(1L << bit);
+                        if (skip > 0) {
+                            skip--;
+                        } else {
+                            out[n++] = high | ((long) w << 6 | bit);
+                        }
+                    }
+                }
+            }
+            skip = 0;
+        }
+        return out;
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value: " + value);
+    }
+
+    private int indexOf(long key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void append(long key, Container c) {
+        insertAt(size, key, c);
+    }
+
+    private void insertAt(int i, long key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /** The low 16 bits of one group: a sorted array while sparse, a bitset once dense. */
+    private static final class Container {
+        char[] array;
+        long[] bits;
+        int card;
+
+        Container(char[] array, long[] bits, int card) {
+            this.array = array;
+            this.bits = bits;
+            this.card = card;
+        }
+
+        boolean contains(char v) {
+            if (bits != null) return (bits[v >>> 6] & (1L << v)) != 0;
+            return Arrays.binarySearch(array, 0, card, v) >= 0;
+        }
+
+        boolean add(char v) {
+            if (bits != null) {
+                long before = bits[v >>> 6];
+                bits[v >>> 6] = before | (1L << v);
+                if (before == bits[v >>> 6]) return false;
+                card++;
+                return true;
+            }
+            int i = Arrays.binarySearch(array, 0, card, v);
+            if (i >= 0) return false;
+            if (card == ARRAY_MAX) {
+                toBits();
+                return add(v);
+            }
+            i = -i - 1;
+            if (card == array.length) array = Arrays.copyOf(array, Math.min(ARRAY_MAX, Math.max(4, card * 2)));
+            System.arraycopy(array, i, array, i + 1, card - i);
+            array[i] = v;
+            card++;
+            return true;
+        }
+
+        boolean remove(char v) {
+            if (bits != null) {
+                long before = bits[v >>> 6];
+                bits[v >>> 6] = before & ~(1L << v);
+                if (before == bits[v >>> 6]) return false;
+                if (--card <= ARRAY_MAX) toArray();
+                return true;
+            }
+            int i = Arrays.binarySearch(array, 0, card, v);
+            if (i < 0) return false;
+            System.arraycopy(array, i + 1, array, i, card - i - 1);
+            card--;
+            return true;
+        }
+
+        Container copy() {
+            return bits != null
+                    ? new Container(null, bits.clone(), card)
+                    : new Container(Arrays.copyOf(array, card), null, card);
+        }
+
+        Container and(Container o) {
+            if (bits != null && o.bits != null) {
+                long[] w = new long[WORDS];
+                for (int k = 0; k < WORDS; k++) w[k] = bits[k] & o.bits[k];
+                return fromBits(w);
+            }
+            Container sparse = bits == null ? this : o;
+            Container other = sparse == this ? o : this;
+            char[] out = new char[Math.min(card, o.card)];
+            int n = 0;
+            for (int k = 0; k < sparse.card; k++) {
+                if (other.contains(sparse.array[k])) out[n++] = sparse.array[k];
+            }
+            return new Container(out, null, n);
+        }
+
+        Container or(Container o) {
+            if (bits == null && o.bits == null && card + o.card <= ARRAY_MAX) {
+                char[] out = new char[card + o.card];
+                int i = 0, j = 0, n = 0;
+                while (i < card || j < o.card) {
+                    if (j == o.card || (i < card && array[i] < o.array[j])) {
+                        out[n++] = array[i++];
+                    } else if (i == card || o.array[j] < array[i]) {
+                        out[n++] = o.array[j++];
+                    } else {
+                        out[n++] = array[i++];
+                        j++;
+                    }
+                }
+                return new Container(out, null, n);
+            }
+            long[] w = bits != null ? bits.clone() : new long[WORDS];
+            if (bits == null) setAll(w, this);
+            if (o.bits != null) {
+                for (int k = 0; k < WORDS; k++) w[k] |= o.bits[k];
+            } else {
+                setAll(w, o);
+            }
+            return fromBits(w);
+        }
+
+        Container andNot(Container o) {
+            if (bits == null) {
+                char[] out = new char[card];
+                int n = 0;
+                for (int k = 0; k < card; k++) {
+                    if (!o.contains(array[k])) out[n++] = array[k];
+                }
+                return new Container(out, null, n);
+            }
+            long[] w = bits.clone();
+            if (o.bits != null) {
+                for (int k = 0; k < WORDS; k++) w[k] &= ~o.bits[k];
+            } else {
+                for (int k = 0; k < o.card; k++) w[o.array[k] >>> 6] &= ~(1L << o.array[k]);
+            }
+            return fromBits(w);
+        }
+
+        private static void setAll(long[] w, Container c) {
+            for (int k = 0; k < c.card; k++) w[c.array[k] >>> 6] |= 1L << c.array[k];
+        }
+
+        private static Container fromBits(long[] w) {
+            int n = 0;
+            for (long word : w) n += Long.bitCount(word);
+            Container c = new Container(null, w, n);
+            if (n <= ARRAY_MAX) c.toArray();
+            return c;
+        }
+
+        private void toBits() {
+            long[] w = new long[WORDS];
+            setAll(w, this);
+            bits = w;
+            array = null;
+        }
+
+        private void toArray() {
+            char[] out = new char[card];
+            int n = 0;
+            for (int k = 0; k < WORDS; k++) {
+                long word = bits[k];
+                while (word != 0) {
+                    out[n++] = (char) (k << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            array = out;
+            bits = null;
+        }
+    }
+}
@@ -1,60 +1,151 @@
 package org.example.util;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 
+/**
+ * Integer evaluator for + - * / and parentheses.
+ *
+ * <p>Evaluates in a single left-to-right scan with an explicit stack of parenthesis frames,
+ * so nesting depth is bounded by {@code maxDepth} rather than by the thread stack. Length,
+ * depth and token count are checked during that scan, and the input is never copied, so
+ * oversized or pathological input is rejected before it costs much work.
+ * Instances hold no per-call state and can be shared between threads.
+ */
 public class ExprCalculate {
-    private int index = 0;
+    public static final int DEFAULT_MAX_LENGTH = 10_000;
+    public static final int DEFAULT_MAX_DEPTH = 256;
+    public static final int DEFAULT_MAX_TOKENS = 5_000;
 
-    public int calculate(String s) {
-        index = 0;
-        return helper(s.replaceAll("\\s+", "")); // 去掉所有空白
+    private final int maxLength;
+    private final int maxDepth;
+    private final int maxTokens;
+
+    public ExprCalculate() {
+        this(DEFAULT_MAX_LENGTH, DEFAULT_MAX_DEPTH, DEFAULT_MAX_TOKENS);
     }
 
-    private int helper(String s) {
-        Deque<Integer> stack = new ArrayDeque<>();
+    public ExprCalculate(int maxLength, int maxDepth, int maxTokens) {
+        this.maxLength = maxLength;
+        this.maxDepth = maxDepth;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * @throws IllegalArgumentException on invalid characters, unbalanced parentheses,
+     *                                  a trailing operator, or any exceeded limit
+     * @throws ArithmeticException      on division by zero
+     */
+    public int calculate(String s) {
+        if (s.length() > maxLength) {
+            throw new IllegalArgumentException("Expression longer than " + maxLength + " characters");
+        }
+
+        // Each level keeps "sum of finished terms" + "current term": + and - start a new term,
+        // * and / fold into the current one, which gives them precedence.
+        int sum = 0;
+        int last = 0;
         char operator = '+';
         int num = 0;
 
-        while (index < s.length()) {
-            char c = s.charAt(index++);
+        // saved (sum, last, operator) of enclosing levels, one entry per open '('
+        int depth = 0;
+        int[] savedSum = new int[8];
+        int[] savedLast = new int[8];
+        char[] savedOp = new char[8];
 
-            if (!Character.isDigit(c) && "+-*/()".indexOf(c) == -1) {
-                throw new IllegalArgumentException("Invalid character: " + c);
-            }
+        int tokens = 0;
+        boolean inNumber = false;
+        char prev = 0; // previous non-blank char
 
-            if (Character.isDigit(c)) {
-                num = num * 10 + (c - '0');
-            }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) continue; // 去掉所有空白
 
-            if (c == '(') {
-                num = helper(s); //求子表达式
+            if (c >= '0' && c <= '9') {
+                if (!inNumber && ++tokens > maxTokens) throw tooManyTokens();
+                inNumber = true;
+                num = num * 10 + (c - '0');
+                prev = c;
+                continue;
             }
+            inNumber = false;
+            if (++tokens > maxTokens) throw tooManyTokens();
 
-            // 到达末尾或读到运算符/右括号时，根据“之前的 operator”结算当前 num
-            if (index == s.length() || "+-*/)".indexOf(c) != -1) {
-                switch (operator) {
-                    case '+': stack.push(num); break;
-                    case '-': stack.push(-num); break;
-                    case '*': stack.push(stack.pop() * num); break;
-                    case '/':
-                        stack.push(stack.pop() / num);
-                        break;
-                }
-                num = 0;
-
-                // 右括号，结束本层，
-                if (c == ')') break;
-
-                // +-*/更新 operator
-                if ("+-*/".indexOf(c) != -1) {
+            switch (c) {
+                case '(':
+                    //求子表达式: save this level and start a fresh one
+                    if (depth == maxDepth) {
+                        throw new IllegalArgumentException("Expression nested deeper than " + maxDepth + " levels");
+                    }
+                    if (depth == savedSum.length) {
+                        int n = Math.min(depth * 2, maxDepth);
+                        savedSum = Arrays.copyOf(savedSum, n);
+                        savedLast = Arrays.copyOf(savedLast, n);
+                        savedOp = Arrays.copyOf(savedOp, n);
+                    }
+                    savedSum[depth] = sum;
+                    savedLast[depth] = last;
+                    savedOp[depth] = operator;
+                    depth++;
+                    sum = 0;
+                    last = 0;
+                    operator = '+';
+                    num = 0;
+                    break;
+                case ')':
+                    // 右括号，结束本层: the level's value becomes the pending operand one level up
+                    if (depth == 0) throw new IllegalArgumentException("Unbalanced parentheses");
+                    if (operator == '+' || operator == '-') {
+                        sum += last;
+                    }
+                    last = apply(operator, last, num);
+                    num = sum + last;
+                    depth--;
+                    sum = savedSum[depth];
+                    last = savedLast[depth];
+                    operator = savedOp[depth];
+                    break;
+                case '+':
+                case '-':
+                case '*':
+                case '/':
+                    // 读到运算符时，根据“之前的 operator”结算当前 num
+                    if (operator == '+' || operator == '-') {
+                        sum += last;
+                    }
+                    last = apply(operator, last, num);
+                    num = 0;
                     operator = c;
-                }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid character: " + c);
             }
+            prev = c;
+        }
+
+        if (depth != 0) throw new IllegalArgumentException("Unbalanced parentheses");
+        if (prev == '+' || prev == '-' || prev == '*' || prev == '/') {
+            throw new IllegalArgumentException("Expression ends with an operator");
+        }
+
+        if (operator == '+' || operator == '-') {
+            sum += last;
         }
+        last = apply(operator, last, num);
+        return sum + last;
+    }
+
+    /** New current term after applying {@code op} to the pending operand. */
+    private static int apply(char op, int last, int num) {
+        switch (op) {
+            case '+': return num;
+            case '-': return -num;
+            case '*': return last * num;
+            default: return last / num;
+        }
+    }
 
-        int result = 0;
-        while (!stack.isEmpty()) result += stack.pop();
-        return result;
+    private IllegalArgumentException tooManyTokens() {
+        return new IllegalArgumentException("Expression has more than " + maxTokens + " tokens");
     }
 }
@@ -0,0 +1,106 @@
+package org.example.util;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one execution. The first caller runs the
+ * loader; callers arriving while it runs wait for it and get the same result, or the same
+ * exception. Nothing is cached: a call arriving after completion runs the loader again.
+ *
+ * <p>A waiting caller gives up after {@code maxWait} (or when interrupted, keeping the interrupt
+ * flag set) and runs the loader itself, so a stuck leader delays others by at most that long.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+
+    private final LongAdder led = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public SingleFlight(Duration maxWait) {
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            led.increment();
+            return lead(key, mine, loader);
+        }
+        try {
+            V v = running.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            shared.increment();
+            return v;
+        } catch (ExecutionException e) {
+            shared.increment();
+            throw rethrow(e.getCause());
+        } catch (TimeoutException e) {
+            abandoned.increment();
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned.increment();
+            return loader.get();
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Supplier<V> loader) {
+        V v;
+        try {
+            v = loader.get();
+        } catch (Throwable t) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(t);
+            throw t;
+        }
+        // unpublish first: a caller arriving from now on starts a fresh execution
+        inFlight.remove(key, mine);
+        mine.complete(v);
+        return v;
+    }
+
+    /**
+     * Stops new callers from joining executions whose key matches; those already waiting still
+     * get the result. Call after a write so later reads cannot share a read that began before it.
+     */
+    public void forget(Predicate<? super K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    /** Executions currently running. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /** Calls that ran the loader as leader. */
+    public long led() {
+        return led.sum();
+    }
+
+    /** Calls that got a leader's result or exception without running the loader. */
+    public long shared() {
+        return shared.sum();
+    }
+
+    /** Calls that stopped waiting for a leader (timeout or interrupt) and ran the loader themselves. */
+    public long abandoned() {
+        return abandoned.sum();
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException re) return re;
+        if (t instanceof Error err) throw err;
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets by key, spread over independent stripes.
+ *
+ * <p>Each bucket is one timestamp: the time at which it would be full again (the "theoretical
+ * arrival time" of GCRA, which admits exactly what a token bucket of the same rate and burst
+ * admits). Taking a token is one compare-and-set on that timestamp, so acquisitions never lock.
+ *
+ * <p>A bucket whose timestamp has passed is full, which is the same as not being tracked at all,
+ * so {@link #sweep} can drop it without changing any outcome. Each stripe holds at most
+ * {@code maxEntries / stripes} buckets; a key that arrives at a stripe still full after a sweep is
+ * let through untracked (counted by {@link #untracked}) rather than growing the table.
+ */
+public final class TokenBucketTable {
+
+    private static final class Bucket {
+        volatile long fullAt;
+
+        Bucket(long fullAt) {
+            this.fullAt = fullAt;
+        }
+    }
+
+    private static final AtomicLongFieldUpdater<Bucket> FULL_AT =
+            AtomicLongFieldUpdater.newUpdater(Bucket.class, "fullAt");
+
+    private static final long INLINE_SWEEP_GAP = 10_000_000L;
+
+    private final ConcurrentHashMap<String, Bucket>[] stripes;
+    private final AtomicLongArray lastSweep;
+    private final int perStripe;
+    private final LongSupplier clock;
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketTable(int stripes, int maxEntries, LongSupplier nanoClock) {
+        if (stripes <= 0 || maxEntries < stripes) {
+            throw new IllegalArgumentException("stripes must be > 0 and maxEntries >= stripes");
+        }
+        this.stripes = new ConcurrentHashMap[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.perStripe = maxEntries / stripes;
+        this.clock = nanoClock;
+        this.lastSweep = new AtomicLongArray(stripes);
+        long longAgo = nanoClock.getAsLong() - INLINE_SWEEP_GAP - 1;
+        for (int i = 0; i < stripes; i++) {
+            lastSweep.set(i, longAgo);
+        }
+    }
+
+    /**
+     * Take one token from {@code key}'s bucket, which refills at {@code ratePerSecond} and holds
+     * at most {@code burst}. Returns 0 when the token was taken, otherwise the nanoseconds until
+     * one will be available; nothing is taken in that case.
+     */
+    public long tryAcquire(String key, double ratePerSecond, int burst) {
+        long interval = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        long tolerance = interval * burst;
+        long now = clock.getAsLong();
+
+        int index = stripeOf(key);
+        Map<String, Bucket> stripe = stripes[index];
+        Bucket b = stripe.get(key);
+        if (b == null) {
+            if (stripe.size() >= perStripe) {
+                // a stripe full of busy buckets is swept at most every 10 ms, not on every new key
+                long last = lastSweep.get(index);
+                if (now - last > INLINE_SWEEP_GAP && lastSweep.compareAndSet(index, last, now)) {
+                    sweep(stripe, now);
+                }
+                if (stripe.size() >= perStripe) {
+                    untracked.increment();
+                    return 0;
+                }
+            }
+            // a fresh bucket starts full and this request takes one token
+            b = stripe.putIfAbsent(key, new Bucket(now + interval));
+            if (b == null) return 0;
+        }
+        while (true) {
+            long fullAt = b.fullAt;
+            long next = Math.max(fullAt, now) + interval;
+            if (next - now > tolerance) {
+                return next - now - tolerance;
+            }
+            if (FULL_AT.compareAndSet(b, fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** Drop buckets that have refilled completely; returns how many. */
+    public int sweep() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Map<String, Bucket> stripe : stripes) {
+            removed += sweep(stripe, now);
+        }
+        return removed;
+    }
+
+    private int sweep(Map<String, Bucket> stripe, long now) {
+        int[] removed = {0};
+        // a token taken from a bucket while it is being dropped is forgotten: the key starts over full
+        stripe.values().removeIf(b -> {
+            boolean full = b.fullAt - now <= 0;
+            if (full) removed[0]++;
+            return full;
+        });
+        evicted.add(removed[0]);
+        return removed[0];
+    }
+
+    private int stripeOf(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return Math.floorMod(h, stripes.length);
+    }
+
+    /** Buckets currently tracked. */
+    public long size() {
+        long n = 0;
+        for (Map<String, Bucket> stripe : stripes) {
+            n += stripe.size();
+        }
+        return n;
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    public long untracked() {
+        return untracked.sum();
+    }
+}
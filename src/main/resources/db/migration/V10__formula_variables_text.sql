@@ -0,0 +1,4 @@
+-- formula.variables lists every variable name of the expression, which is bounded only by
+-- calc.limits.max-length, not by 255 characters.
+
+alter table formula alter column variables set data type text;
@@ -0,0 +1,30 @@
+-- Schema as it stood before versioned migrations: what Hibernate's ddl-auto generated from the
+-- entities. Written for PostgreSQL; also runs on H2 in PostgreSQL mode for dev and tests.
+-- Existing databases already have this and are baselined at version 1 instead (see application-prod.yml),
+-- so every later change belongs in V2 and up, never here.
+
+create table app_user (
+    id            bigint generated by default as identity primary key,
+    username      varchar(255) not null unique,
+    email         varchar(255),
+    password_hash varchar(255) not null
+);
+
+create table note (
+    id         bigint generated by default as identity primary key,
+    title      varchar(255)                not null,
+    content    text,
+    owner_id   bigint                      not null,
+    created_at timestamp(6) with time zone not null,
+    constraint fk_note_owner foreign key (owner_id) references app_user (id)
+);
+
+create table calc_record (
+    id           bigint generated by default as identity primary key,
+    expr         varchar(255)                not null,
+    result       integer                     not null,
+    submitted_by varchar(100)                not null,
+    owner_id     bigint,
+    created_at   timestamp(6) with time zone not null,
+    constraint fk_calc_record_owner foreign key (owner_id) references app_user (id)
+);
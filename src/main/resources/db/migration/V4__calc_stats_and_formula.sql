@@ -0,0 +1,33 @@
+-- Tables added after the baseline. "if not exists" because a database may already have them
+-- from when ddl-auto still created the schema.
+
+-- CalcStatsService: running per-user totals, kept in step with calc_record
+create table if not exists calc_stats (
+    user_id    bigint                      not null primary key,
+    count      bigint                      not null,
+    sum        bigint                      not null,
+    min_result integer                     not null,
+    max_result integer                     not null,
+    updated_at timestamp(6) with time zone not null
+);
+
+create table if not exists calc_daily_stats (
+    id         bigint generated by default as identity primary key,
+    user_id    bigint not null,
+    bucket_day date   not null,
+    count      bigint not null,
+    sum        bigint not null,
+    constraint uk_calc_daily_stats_user_day unique (user_id, bucket_day)
+);
+
+-- FormulaService: named formulas with variables
+create table if not exists formula (
+    id         bigint generated by default as identity primary key,
+    name       varchar(100)                not null,
+    expr       text                        not null,
+    variables  varchar(255)                not null,
+    owner_id   bigint                      not null,
+    created_at timestamp(6) with time zone not null,
+    constraint uk_formula_owner_name unique (owner_id, name),
+    constraint fk_formula_owner foreign key (owner_id) references app_user (id)
+);
@@ -0,0 +1,4 @@
+-- Indexes shaped after the hot repository queries; QueryPlanTest checks they are used.
+
+-- NoteRepository.findByOwnerIdOrderByCreatedAtDescIdDesc: one owner's notes, newest first, and its count
+create index if not exists idx_note_owner_created on note (owner_id, created_at desc, id desc);
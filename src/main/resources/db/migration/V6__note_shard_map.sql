@@ -0,0 +1,8 @@
+-- Bucket -> shard assignment for notes.sharding (NoteShardMap). Filled on first start with
+-- sharding enabled; stays empty otherwise. A bucket is "moving" while its notes are copied.
+
+create table note_shard_bucket (
+    bucket int     primary key,
+    shard  int     not null,
+    moving boolean not null default false
+);
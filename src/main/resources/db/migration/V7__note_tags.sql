@@ -0,0 +1,4 @@
+-- Note tags (Note.tags): sorted, comma-separated, null when untagged. Filtering by tag is served
+-- by the in-memory NoteTagIndex, which is rebuilt from this column, so it needs no index.
+
+alter table note add column tags varchar(1000);
@@ -0,0 +1,4 @@
+-- CalcRecordRepository.findArchivable: records created before the cutoff, oldest first. A range
+-- scan of this index reads just the batch it returns; the owner-leading index cannot seek on time.
+
+create index if not exists idx_calc_record_created on calc_record (created_at, id);
@@ -0,0 +1,6 @@
+-- ROLE_ADMIN (bulk provisioning, shard and change-log admin) comes from this flag, never from the
+-- username. Only an existing admin can grant it (PUT /users/{username}/admin); grant the first
+-- one by hand:
+--   update app_user set admin = true where username = '<name>';
+
+alter table app_user add column admin boolean not null default false;
@@ -0,0 +1,12 @@
+-- Note table of one shard. Owners live in the primary database, so there is no foreign key;
+-- ${idBase} gives each shard its own id range (see NoteShardDataSources.idBase).
+
+create table note (
+    id         bigint generated by default as identity (start with ${idBase}) primary key,
+    title      varchar(255)                not null,
+    content    text,
+    owner_id   bigint                      not null,
+    created_at timestamp(6) with time zone not null
+);
+
+create index idx_note_owner_created on note (owner_id, created_at desc, id desc);
@@ -0,0 +1,3 @@
+-- Same as db/migration V7: note tags, filtered through NoteTagIndex rather than SQL.
+
+alter table note add column tags varchar(1000);
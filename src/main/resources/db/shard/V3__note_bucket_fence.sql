@@ -0,0 +1,8 @@
+-- One row per bucket (filled in by NoteShardMap.load). Writes share-lock their bucket's row in
+-- the shard transaction; a bucket move sets moving on the old shard, which waits for those writes
+-- and turns away any that come later, from whichever instance.
+
+create table note_bucket_fence (
+    bucket integer primary key,
+    moving boolean not null default false
+);
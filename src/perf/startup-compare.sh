@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Time to first request: plain jar vs the fast-startup build (Spring AOT + AppCDS + lazy init).
+# "First request" is the first 200 from POST /api/auth/register, measured from JVM launch.
+# The prod profile needs the PostgreSQL from the README; dev runs anywhere.
+#   src/perf/startup-compare.sh [profile] [runs]
+set -euo pipefail
+cd "$(dirname "$0")/../.."
+
+PROFILE=${1:-dev}
+RUNS=${2:-5}
+PORT=${PORT:-8080}
+JAR=TaskManagementService-1.0.0.jar
+MVN=(mvn -B -q -DskipTests -Dspotless.check.skip=true)
+
+"${MVN[@]}" package
+mkdir -p target/startup-baseline
+cp "target/$JAR" target/startup-baseline/
+"${MVN[@]}" -Pfast-startup -Dfast-startup.profiles="$PROFILE,faststart" package
+
+# prints "<ms to first request> <seconds Spring reported for startup>"
+measure() {
+  local log=target/startup-run.log start end
+  start=$(date +%s%N)
+  "$@" --server.port="$PORT" > "$log" 2>&1 &
+  local pid=$!
+  local user="startup$RANDOM$RANDOM"
+  until curl -sf -o /dev/null -XPOST "localhost:$PORT/api/auth/register" -H 'Content-Type: application/json' \
+      -d "{\"username\":\"$user\",\"password\":\"p\"}"; do
+    kill -0 $pid 2>/dev/null || { echo "app exited, see $log" >&2; exit 1; }
+    sleep 0.05
+  done
+  end=$(date +%s%N)
+  kill $pid; wait $pid 2>/dev/null || true
+  echo "$(( (end - start) / 1000000 )) $(sed -n 's/.*Started Main in \([0-9.]*\) seconds.*/\1/p' "$log")"
+}
+
+median() { sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : (a[NR/2] + a[NR/2+1]) / 2}'; }
+
+report() {
+  local label=$1; shift
+  local results=()
+  for _ in $(seq 1 "$RUNS"); do results+=("$(measure "$@")"); done
+  local ttfr started
+  ttfr=$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)
+  started=$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)
+  printf "%-10s first request %7s ms   (Spring 'Started' %ss)   median of %d\n" "$label" "$ttfr" "$started" "$RUNS"
+}
+
+report baseline java -jar "target/startup-baseline/$JAR" --spring.profiles.active="$PROFILE"
+report fast java -XX:SharedArchiveFile=target/fast-startup/application.jsa -Xlog:cds=error -Dspring.aot.enabled=true \
+  -jar "target/fast-startup/$JAR" --spring.profiles.active="$PROFILE,faststart"
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Compare platform-thread and virtual-thread request handling on the same build.
+# Needs a Java 21 runtime, curl and hey (https://github.com/rakyll/hey).
+#   src/perf/vthreads-compare.sh [concurrency] [requests]
+set -euo pipefail
+cd "$(dirname "$0")/../.."
+
+C=${1:-200}
+N=${2:-20000}
+PORT=${PORT:-8080}
+BASE="http://localhost:$PORT"
+JAR=target/TaskManagementService-1.0.0.jar
+
+mvn -B -q -Pjava21 package -DskipTests -Dspotless.check.skip=true
+
+run() {
+  local profiles=$1
+  java -jar "$JAR" --spring.profiles.active="$profiles" --server.port="$PORT" > "target/compare-$profiles.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null' RETURN
+  until curl -sf "$BASE/actuator/health" > /dev/null; do sleep 1; done
+
+  local json='Content-Type: application/json'
+  curl -sf -XPOST "$BASE/api/auth/register" -H "$json" -d '{"username":"bench","password":"bench"}' > /dev/null
+  local token
+  token=$(curl -sf -XPOST "$BASE/api/auth/login" -H "$json" -d '{"username":"bench","password":"bench"}' \
+    | sed 's/.*"token":"\([^"]*\)".*/\1/')
+  local auth="Authorization: Bearer $token"
+
+  # warm-up, then measure: a DB read path, a DB write path and the BCrypt-bound login
+  hey -n 2000 -c 50 -H "$auth" "$BASE/api/notes" > /dev/null
+  for target in "GET /api/notes" "POST /api/calc" "POST /api/auth/login"; do
+    local method=${target%% *} path=${target#* } args=()
+    case $path in
+      /api/calc) args=(-H "$auth" -T application/json -d '{"expr":"(1+2)*3"}') ;;
+      /api/auth/login) args=(-T application/json -d '{"username":"bench","password":"bench"}') ;;
+      *) args=(-H "$auth") ;;
+    esac
+    local n=$N
+    [[ $path == /api/auth/login ]] && n=$((N / 10))
+    hey -n "$n" -c "$C" -m "$method" "${args[@]}" "$BASE$path" \
+      | awk -v p="$profiles" -v t="$target" '/Requests\/sec/ {rps=$2} /99%/ {p99=$3} END {printf "%-14s %-22s %10s req/s  p99 %ss\n", p, t, rps, p99}'
+  done
+  grep -c "Virtual thread pinned" "target/compare-$profiles.log" | sed "s/^/$profiles pinned-thread warnings: /" || true
+}
+
+run dev
+run dev,vthreads
@@ -0,0 +1,85 @@
+package org.example.auth;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    @DisplayName("defaultMaxConcurrent(): one fewer than the cores, at least one")
+    void defaultPermits() {
+        assertThat(BoundedPasswordEncoder.defaultMaxConcurrent(1)).isEqualTo(1);
+        assertThat(BoundedPasswordEncoder.defaultMaxConcurrent(2)).isEqualTo(1);
+        assertThat(BoundedPasswordEncoder.defaultMaxConcurrent(8)).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("with every permit hashing, other work still gets a carrier and extra hashes wait")
+    void otherWorkRunsWhileAllPermitsHash() throws Exception {
+        // a fixed pool stands in for the virtual-thread carriers (one per core)
+        int carriers = 4;
+        int permits = BoundedPasswordEncoder.defaultMaxConcurrent(carriers);
+        CountDownLatch allHashing = new CountDownLatch(permits);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                allHashing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inside.decrementAndGet();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                return encode(raw).equals(encoded);
+            }
+        };
+        var encoder = new BoundedPasswordEncoder(slow, permits);
+        ExecutorService carrierPool = Executors.newFixedThreadPool(carriers);
+        try {
+            List<CompletableFuture<String>> hashes = new ArrayList<>();
+            for (int i = 0; i < permits; i++) {
+                hashes.add(CompletableFuture.supplyAsync(() -> encoder.encode("pw"), carrierPool));
+            }
+            assertThat(allHashing.await(5, TimeUnit.SECONDS)).isTrue();
+            // later logins park on the semaphore (unmounted on virtual threads), not on a carrier
+            for (int i = 0; i < 3; i++) {
+                hashes.add(CompletableFuture.supplyAsync(() -> encoder.encode("pw")));
+            }
+
+            CompletableFuture<String> request = CompletableFuture.supplyAsync(() -> "served", carrierPool);
+            assertThat(request.get(5, TimeUnit.SECONDS)).isEqualTo("served");
+            assertThat(inside.get()).isEqualTo(permits);
+
+            release.countDown();
+            for (CompletableFuture<String> hash : hashes) {
+                assertThat(hash.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+            }
+            assertThat(maxInside.get()).isEqualTo(permits);
+        } finally {
+            release.countDown();
+            carrierPool.shutdownNow();
+        }
+    }
+}
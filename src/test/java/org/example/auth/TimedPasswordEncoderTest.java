@@ -0,0 +1,25 @@
+package org.example.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TimedPasswordEncoderTest {
+
+    @Test
+    @DisplayName("encode()/matches(): delegate and record one timing each, tagged by op")
+    void recordsPerOperation() {
+        var registry = new SimpleMeterRegistry();
+        var encoder = new TimedPasswordEncoder(new BCryptPasswordEncoder(4), registry);
+
+        String hash = encoder.encode("secret");
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+
+        assertThat(registry.get("auth.password").tag("op", "encode").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.password").tag("op", "matches").timer().count()).isEqualTo(2);
+    }
+}
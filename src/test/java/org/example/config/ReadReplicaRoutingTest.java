@@ -0,0 +1,117 @@
+package org.example.config;
+
+import org.example.service.NoteService;
+import org.example.service.NoteTagIndex;
+import org.example.service.UserService;
+import org.example.service.UsernameAvailabilityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Routing against two H2 databases. Nothing replicates unless {@link #replicate()} runs,
+ * so a read that reaches the replica sees its stale copy.
+ */
+@SpringBootTest
+@ActiveProfiles({"dev", "replica"})
+class ReadReplicaRoutingTest {
+
+    @Autowired UserService userService;
+    @Autowired NoteService noteService;
+    @Autowired ReadYourWrites readYourWrites;
+    @Autowired @Qualifier("primaryDataSource") DataSource primary;
+    @Autowired @Qualifier("replicaDataSource") DataSource replica;
+
+    // their startup warm-ups are read-only scans, which would hit the still empty replica
+    @MockBean UsernameAvailabilityService availability;
+    @MockBean NoteTagIndex tagIndex;
+
+    private final AtomicLong now = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        readYourWrites.setClock(now::get);
+        copy(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.setClock(System::nanoTime);
+        SecurityContextHolder.clearContext();
+    }
+
+    /** Replace the replica with the primary's schema, and its rows when {@code data} is set. */
+    private void copy(boolean data) {
+        List<String> script = new JdbcTemplate(primary).queryForList(data ? "SCRIPT" : "SCRIPT NODATA", String.class);
+        JdbcTemplate target = new JdbcTemplate(replica);
+        target.execute("DROP ALL OBJECTS");
+        script.forEach(target::execute);
+    }
+
+    private void replicate() {
+        copy(true);
+    }
+
+    private void loginAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private void windowPasses() {
+        now.addAndGet(10_000_000_000L);
+    }
+
+    @Test
+    void readsFollowWritesUntilTheWindowPasses() {
+        userService.register("emma", "emma@example.com", "pw");
+        loginAs("emma");
+
+        // just registered: read-only work stays on the primary
+        assertThat(noteService.listMyNotes("emma", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+
+        // window over, replica has not caught up: the read goes there and does not find her
+        windowPasses();
+        assertThatThrownBy(() -> noteService.listMyNotes("emma", PageRequest.of(0, 10)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("User not found");
+
+        replicate();
+        assertThat(noteService.listMyNotes("emma", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void ownWriteIsVisibleWhileOthersReadTheReplica() {
+        userService.register("tim", "tim@example.com", "pw");
+        userService.register("luke", "luke@example.com", "pw");
+        windowPasses();
+        replicate();
+
+        loginAs("tim");
+        Long id = noteService.create("tim", "fresh", "c").getId();
+        assertThat(noteService.getOne("tim", id).getTitle()).isEqualTo("fresh");
+
+        // luke has not written: his read-only work is on the replica
+        loginAs("luke");
+        assertThat(noteService.listMyNotes("luke", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+        new JdbcTemplate(replica).update("delete from note");
+        assertThat(noteService.listMyNotes("luke", PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+}
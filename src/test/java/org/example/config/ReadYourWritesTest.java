@@ -0,0 +1,78 @@
+package org.example.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final ReadYourWrites ryw = new ReadYourWrites(Duration.ofNanos(100));
+
+    {
+        ryw.setClock(now::get);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(ryw);
+    }
+
+    @Test
+    void writeIsRecentUntilTheWindowPasses() {
+        ryw.recordWrite("emma");
+
+        now.addAndGet(99);
+        assertThat(ryw.recentlyWrote("emma")).isTrue();
+        assertThat(ryw.recentlyWrote("bob")).isFalse();
+        now.addAndGet(1);
+        assertThat(ryw.recentlyWrote("emma")).isFalse();
+    }
+
+    @Test
+    void anonymousIsNeverTracked() {
+        ryw.recordWrite(null);
+        ryw.recordOnCommit(null);
+
+        assertThat(ryw.recentlyWrote(null)).isFalse();
+    }
+
+    @Test
+    void recordOnCommit_waitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        ryw.recordOnCommit("emma");
+        ryw.recordOnCommit("tim");
+        ryw.recordOnCommit("emma");
+
+        assertThat(ryw.recentlyWrote("emma")).isFalse();
+        var syncs = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(syncs).hasSize(1);
+
+        syncs.forEach(TransactionSynchronization::afterCommit);
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(ryw.recentlyWrote("emma")).isTrue();
+        assertThat(ryw.recentlyWrote("tim")).isTrue();
+        assertThat(TransactionSynchronizationManager.hasResource(ryw)).isFalse();
+    }
+
+    @Test
+    void recordOnCommit_rollbackRecordsNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        ryw.recordOnCommit("emma");
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(ryw.recentlyWrote("emma")).isFalse();
+    }
+}
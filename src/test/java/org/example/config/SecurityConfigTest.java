@@ -0,0 +1,33 @@
+package org.example.config;
+
+import org.example.model.AppUser;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SecurityConfigTest {
+
+    @Test
+    @DisplayName("userDetailsService: ROLE_ADMIN comes from the stored flag, not the username")
+    void adminRoleFromFlag() {
+        UserRepository users = mock(UserRepository.class);
+        AppUser admin = new AppUser("admin", "a@example.com", "x");
+        AppUser flagged = new AppUser("emma", "e@example.com", "x");
+        flagged.setAdmin(true);
+        when(users.findByUsername("admin")).thenReturn(Optional.of(admin));
+        when(users.findByUsername("emma")).thenReturn(Optional.of(flagged));
+        UserDetailsService uds = new SecurityConfig().userDetailsService(users);
+
+        assertThat(uds.loadUserByUsername("admin").getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        assertThat(uds.loadUserByUsername("emma").getAuthorities())
+                .extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    }
+}
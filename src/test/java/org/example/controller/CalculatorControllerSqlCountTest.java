@@ -0,0 +1,99 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.debug.SqlCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins how many SQL statements each calc endpoint issues, JWT user lookup included
+ * (1 statement on every authenticated request).
+ * A failure here means a change added (or removed) queries on that path; update the
+ * number only if the new count is intended.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"dev", "sqlcount"})
+class CalculatorControllerSqlCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String auth;
+
+    @BeforeEach
+    void registerAndLogin() throws Exception {
+        String username = "sql-" + UUID.randomUUID();
+        String creds = "{\"username\":\"" + username + "\",\"password\":\"pw\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(creds))
+                .andExpect(status().isOk());
+        String body = mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(creds))
+                .andReturn().getResponse().getContentAsString();
+        auth = "Bearer " + objectMapper.readTree(body).get("token").asText();
+    }
+
+    private void calculate(String expr) throws Exception {
+        mvc.perform(post("/api/calc").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expr\":\"" + expr + "\"}"))
+                .andExpect(status().isOk());
+    }
+
+
+    @Test
+    @DisplayName("POST /api/calc: first write also creates (insert-if-absent, then lock) and seeds stats; a new expression is interned")
+    void create_first() throws Exception {
+        // unique text, so the expression is never already cached by an earlier test
+        String expr = "1+" + System.nanoTime() % 1_000_000;
+        mvc.perform(post("/api/calc").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expr\":\"" + expr + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(14));
+    }
+
+    @Test
+    @DisplayName("POST /api/calc: steady state is user + 2 stats locks + insert + 2 stats updates")
+    void create_steadyState() throws Exception {
+        calculate("1+2");
+        mvc.perform(post("/api/calc").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expr\":\"1+2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(7));
+    }
+
+    @Test
+    @DisplayName("GET /api/calc/history: JWT user + one keyset query with owner and expression fetched")
+    void history() throws Exception {
+        calculate("1+2");
+        calculate("3*4");
+        mvc.perform(get("/api/calc/history").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(2));
+    }
+
+    @Test
+    @DisplayName("GET /api/calc/stats: JWT user + owner + histogram + totals")
+    void stats() throws Exception {
+        calculate("1+2");
+        mvc.perform(get("/api/calc/stats").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(4));
+    }
+}
@@ -1,8 +1,12 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.model.CalcRecord;
+import org.example.service.CalcArchiveService;
+import org.example.service.CalcStatsService;
 import org.example.service.CalculatorService;
+import org.example.service.ReadCoalescer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,21 +19,30 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -40,6 +53,12 @@ class CalculatorControllerStandaloneTest {
     @Mock
     private CalculatorService calculatorService;
 
+    @Mock
+    private CalcStatsService calcStatsService;
+
+    @Mock
+    private CalcArchiveService calcArchiveService;
+
     private MockMvc mockMvc;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -63,7 +82,8 @@ class CalculatorControllerStandaloneTest {
 
     @BeforeEach
     void setup() {
-        var controller = new CalculatorController(calculatorService);
+        var controller = new CalculatorController(calculatorService, calcStatsService, calcArchiveService,
+                new ReadCoalescer(true, Duration.ofSeconds(1), new SimpleMeterRegistry()));
         mockMvc = MockMvcBuilders.standaloneSetup(controller)
                 .setCustomArgumentResolvers(new TestAuthenticationPrincipalResolver())
                 .build();
@@ -101,18 +121,61 @@ class CalculatorControllerStandaloneTest {
         var r = new CalcRecord("2*5", 10, "Tim", null);
         r.setId(99L);
         r.setCreatedAt(Instant.now());
-        given(calculatorService.history(eq("Tim"))).willReturn(List.of(r));
+        given(calculatorService.history(eq("Tim"), eq("abc"), eq(5)))
+                .willReturn(new CalculatorService.HistoryPage(List.of(r), "next"));
 
         mockMvc.perform(get("/api/calc/history")
+                        .param("cursor", "abc")
+                        .param("limit", "5")
                         .header("X-Test-User", "Tim"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id", is(99)))
-                .andExpect(jsonPath("$[0].expr", is("2*5")))
-                .andExpect(jsonPath("$[0].result", is(10)))
-                .andExpect(jsonPath("$[0].submittedBy", is("Tim")));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(99)))
+                .andExpect(jsonPath("$.items[0].expr", is("2*5")))
+                .andExpect(jsonPath("$.items[0].result", is(10)))
+                .andExpect(jsonPath("$.items[0].submittedBy", is("Tim")))
+                .andExpect(jsonPath("$.nextCursor", is("next")));
+
+        verify(calculatorService).history(eq("Tim"), eq("abc"), eq(5));
+    }
+
+    @Test
+    @DisplayName("GET /api/calc/stats: returns the user's aggregates and histogram")
+    void stats_ok() throws Exception {
+        var stats = new CalcStatsService.Stats(2, 10, 3, 7, 5.0,
+                List.of(new CalcStatsService.DayBucket(LocalDate.of(2024, 1, 1), 2, 10)));
+        given(calcStatsService.stats(eq("Tim"), eq(7))).willReturn(stats);
+
+        mockMvc.perform(get("/api/calc/stats")
+                        .param("days", "7")
+                        .header("X-Test-User", "Tim"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.mean", is(5.0)))
+                .andExpect(jsonPath("$.histogram", hasSize(1)))
+                .andExpect(jsonPath("$.histogram[0].count", is(2)));
+    }
 
-        verify(calculatorService).history(eq("Tim"));
+    @Test
+    @DisplayName("GET /api/calc/history/archive: streams the user's archived records as NDJSON")
+    void archive_ok() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(3);
+            out.write("{\"id\":1,\"expr\":\"1+1\",\"result\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(calcArchiveService).stream(eq("Tim"), eq(YearMonth.of(2023, 1)), eq(YearMonth.of(2023, 6)), any());
+
+        MvcResult started = mockMvc.perform(get("/api/calc/history/archive")
+                        .param("from", "2023-01")
+                        .param("to", "2023-06")
+                        .header("X-Test-User", "Tim"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"expr\":\"1+1\",\"result\":2}\n"));
     }
 }
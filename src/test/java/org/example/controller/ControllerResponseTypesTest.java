@@ -0,0 +1,60 @@
+package org.example.controller;
+
+import jakarta.persistence.Entity;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Responses are DTOs: no handler may return a JPA entity or a Spring Data Page, at any nesting level. */
+class ControllerResponseTypesTest {
+
+    @Test
+    void handlersNeverReturnEntitiesOrPages() throws Exception {
+        var scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(RestController.class));
+
+        List<String> offenders = new ArrayList<>();
+        int handlers = 0;
+        for (var candidate : scanner.findCandidateComponents("org.example")) {
+            Class<?> type = ClassUtils.forName(candidate.getBeanClassName(), getClass().getClassLoader());
+            for (Method m : type.getDeclaredMethods()) {
+                if (!AnnotatedElementUtils.hasAnnotation(m, RequestMapping.class)) continue;
+                handlers++;
+                if (leaks(ResolvableType.forMethodReturnType(m), 0)) {
+                    offenders.add(type.getSimpleName() + "." + m.getName() + " -> " + m.getGenericReturnType());
+                }
+            }
+        }
+
+        assertThat(handlers).isGreaterThan(10);
+        assertThat(offenders).isEmpty();
+    }
+
+    private static boolean leaks(ResolvableType t, int depth) {
+        Class<?> raw = t.resolve();
+        if (raw == null || depth > 5) return false;
+        if (raw.isAnnotationPresent(Entity.class) || Page.class.isAssignableFrom(raw)) return true;
+        if (raw.isArray()) return leaks(t.getComponentType(), depth + 1);
+        for (ResolvableType g : t.getGenerics()) {
+            if (leaks(g, depth + 1)) return true;
+        }
+        if (raw.isRecord()) {
+            for (var c : raw.getRecordComponents()) {
+                if (leaks(ResolvableType.forMethodReturnType(c.getAccessor(), raw).as(c.getType()), depth + 1)) return true;
+            }
+        }
+        return false;
+    }
+}
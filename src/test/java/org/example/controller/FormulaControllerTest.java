@@ -0,0 +1,89 @@
+package org.example.controller;
+
+import org.example.model.Formula;
+import org.example.service.FormulaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class FormulaControllerStandaloneTest {
+
+    @Mock
+    private FormulaService formulaService;
+
+    private MockMvc mockMvc;
+
+    private static class TestAuthenticationPrincipalResolver implements HandlerMethodArgumentResolver {
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return parameter.hasParameterAnnotation(AuthenticationPrincipal.class)
+                    && UserDetails.class.isAssignableFrom(parameter.getParameterType());
+        }
+        @Override
+        public Object resolveArgument(MethodParameter parameter,
+                                      ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest,
+                                      WebDataBinderFactory binderFactory) {
+            return User.withUsername("Tim").password("N/A").roles("USER").build();
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new FormulaController(formulaService))
+                .setCustomArgumentResolvers(new TestAuthenticationPrincipalResolver())
+                .build();
+    }
+
+    @Test
+    @DisplayName("POST /api/calc/formulas: saves a named formula")
+    void save_ok() throws Exception {
+        given(formulaService.save("Tim", "total", "price*qty"))
+                .willReturn(new Formula("total", "price*qty", "price,qty", null));
+
+        mockMvc.perform(post("/api/calc/formulas")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"total\",\"expr\":\"price*qty\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("total")))
+                .andExpect(jsonPath("$.variables", is("price,qty")));
+    }
+
+    @Test
+    @DisplayName("POST /api/calc/formulas/{name}/eval-bulk: returns one result per row")
+    void evalBulk_ok() throws Exception {
+        given(formulaService.evaluateColumns(eq("Tim"), eq("total"),
+                argThat((Map<String, int[]> m) -> m.get("price").length == 2)))
+                .willReturn(new int[] {10, 20});
+
+        mockMvc.perform(post("/api/calc/formulas/total/eval-bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"columns\":{\"price\":[1,2],\"qty\":[10,10]}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", contains(10, 20)));
+    }
+}
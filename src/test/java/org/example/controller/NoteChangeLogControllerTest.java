@@ -0,0 +1,82 @@
+package org.example.controller;
+
+import org.example.util.ChangeLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class NoteChangeLogControllerStandaloneTest {
+
+    @TempDir
+    Path dir;
+
+    private ChangeLog changeLog;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setup() throws Exception {
+        changeLog = ChangeLog.open(dir, 256);
+        mvc = MockMvcBuilders.standaloneSetup(new NoteChangeLogController(changeLog)).build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        changeLog.close();
+    }
+
+    private void append(long noteId, String op) throws Exception {
+        changeLog.append(noteId, 0, ("{\"op\":\"" + op + "\",\"noteId\":" + noteId + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("GET /api/admin/note-changes: durable changes as NDJSON with the offset to continue from")
+    void tail_ok() throws Exception {
+        append(5, "CREATE");
+        append(5, "UPDATE");
+        append(6, "CREATE");
+        changeLog.sync();
+
+        mvc.perform(get("/api/admin/note-changes").param("from", "1").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Offset", "3"))
+                .andExpect(content().string(
+                        "{\"offset\":1,\"change\":{\"op\":\"UPDATE\",\"noteId\":5}}\n"
+                                + "{\"offset\":2,\"change\":{\"op\":\"CREATE\",\"noteId\":6}}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /api/admin/note-changes: nothing new yet returns an empty body and the same offset")
+    void tail_empty() throws Exception {
+        append(5, "CREATE");
+
+        // appended but not synced: not visible yet
+        mvc.perform(get("/api/admin/note-changes").param("from", "0").param("waitMs", "20"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Offset", "0"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("GET /api/admin/note-changes: 410 for offsets removed by retention")
+    void tail_gone() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            append(i, "CREATE-" + "x".repeat(40));
+        }
+        changeLog.sync();
+        changeLog.applyRetention(Duration.ZERO, 0, System.currentTimeMillis());
+
+        mvc.perform(get("/api/admin/note-changes").param("from", "0"))
+                .andExpect(status().isGone());
+    }
+}
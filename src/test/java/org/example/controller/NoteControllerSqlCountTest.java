@@ -0,0 +1,129 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.debug.SqlCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins how many SQL statements each notes endpoint issues, JWT user lookup included
+ * (1 statement on every authenticated request).
+ * A failure here means a change added (or removed) queries on that path; update the
+ * number only if the new count is intended.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"dev", "sqlcount"})
+class NoteControllerSqlCountTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String auth;
+
+    @BeforeEach
+    void registerAndLogin() throws Exception {
+        String username = "sql-" + UUID.randomUUID();
+        String creds = "{\"username\":\"" + username + "\",\"password\":\"pw\"}";
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).content(creds))
+                .andExpect(status().isOk());
+        String body = mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(creds))
+                .andReturn().getResponse().getContentAsString();
+        auth = "Bearer " + objectMapper.readTree(body).get("token").asText();
+    }
+
+    private long createNote() throws Exception {
+        String body = mvc.perform(post("/api/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"t\",\"content\":\"c\"}"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    @Test
+    @DisplayName("GET /api/notes: JWT user + owner lookup + page query")
+    void list() throws Exception {
+        mvc.perform(get("/api/notes").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(3));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?tags=: JWT user + owner lookup + the page's notes by id (the tag index filters)")
+    void listTagged() throws Exception {
+        mvc.perform(post("/api/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"t\",\"content\":\"c\",\"tags\":[\"Work\",\"urgent\"]}"))
+                .andExpect(status().isOk());
+        createNote();
+
+        mvc.perform(get("/api/notes").param("tags", "work").param("not", "done").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.items[0].tags[0]").value("urgent"))
+                .andExpect(SqlCount.statements(3));
+    }
+
+    @Test
+    @DisplayName("POST /api/notes: JWT user + owner lookup + insert")
+    void create() throws Exception {
+        mvc.perform(post("/api/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"t\",\"content\":\"c\"}"))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(3));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{id}: JWT user + owner lookup + note by id")
+    void getOne() throws Exception {
+        long id = createNote();
+        mvc.perform(get("/api/notes/" + id).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(3));
+    }
+
+    @Test
+    @DisplayName("PUT /api/notes/{id}: JWT user + owner lookup + note by id + update")
+    void update() throws Exception {
+        long id = createNote();
+        mvc.perform(put("/api/notes/" + id).header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"t2\",\"content\":\"c2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(4));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/notes/{id}: JWT user + owner lookup + note by id + delete")
+    void deleteNote() throws Exception {
+        long id = createNote();
+        mvc.perform(delete("/api/notes/" + id).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(SqlCount.statements(4));
+    }
+
+    @Test
+    @DisplayName("dev profile: the count is also returned as X-SQL-Count")
+    void header_inDev() throws Exception {
+        mvc.perform(get("/api/notes").header("Authorization", auth))
+                .andExpect(header().string("X-SQL-Count", "3"));
+    }
+}
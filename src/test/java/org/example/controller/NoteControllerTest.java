@@ -3,7 +3,9 @@ package org.example.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.model.AppUser;
 import org.example.model.Note;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.service.NoteService;
+import org.example.service.ReadCoalescer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -24,12 +26,15 @@ import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.server.ResponseStatusException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -77,7 +82,8 @@ class NoteControllerStandaloneTest {
     void setup() {
         openMocks(this);
         objectMapper = new ObjectMapper();
-        NoteController controller = new NoteController(noteService);
+        NoteController controller = new NoteController(noteService,
+                new ReadCoalescer(true, Duration.ofSeconds(1), new SimpleMeterRegistry()));
         mvc = MockMvcBuilders.standaloneSetup(controller)
                 .setCustomArgumentResolvers(new TestAuthenticationPrincipalResolver())
                 .build();
@@ -113,11 +119,14 @@ class NoteControllerStandaloneTest {
         mvc.perform(get("/api/notes").header("X-Test-User", "emma"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.content", hasSize(1)))
-                .andExpect(jsonPath("$.content[0].title", is("A")))
-                .andExpect(jsonPath("$.content[0].content", is("a")))
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].title", is("A")))
+                .andExpect(jsonPath("$.items[0].content", is("a")))
+                .andExpect(jsonPath("$.items[0].owner").doesNotExist())
                 .andExpect(jsonPath("$.size", is(10)))
-                .andExpect(jsonPath("$.number", is(0)));
+                .andExpect(jsonPath("$.page", is(0)))
+                .andExpect(jsonPath("$.totalElements", is(1)))
+                .andExpect(jsonPath("$.pageable").doesNotExist());
 
         verify(noteService).listMyNotes(eq("emma"), eq(expected));
     }
@@ -139,20 +148,46 @@ class NoteControllerStandaloneTest {
                         .param("size", "5")
                         .header("X-Test-User", "emma"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.content[0].title", is("B")))
+                .andExpect(jsonPath("$.items[0].title", is("B")))
                 .andExpect(jsonPath("$.size", is(5)))
-                .andExpect(jsonPath("$.number", is(2)));
+                .andExpect(jsonPath("$.page", is(2)))
+                .andExpect(jsonPath("$.totalPages", is(3)));
 
         verify(noteService).listMyNotes(eq("emma"), eq(expected));
     }
 
+    // --- GET /api/notes?tags=&any=&not= ---
+    @Test
+    @DisplayName("GET /api/notes with tag params should list through the tag filter")
+    void list_withTags_shouldUseTagFilter() throws Exception {
+        PageRequest expected = PageRequest.of(0, 10);
+        var tagged = note(11L, "T", "t", "emma");
+        tagged.setTags(Set.of("work", "urgent"));
+        given(noteService.listMyNotesTagged(eq("emma"), eq(List.of("work", "urgent")), eq(List.of("a", "b")),
+                eq(List.of("done")), eq(expected)))
+                .willReturn(new PageImpl<>(List.of(tagged), expected, 1));
+
+        mvc.perform(get("/api/notes")
+                        .param("tags", "work,urgent")
+                        .param("any", "a,b")
+                        .param("not", "done")
+                        .header("X-Test-User", "emma"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].tags", hasSize(2)))
+                .andExpect(jsonPath("$.totalElements", is(1)));
+
+        verify(noteService, never()).listMyNotes(anyString(), any());
+    }
+
     // --- POST /api/notes ---
     @Test
     @DisplayName("POST /api/notes should create and return the note")
     void create_shouldCreateNote() throws Exception {
-        var body = new NoteController.UpsertNote("Trip", "Pack");
+        var body = new NoteController.UpsertNote("Trip", "Pack", List.of("travel"));
         var created = note(42L, "Trip", "Pack", "emma");
-        given(noteService.create(eq("emma"), eq("Trip"), eq("Pack"))).willReturn(created);
+        created.setTags(Set.of("travel"));
+        given(noteService.create(eq("emma"), eq("Trip"), eq("Pack"), eq(List.of("travel")))).willReturn(created);
 
         mvc.perform(post("/api/notes")
                         .header("X-Test-User", "emma")
@@ -161,9 +196,10 @@ class NoteControllerStandaloneTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.title", is("Trip")))
-                .andExpect(jsonPath("$.content", is("Pack")));
+                .andExpect(jsonPath("$.content", is("Pack")))
+                .andExpect(jsonPath("$.tags[0]", is("travel")));
 
-        verify(noteService).create(eq("emma"), eq("Trip"), eq("Pack"));
+        verify(noteService).create(eq("emma"), eq("Trip"), eq("Pack"), eq(List.of("travel")));
     }
 
     // --- GET /api/notes/{id} ---
@@ -195,9 +231,9 @@ class NoteControllerStandaloneTest {
     @Test
     @DisplayName("PUT /api/notes/{id} should update and return the note")
     void update_shouldUpdateNote() throws Exception {
-        var body = new NoteController.UpsertNote("New", "NewC");
+        var body = new NoteController.UpsertNote("New", "NewC", null);
         var updated = note(7L, "New", "NewC", "emma");
-        given(noteService.update(eq("emma"), eq(7L), eq("New"), eq("NewC"))).willReturn(updated);
+        given(noteService.update(eq("emma"), eq(7L), eq("New"), eq("NewC"), isNull())).willReturn(updated);
 
         mvc.perform(put("/api/notes/7")
                         .header("X-Test-User", "emma")
@@ -207,14 +243,14 @@ class NoteControllerStandaloneTest {
                 .andExpect(jsonPath("$.title", is("New")))
                 .andExpect(jsonPath("$.content", is("NewC")));
 
-        verify(noteService).update(eq("emma"), eq(7L), eq("New"), eq("NewC"));
+        verify(noteService).update(eq("emma"), eq(7L), eq("New"), eq("NewC"), isNull());
     }
 
     @Test
     @DisplayName("PUT /api/notes/{id} should return 404 when service throws not found")
     void update_shouldPropagate404() throws Exception {
-        var body = new NoteController.UpsertNote("X", "Y");
-        given(noteService.update(eq("emma"), eq(77L), anyString(), anyString()))
+        var body = new NoteController.UpsertNote("X", "Y", null);
+        given(noteService.update(eq("emma"), eq(77L), anyString(), anyString(), any()))
                 .willThrow(new ResponseStatusException(org.springframework.http.HttpStatus.NOT_FOUND, "Note not found"));
 
         mvc.perform(put("/api/notes/77")
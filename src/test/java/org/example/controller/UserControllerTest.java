@@ -2,6 +2,8 @@ package org.example.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.model.AppUser;
+import org.example.model.UserSummary;
+import org.example.service.UserProvisioningService;
 import org.example.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,16 +13,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -31,13 +39,16 @@ class UserControllerStandaloneTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private UserProvisioningService provisioning;
+
     private MockMvc mvc;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     void setup() {
-        mvc = MockMvcBuilders.standaloneSetup(new UserController(userService)).build();
+        mvc = MockMvcBuilders.standaloneSetup(new UserController(userService, provisioning)).build();
     }
 
     @Test
@@ -64,22 +75,57 @@ class UserControllerStandaloneTest {
     }
 
     @Test
-    @DisplayName("GET /users: returns all users")
-    void getAllUsers_ok() throws Exception {
-        var u1 = new AppUser("Tim", "Tim@example.com", "123");
-        u1.setId(1L);
-        var u2 = new AppUser("Luke", "Luke@example.com", "456");
-        u2.setId(2L);
-
-        given(userService.getAllUsers()).willReturn(List.of(u1, u2));
+    @DisplayName("GET /users: returns a page of users without password hashes")
+    void listUsers_ok() throws Exception {
+        given(userService.listUsers(eq(5L), eq(2))).willReturn(new UserService.UserPage(List.of(
+                new UserSummary(6L, "Tim", "Tim@example.com"),
+                new UserSummary(7L, "Luke", "Luke@example.com")), 7L));
 
-        mvc.perform(get("/users"))
+        mvc.perform(get("/users").param("after", "5").param("limit", "2"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].username", is("Tim")))
-                .andExpect(jsonPath("$[1].email", is("Luke@example.com")));
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].username", is("Tim")))
+                .andExpect(jsonPath("$.items[1].email", is("Luke@example.com")))
+                .andExpect(jsonPath("$.items[0].passwordHash").doesNotExist())
+                .andExpect(jsonPath("$.nextAfter", is(7)));
 
-        verify(userService).getAllUsers();
+        verify(userService).listUsers(5L, 2);
+    }
+
+    @Test
+    @DisplayName("GET /users/export: streams users as NDJSON")
+    void exportUsers_ok() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(0);
+            out.write("{\"id\":1,\"username\":\"Tim\",\"email\":null}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(userService).exportUsers(any());
+
+        MvcResult started = mvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"username\":\"Tim\",\"email\":null}\n"));
+    }
+
+    @Test
+    @DisplayName("POST /users/bulk: CSV body is provisioned and per-row results returned")
+    void bulkCreate_csv() throws Exception {
+        given(provisioning.provision(any(), eq(UserProvisioningService.Format.CSV)))
+                .willReturn(new UserProvisioningService.Report(1, 1, List.of(
+                        new UserProvisioningService.RowResult(2, "Tim", true, null),
+                        new UserProvisioningService.RowResult(3, "Luke", false, "Username already taken"))));
+
+        mvc.perform(post("/users/bulk")
+                        .contentType("text/csv")
+                        .content("username,email,password\nTim,t@x.io,pw\nLuke,l@x.io,pw\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.results[1].error", is("Username already taken")));
     }
 }
@@ -0,0 +1,36 @@
+package org.example.debug;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MockMvc matchers over the statement count recorded by {@link SqlCountFilter}, for pinning
+ * how many SQL statements an endpoint issues:
+ * {@code mvc.perform(get("/api/notes")).andExpect(SqlCount.statements(3))}.
+ * Needs the real filter chain (full context with MockMvc filters enabled).
+ */
+public final class SqlCount {
+
+    private SqlCount() {
+    }
+
+    public static ResultMatcher statements(int expected) {
+        return result -> assertThat(count(result)).as(describe(result)).isEqualTo(expected);
+    }
+
+    public static ResultMatcher atMost(int max) {
+        return result -> assertThat(count(result)).as(describe(result)).isLessThanOrEqualTo(max);
+    }
+
+    public static int count(MvcResult result) {
+        Object n = result.getRequest().getAttribute(SqlCountFilter.ATTRIBUTE);
+        assertThat(n).as("SqlCountFilter did not run for this request").isNotNull();
+        return (Integer) n;
+    }
+
+    private static String describe(MvcResult result) {
+        return "SQL statements for " + result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+    }
+}
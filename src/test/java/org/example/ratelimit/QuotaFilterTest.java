@@ -0,0 +1,91 @@
+package org.example.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.util.TokenBucketTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QuotaFilterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private QuotaFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new QuotaFilter(new TokenBucketTable(4, 100, now::get), Map.of(
+                "notes", new QuotaProperties.Limit(List.of("/api/notes"), 0.5, 2),
+                "calc", new QuotaProperties.Limit(List.of("/api/calc"), 0.5, 1)), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void loginAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private MockHttpServletResponse get(String path) throws Exception {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", path), response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    @DisplayName("over the quota: 429 with Retry-After in whole seconds, counted per class")
+    void rejectsOverQuota() throws Exception {
+        loginAs("tim");
+        assertThat(get("/api/notes").getStatus()).isEqualTo(200);
+        assertThat(get("/api/notes/7").getStatus()).isEqualTo(200);
+
+        var rejected = get("/api/notes");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(rejected.getContentAsString()).contains("Quota for notes");
+        assertThat(registry.get("api.quota.rejected").tag("class", "notes").counter().count()).isEqualTo(1);
+        assertThat(registry.get("api.quota.rejected").tag("class", "calc").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("quotas are per user and per endpoint class")
+    void separateBuckets() throws Exception {
+        loginAs("tim");
+        assertThat(get("/api/calc").getStatus()).isEqualTo(200);
+        assertThat(get("/api/calc/formulas/f/evaluate").getStatus()).isEqualTo(429);
+        assertThat(get("/api/notes").getStatus()).isEqualTo(200);
+
+        loginAs("luke");
+        assertThat(get("/api/calc").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("anonymous requests and paths outside every class are not limited")
+    void passesUnmetered() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(get("/api/notes").getStatus()).isEqualTo(200);
+        }
+        loginAs("tim");
+        for (int i = 0; i < 5; i++) {
+            assertThat(get("/api/notesx").getStatus()).isEqualTo(200);
+            assertThat(get("/users").getStatus()).isEqualTo(200);
+        }
+    }
+}
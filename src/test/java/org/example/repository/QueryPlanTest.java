@@ -0,0 +1,155 @@
+package org.example.repository;
+
+import org.example.debug.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Runs the hot repository queries, takes the SQL Hibernate actually generated for them, and
+ * checks H2's EXPLAIN output names the index the migrations created for that query shape.
+ * A failure means a query or an index changed so that the query now scans; fix the query, or
+ * add a migration with an index that matches it.
+ */
+@SpringBootTest
+@ActiveProfiles({"dev", "queryplan"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final int USERS = 50;
+    private static final int NOTES_PER_USER = 40;
+    private static final int RECORDS_PER_USER = 100;
+
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private NoteRepository notes;
+    @Autowired private CalcRecordRepository records;
+    @Autowired private CalcExpressionRepository expressions;
+    @Autowired private UserRepository users;
+    @Autowired private FormulaRepository formulas;
+
+    private long ownerId;
+
+    @BeforeAll
+    void seed() {
+        // H2 gives every foreign key its own index, which PostgreSQL does not; without them the
+        // planner here only sees the indexes the migrations create, as on PostgreSQL.
+        jdbc.queryForList("select table_name, constraint_name from information_schema.table_constraints "
+                        + "where constraint_type = 'FOREIGN KEY'")
+                .forEach(fk -> jdbc.execute("alter table " + fk.get("table_name")
+                        + " drop constraint " + fk.get("constraint_name")));
+
+        jdbc.update("insert into app_user (username, email, password_hash) "
+                + "select 'plan-' || x, 'plan-' || x || '@example.com', 'x' from system_range(1, ?) t(x)", USERS);
+        ownerId = jdbc.queryForObject("select id from app_user where username = 'plan-1'", Long.class);
+        jdbc.update("insert into note (title, content, owner_id, created_at) "
+                + "select 'n' || x, 'c', u.id, current_timestamp - x * interval '1' minute "
+                + "from app_user u cross join system_range(1, ?) t(x)", NOTES_PER_USER);
+        jdbc.update("insert into calc_expression (content_hash, expr_text) "
+                + "select lpad(cast(x as varchar), 64, '0'), x || '+1' from system_range(1, 100) t(x)");
+        jdbc.update("insert into calc_record (expression_id, result, owner_id, created_at) "
+                + "select (select min(id) from calc_expression), x, u.id, current_timestamp - x * interval '1' day "
+                + "from app_user u cross join system_range(1, ?) t(x)", RECORDS_PER_USER);
+        jdbc.update("insert into formula (name, expr, variables, owner_id, created_at) "
+                + "select 'f' || x, 'a+b', 'a,b', u.id, current_timestamp from app_user u cross join system_range(1, 5) t(x)");
+        jdbc.execute("analyze");
+    }
+
+    @Test
+    @DisplayName("notes list page and its count use idx_note_owner_created")
+    void notesPage() {
+        List<String> sql = capture(() -> notes.findByOwnerIdOrderByCreatedAtDescIdDesc(ownerId, PageRequest.of(1, 10)));
+
+        assertThat(explain(only(sql, "note", false))).contains("idx_note_owner_created");
+        assertThat(explain(only(sql, "note", true))).contains("idx_note_owner_created");
+    }
+
+    @Test
+    @DisplayName("note by id and owner uses the primary key")
+    void noteById() {
+        List<String> sql = capture(() -> notes.findByIdAndOwnerId(1L, ownerId));
+
+        assertThat(explain(only(sql, "note", false))).containsIgnoringCase("primary_key");
+    }
+
+    @Test
+    @DisplayName("calc history pages use uk_app_user_username, then idx_calc_record_owner_created")
+    void calcHistory() {
+        List<String> first = capture(() -> records.findHistory("plan-1", Limit.of(20)));
+        List<String> next = capture(() -> records.findHistoryAfter("plan-1", Instant.now(), Long.MAX_VALUE, Limit.of(20)));
+
+        for (String plan : List.of(explain(only(first, "calc_record", false)), explain(only(next, "calc_record", false)))) {
+            assertThat(plan).contains("uk_app_user_username").contains("idx_calc_record_owner_created");
+        }
+    }
+
+    @Test
+    @DisplayName("archive batch: ids from a sorted range scan of idx_calc_record_created, then rows by primary key")
+    void archivable() {
+        List<String> sql = capture(() -> records.findArchivable(Instant.now().minusSeconds(86400L * 90), Limit.of(100)));
+
+        assertThat(sql).hasSize(2);
+        // bounded: a range on created_at, read in ORDER BY order, so the scan ends at the limit
+        assertThat(explain(sql.get(0)))
+                .contains("idx_calc_record_created: created_at < ?1")
+                .contains("index sorted")
+                .doesNotContain("tableScan");
+        assertThat(explain(sql.get(1)))
+                .containsPattern("\\bcalc_record\" \"\\w+\"\\s+/\\* public\\.PRIMARY_KEY_\\w+: id IN\\(")
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("user, expression and formula lookups use their unique constraints")
+    void uniqueLookups() {
+        assertThat(explain(only(capture(() -> users.findByUsername("plan-7")), "app_user", false)))
+                .contains("uk_app_user_username");
+        assertThat(explain(only(capture(() -> expressions.findIdByHash("0".repeat(64))), "calc_expression", false)))
+                .contains("uk_calc_expression_hash");
+        assertThat(explain(only(capture(() -> formulas.findByOwnerIdOrderByNameAsc(ownerId)), "formula", false)))
+                .contains("uk_formula_owner_name");
+    }
+
+    @Test
+    @DisplayName("EXPLAIN reports a table scan when no index matches, so the checks above can fail")
+    void scanIsVisible() {
+        assertThat(explain("select n.id from note n where n.title = ?")).contains("tableScan");
+    }
+
+    private static List<String> capture(Runnable repositoryCall) {
+        SqlStatementCounter.startCapturing();
+        try {
+            repositoryCall.run();
+            return SqlStatementCounter.captured();
+        } finally {
+            SqlStatementCounter.stop();
+        }
+    }
+
+    /** The one captured select from {@code table}: the count query, or the row query. */
+    private static String only(List<String> sql, String table, boolean count) {
+        Pattern from = Pattern.compile("\\bfrom\\s+" + table + "\\b", Pattern.CASE_INSENSITIVE);
+        List<String> matches = sql.stream()
+                .filter(s -> from.matcher(s).find())
+                .filter(s -> s.toLowerCase().startsWith("select count(") == count)
+                .toList();
+        assertThat(matches).as("%s queries on %s in %s", count ? "count" : "select", table, sql).hasSize(1);
+        return matches.get(0);
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbc.queryForList("explain " + sql, String.class));
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * A database that predates migrations has exactly the V1 schema, is baselined at version 1 (as in
+ * application-prod.yml) and must end up with the same schema as a fresh one, data carried over.
+ */
+class SchemaMigrationTest {
+
+    @Test
+    @DisplayName("baselined pre-migration database gets V2+ and its data is carried over")
+    void baselinedDatabaseIsMigrated() throws Exception {
+        DataSource ds = h2();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(ds);
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.update("insert into app_user (username, email, password_hash) values ('alice', 'a@example.com', 'x')");
+        jdbc.update("insert into app_user (username, email, password_hash) values ('bob', 'b@example.com', 'x')");
+        long alice = jdbc.queryForObject("select id from app_user where username = 'alice'", Long.class);
+        long bob = jdbc.queryForObject("select id from app_user where username = 'bob'", Long.class);
+        String insert = "insert into calc_record (expr, result, submitted_by, owner_id, created_at)"
+                + " values (?, ?, ?, ?, current_timestamp)";
+        jdbc.update(insert, "1+1", 2, "alice", alice);
+        jdbc.update(insert, "1+1", 2, "bob", null);
+        jdbc.update(insert, "2*3", 6, "alice", null);
+
+        Flyway.configure().dataSource(ds).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+        assertThat(jdbc.queryForList("select content_hash, expr_text from calc_expression order by expr_text"))
+                .containsExactly(
+                        Map.of("content_hash", sha256("1+1"), "expr_text", "1+1"),
+                        Map.of("content_hash", sha256("2*3"), "expr_text", "2*3"));
+        assertThat(jdbc.queryForList("select e.expr_text, r.owner_id from calc_record r"
+                        + " join calc_expression e on e.id = r.expression_id order by r.id"))
+                .containsExactly(
+                        Map.of("expr_text", "1+1", "owner_id", alice),
+                        Map.of("expr_text", "1+1", "owner_id", bob),
+                        Map.of("expr_text", "2*3", "owner_id", alice));
+        assertThat(columns(jdbc, "calc_record")).doesNotContain("expr", "submitted_by");
+
+        assertThatThrownBy(() -> jdbc.update(
+                "insert into app_user (username, email, password_hash) values ('alice', 'c@example.com', 'x')"))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("uk_app_user_username");
+        assertThatThrownBy(() -> jdbc.update(
+                "insert into app_user (username, email, password_hash) values ('carol', 'a@example.com', 'x')"))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("uk_app_user_email");
+    }
+
+    @Test
+    @DisplayName("baselined and fresh databases end up with the same tables and columns")
+    void baselinedMatchesFresh() {
+        DataSource baselined = h2();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(baselined);
+        Flyway.configure().dataSource(baselined).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+        DataSource fresh = h2();
+        Flyway.configure().dataSource(fresh).load().migrate();
+
+        assertThat(schema(new JdbcTemplate(baselined))).isEqualTo(schema(new JdbcTemplate(fresh)));
+    }
+
+    private static DataSource h2() {
+        return new DriverManagerDataSource("jdbc:h2:mem:migration-" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static List<String> columns(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForList("select column_name from information_schema.columns"
+                + " where table_schema = current_schema and table_name = ?", String.class, table);
+    }
+
+    private static List<Map<String, Object>> schema(JdbcTemplate jdbc) {
+        return jdbc.queryForList("select table_name, column_name, data_type, is_nullable"
+                + " from information_schema.columns"
+                + " where table_schema = current_schema and table_name <> 'flyway_schema_history'"
+                + " order by table_name, column_name");
+    }
+
+    private static String sha256(String text) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.model.AppUser;
+import org.example.model.CalcExpression;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalcArchiveServiceTest {
+
+    @Mock
+    private CalcRecordRepository calcRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CalcStatsService calcStatsService;
+
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private AppUser owner;
+    private CalcArchiveService archive;
+
+    @BeforeEach
+    void setUp() {
+        owner = new AppUser();
+        owner.setId(1L);
+        owner.setUsername("Tim");
+        archive = new CalcArchiveService(calcRecordRepository, userRepository, calcStatsService,
+                mapper, txManager, dir.toString(), 30, 2, 10);
+        archive.setClock(Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    private CalcRecord record(long id, String expr, int result, String at) {
+        CalcRecord r = new CalcRecord(expr, result, "Tim", owner);
+        r.setId(id);
+        r.setExpression(new CalcExpression(CalcExpressionService.hash(expr), expr));
+        r.setCreatedAt(Instant.parse(at));
+        return r;
+    }
+
+    private String streamAll() throws Exception {
+        var out = new ByteArrayOutputStream();
+        archive.stream("Tim", null, null, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("archiveExpired(): writes monthly segments, deletes the rows, and batches until a short batch")
+    void archive_movesRowsToSegments() throws Exception {
+        var jan1 = record(1, "1+1", 2, "2024-01-05T10:00:00Z");
+        var jan2 = record(2, "2*3", 6, "2024-01-20T10:00:00Z");
+        var feb = record(3, "9-4", 5, "2024-02-02T10:00:00Z");
+        when(calcRecordRepository.findArchivable(eq(Instant.parse("2024-05-02T00:00:00Z")), eq(Limit.of(2))))
+                .thenReturn(List.of(jan1, jan2), List.of(feb));
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+
+        int moved = archive.archiveExpired();
+
+        assertThat(moved).isEqualTo(3);
+        verify(calcRecordRepository).deleteAllInBatch(List.of(jan1, jan2));
+        verify(calcRecordRepository).deleteAllInBatch(List.of(feb));
+        verify(calcStatsService, times(2)).ensureSeeded(owner);
+        assertThat(Files.exists(dir.resolve("1").resolve("2024-01.ndjson.gz"))).isTrue();
+        assertThat(Files.exists(dir.resolve("1").resolve("2024-02.ndjson.gz"))).isTrue();
+
+        assertThat(streamAll().lines().toList()).containsExactly(
+                "{\"id\":1,\"expr\":\"1+1\",\"result\":2,\"createdAt\":\"2024-01-05T10:00:00Z\"}",
+                "{\"id\":2,\"expr\":\"2*3\",\"result\":6,\"createdAt\":\"2024-01-20T10:00:00Z\"}",
+                "{\"id\":3,\"expr\":\"9-4\",\"result\":5,\"createdAt\":\"2024-02-02T10:00:00Z\"}");
+    }
+
+    @Test
+    @DisplayName("archiveExpired(): a record archived twice after a crash is streamed once")
+    void archive_duplicateAfterRetry_streamedOnce() throws Exception {
+        var r = record(7, "1+2", 3, "2024-03-01T00:00:00Z");
+        when(calcRecordRepository.findArchivable(any(), any())).thenReturn(List.of(r), List.of(r), List.of());
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+
+        archive.archiveExpired();
+        archive.archiveExpired();
+
+        assertThat(streamAll().lines()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("archiveExpired(): nothing is deleted when there is nothing old enough")
+    void archive_nothingToDo() {
+        when(calcRecordRepository.findArchivable(any(), any())).thenReturn(List.of());
+
+        assertThat(archive.archiveExpired()).isZero();
+        verify(calcRecordRepository, never()).deleteAllInBatch(any());
+    }
+
+    @Test
+    @DisplayName("stream(): only months inside [from, to] are returned")
+    void stream_monthRange() throws Exception {
+        when(calcRecordRepository.findArchivable(any(), any()))
+                .thenReturn(List.of(record(1, "1", 1, "2024-01-01T00:00:00Z"), record(2, "2", 2, "2024-03-01T00:00:00Z")),
+                        List.of());
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        archive.archiveExpired();
+
+        var out = new ByteArrayOutputStream();
+        archive.stream("Tim", YearMonth.of(2024, 2), YearMonth.of(2024, 3), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("{\"id\":2,").doesNotContain("\"id\":1,");
+    }
+
+    @Test
+    @DisplayName("stream(): from after to is rejected with 400")
+    void stream_badRange() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+
+        assertThatThrownBy(() -> archive.stream("Tim", YearMonth.of(2024, 5), YearMonth.of(2024, 1),
+                new ByteArrayOutputStream()))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
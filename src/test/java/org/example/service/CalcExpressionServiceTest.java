@@ -0,0 +1,66 @@
+package org.example.service;
+
+import org.example.model.CalcExpression;
+import org.example.repository.CalcExpressionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalcExpressionServiceTest {
+
+    @Mock
+    private CalcExpressionRepository expressionRepository;
+
+    private CalcExpressionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CalcExpressionService(expressionRepository, 2);
+    }
+
+    @Test
+    @DisplayName("hash(): hex SHA-256 of the UTF-8 text")
+    void hash_sha256() {
+        assertThat(CalcExpressionService.hash("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    @DisplayName("intern(): inserts on first use and serves repeats from the cache")
+    void intern_cachesId() {
+        String hash = CalcExpressionService.hash("1+1");
+        CalcExpression ref = new CalcExpression(hash, "1+1");
+        when(expressionRepository.findIdByHash(hash)).thenReturn(Optional.of(5L));
+        when(expressionRepository.getReferenceById(5L)).thenReturn(ref);
+
+        assertThat(service.intern("1+1")).isSameAs(ref);
+        assertThat(service.intern("1+1")).isSameAs(ref);
+
+        verify(expressionRepository, times(1)).insertIfAbsent(hash, "1+1");
+        verify(expressionRepository, times(1)).findIdByHash(hash);
+    }
+
+    @Test
+    @DisplayName("intern(): cache is bounded and evicts least recently used texts")
+    void intern_evicts() {
+        when(expressionRepository.findIdByHash(anyString())).thenReturn(Optional.of(1L), Optional.of(2L),
+                Optional.of(3L), Optional.of(1L));
+
+        service.intern("a");
+        service.intern("b");
+        service.intern("c"); // evicts "a"
+        service.intern("a");
+
+        verify(expressionRepository, times(2)).insertIfAbsent(CalcExpressionService.hash("a"), "a");
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** First calculations racing to create a user's calc_stats and today's calc_daily_stats rows. */
+@SpringBootTest
+@ActiveProfiles("dev")
+class CalcStatsConcurrencyTest {
+
+    @Autowired UserService userService;
+    @Autowired CalculatorService calculatorService;
+    @Autowired CalcStatsService statsService;
+
+    @Test
+    @DisplayName("concurrent first calculations of a user all succeed and are all counted")
+    void concurrentFirstCalculations() throws Exception {
+        String username = "stats-" + UUID.randomUUID();
+        userService.register(username, username + "@example.com", "pw");
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                calls.add(pool.submit(() -> {
+                    start.await();
+                    return calculatorService.create(username, n + "+1");
+                }));
+            }
+            start.countDown();
+            for (Future<?> call : calls) call.get(); // rethrows a failed insert
+        } finally {
+            pool.shutdownNow();
+        }
+
+        CalcStatsService.Stats stats = statsService.stats(username, 1);
+        assertThat(stats.count()).isEqualTo(threads);
+        assertThat(stats.sum()).isEqualTo(threads * (threads + 1) / 2);
+        assertThat(stats.histogram()).singleElement()
+                .satisfies(day -> {
+                    assertThat(day.day()).isEqualTo(LocalDate.now(ZoneOffset.UTC));
+                    assertThat(day.count()).isEqualTo(threads);
+                });
+    }
+}
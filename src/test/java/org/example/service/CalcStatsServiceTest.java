@@ -0,0 +1,160 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.CalcDailyStats;
+import org.example.model.CalcStats;
+import org.example.repository.CalcDailyStatsRepository;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.CalcStatsRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CalcStatsServiceTest {
+
+    @Mock
+    private CalcStatsRepository statsRepository;
+
+    @Mock
+    private CalcDailyStatsRepository dailyRepository;
+
+    @Mock
+    private CalcRecordRepository calcRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private CalcStatsService statsService;
+
+    private AppUser owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new AppUser();
+        owner.setId(1L);
+        owner.setUsername("Tim");
+    }
+
+    @Test
+    @DisplayName("record(): folds a result into existing aggregates and its day bucket")
+    void record_existing() {
+        Instant at = Instant.parse("2024-03-01T10:00:00Z");
+        CalcStats stats = new CalcStats(1L);
+        stats.add(2, 10, 2, 8);
+        CalcDailyStats bucket = new CalcDailyStats(1L, LocalDate.of(2024, 3, 1));
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.of(stats));
+        when(dailyRepository.findForUpdate(1L, LocalDate.of(2024, 3, 1))).thenReturn(Optional.of(bucket));
+
+        statsService.record(owner, -4, at);
+
+        assertThat(stats.getCount()).isEqualTo(3);
+        assertThat(stats.getSum()).isEqualTo(6);
+        assertThat(stats.getMinResult()).isEqualTo(-4);
+        assertThat(stats.getMaxResult()).isEqualTo(8);
+        assertThat(bucket.getCount()).isEqualTo(1);
+        assertThat(bucket.getSum()).isEqualTo(-4);
+        verifyNoInteractions(calcRecordRepository);
+    }
+
+    @Test
+    @DisplayName("record(): seeds aggregates from existing history on a user's first write")
+    void record_seedsOnce() {
+        var agg = mock(CalcRecordRepository.DailyAggregate.class);
+        when(agg.getDay()).thenReturn(LocalDate.of(2024, 2, 1));
+        when(agg.getCount()).thenReturn(4L);
+        when(agg.getSum()).thenReturn(20L);
+        when(agg.getMinResult()).thenReturn(1);
+        when(agg.getMaxResult()).thenReturn(9);
+        CalcStats created = new CalcStats(1L);
+        LocalDate feb = LocalDate.of(2024, 2, 1);
+        LocalDate mar = LocalDate.of(2024, 3, 1);
+        CalcDailyStats febBucket = new CalcDailyStats(1L, feb);
+        CalcDailyStats marBucket = new CalcDailyStats(1L, mar);
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.empty(), Optional.of(created));
+        when(statsRepository.insertIfAbsent(1L)).thenReturn(1);
+        when(calcRecordRepository.aggregateByDay(1L)).thenReturn(List.of(agg));
+        when(dailyRepository.findForUpdate(1L, feb)).thenReturn(Optional.empty(), Optional.of(febBucket));
+        when(dailyRepository.findForUpdate(1L, mar)).thenReturn(Optional.empty(), Optional.of(marBucket));
+
+        statsService.record(owner, 10, Instant.parse("2024-03-01T10:00:00Z"));
+
+        assertThat(created.getCount()).isEqualTo(5);
+        assertThat(created.getSum()).isEqualTo(30);
+        assertThat(created.getMinResult()).isEqualTo(1);
+        assertThat(created.getMaxResult()).isEqualTo(10);
+        assertThat(febBucket.getCount()).isEqualTo(4);
+        assertThat(marBucket.getSum()).isEqualTo(10);
+        verify(dailyRepository).insertIfAbsent(1L, feb);
+        verify(dailyRepository).insertIfAbsent(1L, mar);
+    }
+
+    @Test
+    @DisplayName("record(): a concurrent first write that lost the insert does not seed again")
+    void record_lostInsertDoesNotSeed() {
+        CalcStats theirs = new CalcStats(1L);
+        theirs.add(3, 6, 1, 3);
+        CalcDailyStats bucket = new CalcDailyStats(1L, LocalDate.of(2024, 3, 1));
+        when(statsRepository.findForUpdate(1L)).thenReturn(Optional.empty(), Optional.of(theirs));
+        when(statsRepository.insertIfAbsent(1L)).thenReturn(0);
+        when(dailyRepository.findForUpdate(1L, LocalDate.of(2024, 3, 1))).thenReturn(Optional.of(bucket));
+
+        statsService.record(owner, 4, Instant.parse("2024-03-01T10:00:00Z"));
+
+        assertThat(theirs.getCount()).isEqualTo(4);
+        verifyNoInteractions(calcRecordRepository);
+    }
+
+    @Test
+    @DisplayName("stats(): returns mean and histogram without touching calc_record")
+    void stats_ok() {
+        CalcStats stats = new CalcStats(1L);
+        stats.add(4, 10, -1, 6);
+        CalcDailyStats bucket = new CalcDailyStats(1L, LocalDate.now(ZoneOffset.UTC));
+        bucket.add(4, 10);
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(statsRepository.findById(1L)).thenReturn(Optional.of(stats));
+        when(dailyRepository.findByUserIdAndDayGreaterThanEqualOrderByDayAsc(eq(1L), any()))
+                .thenReturn(List.of(bucket));
+
+        CalcStatsService.Stats result = statsService.stats("Tim", 30);
+
+        assertThat(result.count()).isEqualTo(4);
+        assertThat(result.mean()).isEqualTo(2.5);
+        assertThat(result.min()).isEqualTo(-1);
+        assertThat(result.max()).isEqualTo(6);
+        assertThat(result.histogram()).hasSize(1);
+        verifyNoInteractions(calcRecordRepository);
+    }
+
+    @Test
+    @DisplayName("stats(): a user without calculations gets zero count and null min/max/mean")
+    void stats_empty() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(statsRepository.findById(1L)).thenReturn(Optional.empty());
+        when(dailyRepository.findByUserIdAndDayGreaterThanEqualOrderByDayAsc(eq(1L), any())).thenReturn(List.of());
+
+        CalcStatsService.Stats result = statsService.stats("Tim", 30);
+
+        assertThat(result.count()).isZero();
+        assertThat(result.mean()).isNull();
+        assertThat(result.min()).isNull();
+    }
+}
@@ -3,7 +3,6 @@ package org.example.service;
 import org.example.model.AppUser;
 import org.example.model.CalcRecord;
 import org.example.repository.CalcRecordRepository;
-import org.example.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -30,7 +30,7 @@ class CalculatorServiceTest {
     private CalcRecordRepository calcRecordRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private CalcRecordWriter calcRecordWriter;
 
     @InjectMocks
     private CalculatorService calculatorService;
@@ -52,13 +52,11 @@ class CalculatorServiceTest {
     }
 
     @Test
-    @DisplayName("create(): should evaluate expression, bind user, persist and return")
+    @DisplayName("create(): should evaluate expression and hand the result to the writer")
     void create_ok() {
-        when(userRepository.findByUsername(eq("Tim"))).thenReturn(Optional.of(owner));
-        when(calcRecordRepository.save(any(CalcRecord.class))).thenAnswer(inv -> {
-            CalcRecord r = inv.getArgument(0);
+        when(calcRecordWriter.write(eq("Tim"), eq("1+2*3"), eq(7))).thenAnswer(inv -> {
+            CalcRecord r = new CalcRecord(inv.getArgument(1), inv.getArgument(2), inv.getArgument(0), owner);
             r.setId(100L);
-            r.setCreatedAt(Instant.now());
             return r;
         });
 
@@ -68,8 +66,7 @@ class CalculatorServiceTest {
         assertThat(saved.getExpr()).isEqualTo("1+2*3");
         assertThat(saved.getResult()).isEqualTo(7);
         assertThat(saved.getSubmittedBy()).isEqualTo("Tim");
-        verify(userRepository).findByUsername("Tim");
-        verify(calcRecordRepository).save(any(CalcRecord.class));
+        verify(calcRecordWriter).write("Tim", "1+2*3", 7);
     }
 
     @Test
@@ -79,33 +76,82 @@ class CalculatorServiceTest {
                 .isInstanceOf(IllegalArgumentException.class);
         assertThatThrownBy(() -> calculatorService.create("Tim", null))
                 .isInstanceOf(IllegalArgumentException.class);
-        verifyNoInteractions(calcRecordRepository);
+        verifyNoInteractions(calcRecordRepository, calcRecordWriter);
     }
 
     @Test
-    @DisplayName("create(): should throw 404 when user not found")
-    void create_user_not_found() {
-        when(userRepository.findByUsername(eq("ghost"))).thenReturn(Optional.empty());
-
-        assertThatThrownBy(() -> calculatorService.create("ghost", "1+1"))
-                .isInstanceOf(ResponseStatusException.class)
-                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
-                .isEqualTo(HttpStatus.NOT_FOUND);
-
-        verify(calcRecordRepository, never()).save(any());
+    @DisplayName("create(): should reject malformed or over-limit expressions with 400")
+    void create_invalid_expr() {
+        for (String expr : new String[] {"1+", "(".repeat(10_000) + "1", "1/0", "2^3"}) {
+            assertThatThrownBy(() -> calculatorService.create("Tim", expr))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                    .isEqualTo(HttpStatus.BAD_REQUEST);
+        }
+        verifyNoInteractions(calcRecordWriter);
     }
 
     @Test
-    @DisplayName("history(): should return records ordered by createdAt desc for submitter")
+    @DisplayName("history(): first page returns newest records and no cursor when exhausted")
     void history_ok() {
-        when(calcRecordRepository.findBySubmittedByOrderByCreatedAtDesc(eq("Tim")))
+        when(calcRecordRepository.findHistory(eq("Tim"), eq(Limit.of(21))))
                 .thenReturn(List.of(new CalcRecord("2*5", 10, "Tim", owner)));
 
-        List<CalcRecord> list = calculatorService.history("Tim");
+        CalculatorService.HistoryPage page = calculatorService.history("Tim", null, null);
+
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.items().get(0).getExpr()).isEqualTo("2*5");
+        assertThat(page.items().get(0).getResult()).isEqualTo(10);
+        assertThat(page.nextCursor()).isNull();
+        verify(calcRecordRepository).findHistory("Tim", Limit.of(21));
+    }
+
+    @Test
+    @DisplayName("history(): cursor of a full page resumes after its last record")
+    void history_keyset() {
+        Instant t = Instant.parse("2024-01-01T00:00:00.123456Z");
+        CalcRecord a = record(3L, t.plusSeconds(2));
+        CalcRecord b = record(2L, t);
+        CalcRecord extra = record(1L, t.minusSeconds(1));
+        when(calcRecordRepository.findHistory(eq("Tim"), eq(Limit.of(3))))
+                .thenReturn(List.of(a, b, extra));
+        when(calcRecordRepository.findHistoryAfter(eq("Tim"), eq(t), eq(2L), eq(Limit.of(3))))
+                .thenReturn(List.of(extra));
+
+        CalculatorService.HistoryPage first = calculatorService.history("Tim", null, 2);
+        assertThat(first.items()).containsExactly(a, b);
+        assertThat(first.nextCursor()).isNotBlank();
+
+        CalculatorService.HistoryPage second = calculatorService.history("Tim", first.nextCursor(), 2);
+        assertThat(second.items()).containsExactly(extra);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("history(): limit is capped server-side")
+    void history_limitCapped() {
+        when(calcRecordRepository.findHistory(eq("Tim"), any(Limit.class)))
+                .thenReturn(List.of());
+
+        calculatorService.history("Tim", null, 1_000_000);
+
+        verify(calcRecordRepository).findHistory("Tim", Limit.of(101));
+    }
+
+    @Test
+    @DisplayName("history(): malformed cursor is rejected with 400")
+    void history_badCursor() {
+        assertThatThrownBy(() -> calculatorService.history("Tim", "not-a-cursor", 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(calcRecordRepository);
+    }
 
-        assertThat(list).hasSize(1);
-        assertThat(list.get(0).getExpr()).isEqualTo("2*5");
-        assertThat(list.get(0).getResult()).isEqualTo(10);
-        verify(calcRecordRepository).findBySubmittedByOrderByCreatedAtDesc("Tim");
+    private CalcRecord record(Long id, Instant createdAt) {
+        CalcRecord r = new CalcRecord("1+1", 2, "Tim", owner);
+        r.setId(id);
+        r.setCreatedAt(createdAt);
+        return r;
     }
 }
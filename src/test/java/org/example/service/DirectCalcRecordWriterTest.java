@@ -0,0 +1,88 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.CalcExpression;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectCalcRecordWriterTest {
+
+    @Mock
+    private CalcRecordRepository calcRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CalcStatsService calcStatsService;
+
+    @Mock
+    private CalcExpressionService calcExpressionService;
+
+    @InjectMocks
+    private DirectCalcRecordWriter writer;
+
+    private AppUser owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new AppUser();
+        owner.setId(1L);
+        owner.setUsername("Tim");
+    }
+
+    @Test
+    @DisplayName("write(): should bind user, update stats, persist and return")
+    void write_ok() {
+        CalcExpression expression = new CalcExpression("h", "1+2*3");
+        when(userRepository.findByUsername(eq("Tim"))).thenReturn(Optional.of(owner));
+        when(calcExpressionService.intern("1+2*3")).thenReturn(expression);
+        when(calcRecordRepository.save(any(CalcRecord.class))).thenAnswer(inv -> {
+            CalcRecord r = inv.getArgument(0);
+            r.setId(100L);
+            return r;
+        });
+
+        CalcRecord saved = writer.write("Tim", "1+2*3", 7);
+
+        assertThat(saved.getId()).isEqualTo(100L);
+        assertThat(saved.getOwner()).isSameAs(owner);
+        assertThat(saved.getExpression()).isSameAs(expression);
+        assertThat(saved.getSubmittedBy()).isEqualTo("Tim");
+        verify(calcStatsService).record(eq(owner), eq(7), any(Instant.class));
+        verify(calcRecordRepository).save(any(CalcRecord.class));
+    }
+
+    @Test
+    @DisplayName("write(): should throw 404 when user not found")
+    void write_user_not_found() {
+        when(userRepository.findByUsername(eq("ghost"))).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> writer.write("ghost", "1+1", 2))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        verify(calcRecordRepository, never()).save(any());
+        verifyNoInteractions(calcStatsService);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.Formula;
+import org.example.repository.FormulaRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FormulaServiceTest {
+
+    @Mock
+    private FormulaRepository formulaRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private FormulaService formulaService;
+
+    private AppUser owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new AppUser();
+        owner.setId(1L);
+        owner.setUsername("Tim");
+    }
+
+    @Test
+    @DisplayName("save(): compiles the expression and stores its variables")
+    void save_ok() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "total")).thenReturn(Optional.empty());
+        when(formulaRepository.save(any(Formula.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Formula saved = formulaService.save("Tim", "total", "price * qty");
+
+        assertThat(saved.getVariables()).isEqualTo("price,qty");
+        assertThat(saved.getOwner()).isSameAs(owner);
+    }
+
+    @Test
+    @DisplayName("save(): rejects an invalid expression with 400 before touching the DB")
+    void save_invalid() {
+        assertThatThrownBy(() -> formulaService.save("Tim", "bad", "1 +"))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(formulaRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("evaluate(): binds variables by name")
+    void evaluate_ok() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "total"))
+                .thenReturn(Optional.of(new Formula("total", "price * qty", "price,qty", owner)));
+
+        int result = formulaService.evaluate("Tim", "total", Map.of("qty", 3, "price", 7));
+
+        assertThat(result).isEqualTo(21);
+    }
+
+    @Test
+    @DisplayName("evaluate(): 400 when a variable is missing")
+    void evaluate_missingVariable() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "total"))
+                .thenReturn(Optional.of(new Formula("total", "price * qty", "price,qty", owner)));
+
+        assertThatThrownBy(() -> formulaService.evaluate("Tim", "total", Map.of("price", 7)))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("qty");
+    }
+
+    @Test
+    @DisplayName("evaluateColumns(): evaluates every row of the columns")
+    void evaluateColumns_ok() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "total"))
+                .thenReturn(Optional.of(new Formula("total", "price * qty", "price,qty", owner)));
+
+        int[] results = formulaService.evaluateColumns("Tim", "total",
+                Map.of("price", new int[] {1, 2, 3}, "qty", new int[] {10, 10, 0}));
+
+        assertThat(results).containsExactly(10, 20, 0);
+    }
+
+    @Test
+    @DisplayName("evaluateColumns(): 400 for more rows than calc.limits.max-rows, before evaluating")
+    void evaluateColumns_tooManyRows() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "double"))
+                .thenReturn(Optional.of(new Formula("double", "x * 2", "x", owner)));
+
+        assertThatThrownBy(() -> formulaService.evaluateColumns("Tim", "double",
+                Map.of("x", new int[FormulaService.DEFAULT_MAX_ROWS + 1])))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("rows per request")
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("save(): 400 for expressions over the length or nesting limits, before touching the DB")
+    void save_overLimits() {
+        String deep = "x+(".repeat(300) + "x" + ")".repeat(300);
+        assertThatThrownBy(() -> formulaService.save("Tim", "deep", deep))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("nested deeper");
+        assertThatThrownBy(() -> formulaService.save("Tim", "long", "x+".repeat(6000) + "x"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("longer than");
+        verifyNoInteractions(formulaRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("evaluate(): 404 when formula does not exist for owner")
+    void evaluate_notFound() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(formulaRepository.findByOwnerIdAndName(1L, "nope")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> formulaService.evaluate("Tim", "nope", Map.of()))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
@@ -13,8 +13,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.transaction.PlatformTransactionManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +34,16 @@ class NoteServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private NoteChangeLog changes;
+
+    @Mock
+    private NoteTagIndex tagIndex;
+
+    // unsharded: note work runs in the caller's (here: mocked) transaction
+    @Spy
+    private NoteShards noteShards = NoteShards.unsharded(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private NoteService noteService;
 
@@ -66,7 +78,7 @@ class NoteServiceTest {
         Page<Note> page = new PageImpl<>(data, pageable, 5);
 
         when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
-        when(noteRepository.findByOwnerId(1L, pageable)).thenReturn(page);
+        when(noteRepository.findByOwnerIdOrderByCreatedAtDescIdDesc(1L, pageable)).thenReturn(page);
 
         // Act
         Page<Note> result = noteService.listMyNotes("Tim", pageable);
@@ -75,7 +87,7 @@ class NoteServiceTest {
         assertThat(result.getContent()).hasSize(2);
         assertThat(result.getTotalElements()).isEqualTo(5);
         verify(userRepository).findByUsername("Tim");
-        verify(noteRepository).findByOwnerId(1L, pageable);
+        verify(noteRepository).findByOwnerIdOrderByCreatedAtDescIdDesc(1L, pageable);
     }
 
     @Test
@@ -92,6 +104,45 @@ class NoteServiceTest {
         verifyNoInteractions(noteRepository);
     }
 
+    // ---------- listMyNotesTagged ----------
+
+    @Test
+    @DisplayName("listMyNotesTagged(): should load the index's page in its order and drop stale matches")
+    void listMyNotesTagged_shouldLoadIndexPage() {
+        Pageable pageable = PageRequest.of(0, 3);
+        Note newest = newNote("N", "n", owner);
+        newest.setId(30L);
+        newest.setTags(Set.of("work"));
+        Note older = newNote("O", "o", owner);
+        older.setId(10L);
+        older.setTags(Set.of("work", "home"));
+        Note stale = newNote("S", "s", owner); // untagged since the index saw it
+        stale.setId(20L);
+        var filter = new NoteTagIndex.TagFilter(Set.of("work"), Set.of(), Set.of());
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(tagIndex.match(1L, filter, 0, 3)).thenReturn(new NoteTagIndex.Match(3, List.of(30L, 20L, 10L)));
+        when(noteRepository.findByOwnerIdAndIdIn(1L, List.of(30L, 20L, 10L))).thenReturn(List.of(older, stale, newest));
+
+        Page<Note> result = noteService.listMyNotesTagged("Tim", List.of(" Work "), null, null, pageable);
+
+        assertThat(result.getContent()).containsExactly(newest, older);
+        assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("listMyNotesTagged(): should reject a filter without tags or any, and malformed tags")
+    void listMyNotesTagged_shouldValidateFilter() {
+        assertThatThrownBy(() -> noteService.listMyNotesTagged("Tim", null, null, List.of("x"), PageRequest.of(0, 10)))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> noteService.listMyNotesTagged("Tim", List.of("no spaces"), null, null, PageRequest.of(0, 10)))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(userRepository, tagIndex);
+    }
+
     // ---------- create ----------
 
     @Test
@@ -114,6 +165,37 @@ class NoteServiceTest {
         verify(noteRepository).save(captor.capture());
         Note toSave = captor.getValue();
         assertThat(toSave.getOwner()).isSameAs(owner);
+        verify(changes).created(saved);
+        verifyNoInteractions(tagIndex);
+    }
+
+    @Test
+    @DisplayName("create(): should normalize tags and report them to the tag index")
+    void create_shouldNormalizeAndIndexTags() {
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> {
+            Note n = inv.getArgument(0);
+            n.setId(42L);
+            return n;
+        });
+
+        Note saved = noteService.create("Tim", "Trip", "c", List.of("Travel", " travel", "2026", ""));
+
+        assertThat(saved.getTags()).containsExactly("2026", "travel");
+        verify(tagIndex).changed(1L, 42L, Set.of(), Set.of("2026", "travel"));
+    }
+
+    @Test
+    @DisplayName("create(): should reject more than MAX_TAGS tags")
+    void create_shouldRejectTooManyTags() {
+        List<String> tags = java.util.stream.IntStream.rangeClosed(0, NoteService.MAX_TAGS)
+                .mapToObj(i -> "t" + i).toList();
+
+        assertThatThrownBy(() -> noteService.create("Tim", "t", "c", tags))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(noteRepository);
     }
 
     @Test
@@ -188,6 +270,22 @@ class NoteServiceTest {
         assertThat(updated.getTitle()).isEqualTo("New");
         assertThat(updated.getContent()).isEqualTo("NewC");
         verify(noteRepository).save(existing);
+        verify(changes).updated(existing);
+    }
+
+    @Test
+    @DisplayName("update(): should replace tags when given and report the change to the tag index")
+    void update_shouldReplaceTags() {
+        Note existing = newNote("Old", "OldC", owner);
+        existing.setTags(Set.of("a", "b"));
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(owner));
+        when(noteRepository.findByIdAndOwnerId(7L, 1L)).thenReturn(Optional.of(existing));
+        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        noteService.update("Tim", 7L, "New", "NewC", List.of("b", "c"));
+
+        assertThat(existing.getTags()).containsExactlyInAnyOrder("b", "c");
+        verify(tagIndex).changed(1L, 7L, Set.of("a", "b"), Set.of("b", "c"));
     }
 
     @Test
@@ -213,6 +311,7 @@ class NoteServiceTest {
                 .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
                 .isEqualTo(HttpStatus.NOT_FOUND);
         verify(noteRepository, never()).save(any());
+        verifyNoInteractions(changes);
     }
 
     // ---------- delete ----------
@@ -230,6 +329,8 @@ class NoteServiceTest {
 
         // Assert
         verify(noteRepository).delete(existing);
+        verify(changes).deleted(existing);
+        verify(tagIndex).changed(1L, 5L, Set.of(), Set.of());
     }
 
     @Test
@@ -0,0 +1,102 @@
+package org.example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteShardMapTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    private NoteShardMap map;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 8 buckets over 2 shards: even buckets on 0, odd on 1
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (int b = 0; b < 8; b++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt(1)).thenReturn(b);
+                when(rs.getInt(2)).thenReturn(b % 2);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(startsWith("select bucket, shard, moving"), any(RowCallbackHandler.class));
+        map = new NoteShardMap(jdbc, txManager, 8, 2);
+        map.refresh();
+    }
+
+    @Test
+    @DisplayName("bucketOf(): sequential owner ids spread evenly over the buckets")
+    void bucketsSpreadSequentialIds() {
+        int[] counts = new int[64];
+        for (long id = 1; id <= 64_000; id++) {
+            counts[NoteShardMap.bucketOf(id, 64)]++;
+        }
+        assertThat(Arrays.stream(counts).min().getAsInt()).isGreaterThan(850);
+        assertThat(Arrays.stream(counts).max().getAsInt()).isLessThan(1150);
+        assertThat(NoteShardMap.bucketOf(42, 64)).isEqualTo(NoteShardMap.bucketOf(42, 64));
+    }
+
+    @Test
+    @DisplayName("shardOf(): follows the bucket assignment, and assign() moves it")
+    void shardFollowsAssignment() {
+        long owner = 7;
+        int bucket = map.bucketOf(owner);
+        assertThat(map.shardOf(owner)).isEqualTo(bucket % 2);
+
+        map.assign(bucket, 1 - bucket % 2);
+
+        assertThat(map.shardOf(owner)).isEqualTo(1 - bucket % 2);
+        verify(jdbc).update(startsWith("update note_shard_bucket set shard"), eq(1 - bucket % 2), eq(bucket));
+    }
+
+    @Test
+    @DisplayName("beginWrite(): 503 while the bucket is moving, and a move waits for running writes")
+    void movingBucketBlocksWrites() throws Exception {
+        long owner = 7;
+        int bucket = map.beginWrite(owner);
+        map.setMoving(bucket, true);
+
+        assertThatThrownBy(() -> map.beginWrite(owner))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThatThrownBy(() -> map.awaitWritesDrained(bucket, Duration.ofMillis(20)))
+                .isInstanceOf(IllegalStateException.class);
+
+        map.endWrite(bucket);
+        map.awaitWritesDrained(bucket, Duration.ofMillis(20));
+    }
+
+    @Test
+    @DisplayName("refresh(): rejects a table that does not match the configured bucket count")
+    void refreshRejectsMismatchedTable() {
+        var bigger = new NoteShardMap(jdbc, txManager, 16, 2);
+
+        assertThatThrownBy(bigger::refresh)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("8 rows");
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.service;
+
+import org.example.config.NoteShardDataSources;
+import org.example.model.Note;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Notes spread over three H2 shards (application-sharding.yml). Tests share the databases,
+ * so each one registers its own users.
+ */
+@SpringBootTest
+@ActiveProfiles({"dev", "sharding"})
+class NoteShardingTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Autowired UserService userService;
+    @Autowired UserRepository userRepository;
+    @Autowired UserProvisioningService provisioning;
+    @Autowired NoteService noteService;
+    @Autowired NoteShardMap map;
+    @Autowired NoteShardAdminService admin;
+    @Autowired NoteShards shards;
+    @Autowired NoteShardDataSources shardPools;
+    @Autowired JdbcTemplate primary;
+
+    private String register() {
+        String name = "shard-user-" + SEQ.incrementAndGet();
+        userService.register(name, null, "pw");
+        return name;
+    }
+
+    private long idOf(String username) {
+        return userRepository.findByUsername(username).orElseThrow().getId();
+    }
+
+    private JdbcTemplate shard(int i) {
+        return new JdbcTemplate(shardPools.pools().get(i));
+    }
+
+    private List<Long> noteIdsOn(int shard, long ownerId) {
+        return shard(shard).queryForList("select id from note where owner_id = ? order by id", Long.class, ownerId);
+    }
+
+    @Test
+    @DisplayName("notes are stored only on the owner's shard, with ids from that shard's range")
+    void notesLiveOnTheOwnersShard() {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            String name = register();
+            long owner = idOf(name);
+            noteService.create(name, "t" + i, "c");
+
+            int home = map.shardOf(owner);
+            used.add(home);
+            for (int s = 0; s < shardPools.size(); s++) {
+                List<Long> ids = noteIdsOn(s, owner);
+                if (s == home) {
+                    long base = NoteShardDataSources.idBase(s);
+                    long next = NoteShardDataSources.idBase(s + 1);
+                    assertThat(ids).hasSize(2).allSatisfy(id -> assertThat(id).isBetween(base, next - 1));
+                } else {
+                    assertThat(ids).isEmpty();
+                }
+            }
+            assertThat(primary.queryForObject("select count(*) from note where owner_id = ?", Integer.class, owner)).isZero();
+        }
+        assertThat(used).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("NoteService behaves as before: ownership checks, paging, update and delete")
+    void serviceSemanticsUnchanged() {
+        String tim = register();
+        String luke = register();
+        Note created = noteService.create(tim, "first", "c1");
+
+        assertThat(noteService.listMyNotes(tim, PageRequest.of(0, 10)).getContent())
+                .extracting(Note::getTitle).containsExactly("first", "Welcome");
+        assertThat(noteService.getOne(tim, created.getId()).getContent()).isEqualTo("c1");
+        assertThatThrownBy(() -> noteService.getOne(luke, created.getId()))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Note not found");
+
+        noteService.update(tim, created.getId(), "renamed", "c2");
+        assertThat(noteService.getOne(tim, created.getId()).getTitle()).isEqualTo("renamed");
+
+        noteService.delete(tim, created.getId());
+        assertThat(noteService.listMyNotes(tim, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+        assertThatThrownBy(() -> noteService.delete(luke, created.getId()))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    @DisplayName("bulk provisioning writes each welcome note to its owner's shard")
+    void bulkWelcomeNotesAreSharded() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            csv.append("bulk-shard-").append(i).append(",,pw\n");
+        }
+        var report = provisioning.provision(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                UserProvisioningService.Format.CSV);
+
+        assertThat(report.created()).isEqualTo(8);
+        for (int i = 0; i < 8; i++) {
+            long owner = idOf("bulk-shard-" + i);
+            assertThat(noteIdsOn(map.shardOf(owner), owner)).hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("stats() scans every shard and adds up to the rows stored")
+    void statsCoverEveryShard() {
+        register();
+
+        var stats = admin.stats();
+
+        assertThat(stats).extracting(NoteShardAdminService.ShardStats::shard).containsExactly(0, 1, 2);
+        assertThat(stats.stream().mapToInt(NoteShardAdminService.ShardStats::buckets).sum()).isEqualTo(16);
+        for (var s : stats) {
+            assertThat(s.notes()).isEqualTo(shard(s.shard()).queryForObject("select count(*) from note", Long.class));
+        }
+    }
+
+    @Test
+    @DisplayName("moveBucket() carries an owner's notes, with their ids, to the new shard")
+    void moveBucket() {
+        String name = register();
+        long owner = idOf(name);
+        Long noteId = noteService.create(name, "moving", "c").getId();
+        int bucket = map.bucketOf(owner);
+        int from = map.shardOf(owner);
+        int to = (from + 1) % shardPools.size();
+
+        var move = admin.moveBucket(bucket, to);
+
+        assertThat(move.from()).isEqualTo(from);
+        assertThat(move.notes()).isGreaterThanOrEqualTo(2);
+        assertThat(map.shardOf(owner)).isEqualTo(to);
+        assertThat(primary.queryForObject("select shard from note_shard_bucket where bucket = ?", Integer.class, bucket))
+                .isEqualTo(to);
+        assertThat(noteIdsOn(from, owner)).isEmpty();
+        assertThat(noteIdsOn(to, owner)).contains(noteId);
+        assertThat(noteService.getOne(name, noteId).getTitle()).isEqualTo("moving");
+
+        // new notes now come from the target's id range
+        Long next = noteService.create(name, "after", "c").getId();
+        assertThat(next).isGreaterThanOrEqualTo(NoteShardDataSources.idBase(to));
+    }
+
+    @Test
+    @DisplayName("writes to a bucket that is being moved get 503; reads still work")
+    void movingBucketRejectsWrites() {
+        String name = register();
+        long owner = idOf(name);
+        int bucket = map.bucketOf(owner);
+
+        map.setMoving(bucket, true);
+        try {
+            assertThatThrownBy(() -> noteService.create(name, "t", "c"))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            assertThat(noteService.listMyNotes(name, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+        } finally {
+            map.setMoving(bucket, false);
+        }
+        assertThat(noteService.create(name, "t", "c").getId()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("moveBucket() waits for a write another instance still has open on the old shard and carries it over")
+    void moveBucketFencesOtherInstancesWrites() throws Exception {
+        String name = register();
+        long owner = idOf(name);
+        int bucket = map.bucketOf(owner);
+        int from = map.shardOf(owner);
+        int to = (from + 1) % shardPools.size();
+
+        // never registered with this instance's map, so only the fence on the shard can hold the move back
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Long> otherInstance = CompletableFuture.supplyAsync(() -> shards.onShard(from, false, () -> {
+            map.checkFence(bucket);
+            primary.update("insert into note (title, content, owner_id, created_at) values ('late', 'c', ?, current_timestamp)", owner);
+            written.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return primary.queryForObject("select max(id) from note where owner_id = ?", Long.class, owner);
+        }));
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<NoteShardAdminService.BucketMove> move = CompletableFuture.supplyAsync(() -> admin.moveBucket(bucket, to));
+        Thread.sleep(300); // several map-refresh settles: without the fence the move would be done
+        assertThat(move).isNotDone();
+
+        commit.countDown();
+        Long late = otherInstance.get(10, TimeUnit.SECONDS);
+        move.get(10, TimeUnit.SECONDS);
+
+        assertThat(noteIdsOn(to, owner)).contains(late);
+        assertThat(noteIdsOn(from, owner)).isEmpty();
+        // a write that still lands on the old shard is turned away
+        assertThatThrownBy(() -> shards.onShard(from, false, () -> {
+            map.checkFence(bucket);
+            return null;
+        })).isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(noteService.create(name, "after", "c").getId()).isGreaterThanOrEqualTo(NoteShardDataSources.idBase(to));
+    }
+
+    @Test
+    @DisplayName("notes left on the primary block startup until backfilled to their owners' shards")
+    void primaryNotesAreBackfilled() {
+        String name = register();
+        long owner = idOf(name);
+        long onShard = noteService.create(name, "sharded", "c").getId();
+        primary.update("insert into note (title, content, owner_id, created_at, tags) "
+                + "values ('old', 'c', ?, current_timestamp, 'x')", owner);
+        long old = primary.queryForObject("select id from note where owner_id = ?", Long.class, owner);
+        assertThat(old).isLessThan(NoteShardDataSources.idBase(0));
+
+        assertThatThrownBy(() -> admin.checkPrimary(false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("backfill-on-start");
+
+        admin.checkPrimary(true);
+
+        int home = map.shardOf(owner);
+        assertThat(noteIdsOn(home, owner)).contains(old, onShard);
+        assertThat(admin.primaryNotes()).isZero();
+        assertThat(noteService.listMyNotes(name, PageRequest.of(0, 10)).getContent())
+                .extracting(Note::getTitle).contains("old", "sharded");
+        admin.checkPrimary(false);
+    }
+}
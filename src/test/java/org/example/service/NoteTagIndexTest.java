@@ -0,0 +1,114 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.model.TaggedNote;
+import org.example.repository.NoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteTagIndexTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    private NoteTagIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NoteTagIndex(noteRepository, NoteShards.unsharded(mock(PlatformTransactionManager.class)),
+                scheduler, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    }
+
+    private static NoteTagIndex.TagFilter filter(Set<String> all, Set<String> any, Set<String> none) {
+        return new NoteTagIndex.TagFilter(all, any, none);
+    }
+
+    private void warmWith(TaggedNote... notes) {
+        when(noteRepository.findTaggedAfter(eq(0L), any(Limit.class))).thenReturn(List.of(notes));
+        index.warm();
+    }
+
+    @Test
+    @DisplayName("match(): 503 until the index has been built")
+    void notReady() {
+        assertThatThrownBy(() -> index.match(1L, filter(Set.of("a"), Set.of(), Set.of()), 0, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    @DisplayName("match(): all/any/not combine as AND, OR and AND NOT, newest id first, per owner")
+    void combinesFilters() {
+        warmWith(
+                new TaggedNote(1L, 1L, Set.of("work", "urgent")),
+                new TaggedNote(2L, 1L, Set.of("work")),
+                new TaggedNote(3L, 1L, Set.of("work", "done")),
+                new TaggedNote(4L, 1L, Set.of("home", "urgent")),
+                new TaggedNote(5L, 2L, Set.of("work")));
+
+        assertThat(index.match(1L, filter(Set.of("work"), Set.of(), Set.of()), 0, 10).ids()).containsExactly(3L, 2L, 1L);
+        assertThat(index.match(1L, filter(Set.of("work", "urgent"), Set.of(), Set.of()), 0, 10).ids()).containsExactly(1L);
+        assertThat(index.match(1L, filter(Set.of(), Set.of("done", "home"), Set.of()), 0, 10).ids()).containsExactly(4L, 3L);
+        assertThat(index.match(1L, filter(Set.of("work"), Set.of(), Set.of("done")), 0, 10).ids()).containsExactly(2L, 1L);
+        assertThat(index.match(1L, filter(Set.of("work", "missing"), Set.of(), Set.of()), 0, 10).total()).isZero();
+        assertThat(index.match(3L, filter(Set.of("work"), Set.of(), Set.of()), 0, 10).total()).isZero();
+
+        NoteTagIndex.Match page = index.match(1L, filter(Set.of("work"), Set.of(), Set.of()), 1, 1);
+        assertThat(page.total()).isEqualTo(3);
+        assertThat(page.ids()).containsExactly(2L);
+        verify(scheduler).scheduleWithFixedDelay(any(Runnable.class), any(java.time.Instant.class), eq(Duration.ofMinutes(10)));
+    }
+
+    @Test
+    @DisplayName("changed(): outside a transaction, applies tag diffs immediately")
+    void incrementalChanges() {
+        warmWith();
+        var work = filter(Set.of("work"), Set.of(), Set.of());
+
+        index.changed(1L, 10L, Set.of(), Set.of("work"));
+        index.changed(1L, 11L, Set.of(), Set.of("work", "home"));
+        assertThat(index.match(1L, work, 0, 10).ids()).containsExactly(11L, 10L);
+
+        index.changed(1L, 11L, Set.of("work", "home"), Set.of("home"));
+        index.changed(1L, 10L, Set.of("work"), Set.of());
+        assertThat(index.match(1L, work, 0, 10).total()).isZero();
+        assertThat(index.match(1L, filter(Set.of("home"), Set.of(), Set.of()), 0, 10).ids()).containsExactly(11L);
+    }
+
+    @Test
+    @DisplayName("rebuild(): replaces the index with what the database holds, reading in keyset batches")
+    void rebuildReplaces() {
+        warmWith(new TaggedNote(1L, 1L, Set.of("old")));
+        index.changed(1L, 2L, Set.of(), Set.of("old"));
+
+        when(noteRepository.findTaggedAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(new TaggedNote(3L, 1L, Set.of("new"))));
+        index.rebuild();
+
+        assertThat(index.match(1L, filter(Set.of("old"), Set.of(), Set.of()), 0, 10).total()).isZero();
+        assertThat(index.match(1L, filter(Set.of("new"), Set.of(), Set.of()), 0, 10).ids()).containsExactly(3L);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReadCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("read(): another user's identical read is not shared")
+    void keyedByOwner() throws Exception {
+        ReadCoalescer reads = new ReadCoalescer(true, Duration.ofSeconds(5), registry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> emma = CompletableFuture.supplyAsync(() -> reads.read("emma", "notes.list", () -> {
+            entered.countDown();
+            await(release);
+            return "emma's page";
+        }, 0, 10));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // would block on emma's read if the owner were not part of the key
+        assertThat(reads.read("tim", "notes.list", () -> "tim's page", 0, 10)).isEqualTo("tim's page");
+
+        release.countDown();
+        assertThat(emma.get(5, TimeUnit.SECONDS)).isEqualTo("emma's page");
+    }
+
+    @Test
+    @DisplayName("read(): null arguments are part of the key; outcomes are counted")
+    void nullArgumentsAndMetrics() {
+        ReadCoalescer reads = new ReadCoalescer(true, Duration.ofSeconds(1), registry);
+
+        assertThat(reads.read("emma", "calc.history", () -> "first", null, null)).isEqualTo("first");
+
+        assertThat(registry.get("reads.coalescing").tag("outcome", "led").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("reads.coalescing").tag("outcome", "shared").functionCounter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("read(): disabled, every call runs its loader")
+    void disabled() {
+        ReadCoalescer reads = new ReadCoalescer(false, Duration.ofSeconds(1), registry);
+        AtomicInteger runs = new AtomicInteger();
+
+        reads.read("emma", "notes.get", runs::incrementAndGet, 1L);
+        reads.read("emma", "notes.get", runs::incrementAndGet, 1L);
+        reads.forget("emma");
+
+        assertThat(runs).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProvisioningServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    @Mock
+    private UsernameAvailabilityService availability;
+
+    @Mock
+    private NoteChangeLog changes;
+
+    private UserProvisioningService provisioning;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provisioning = new UserProvisioningService(userRepository, passwordEncoder, jdbc, txManager,
+                new ObjectMapper(), availability, NoteShards.unsharded(txManager), changes, 2, 100, 1000);
+        lenient().when(passwordEncoder.encode(anyString())).thenAnswer(inv -> "hash:" + inv.getArgument(0));
+        // ids read back after the user batch: 100, 101, ... in the order the names were bound
+        lenient().doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            Object[] args = inv.getArguments(); // varargs are expanded: names start at index 2
+            for (int i = 2; i < args.length; i++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(2)).thenReturn((String) args[i]);
+                when(rs.getLong(1)).thenReturn(100L + i - 2);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(startsWith("select id, username from app_user"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        provisioning.shutdown();
+    }
+
+    private UserProvisioningService.Report run(String body, UserProvisioningService.Format format) throws Exception {
+        return provisioning.provision(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    @Test
+    @DisplayName("provision(): CSV rows are hashed and inserted in one batch with their welcome notes")
+    @SuppressWarnings("unchecked")
+    void csv_batchInsert() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        var report = run("username,email,password\nTim,tim@x.io,pw1\nLuke,,p,w,2\n", UserProvisioningService.Format.CSV);
+
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.failed()).isZero();
+        assertThat(report.results()).extracting(UserProvisioningService.RowResult::line).containsExactly(2, 3);
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(startsWith("insert into app_user"), batches.capture());
+        assertThat(batches.getValue()).containsExactly(
+                new Object[]{"Tim", "tim@x.io", "hash:pw1"},
+                new Object[]{"Luke", null, "hash:p,w,2"});
+
+        verify(jdbc).batchUpdate(startsWith("insert into note"), batches.capture());
+        assertThat(batches.getValue()).extracting(row -> row[2]).containsExactly(100L, 101L);
+        assertThat(batches.getValue()).extracting(row -> row[1])
+                .containsExactly("Welcome to Note Service, Tim!", "Welcome to Note Service, Luke!");
+        verify(availability).markTaken("Tim");
+        verify(availability).markTaken("Luke");
+    }
+
+    @Test
+    @DisplayName("provision(): with a change log, each welcome note is logged with the id it was given")
+    void welcomeNotesAreLogged() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+        when(changes.enabled()).thenReturn(true);
+        // note ids 900, 901, ... for the owners in the order they were bound
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            Object[] args = inv.getArguments();
+            for (int i = 2; i < args.length; i++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn(900L + i - 2);
+                when(rs.getLong(2)).thenReturn((Long) args[i]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc).query(startsWith("select id, owner_id from note"), any(RowCallbackHandler.class), any(Object[].class));
+
+        run("Tim,,pw1\nLuke,,pw2\n", UserProvisioningService.Format.CSV);
+
+        verify(changes).created(900L, 100L, "Welcome", "Welcome to Note Service, Tim!");
+        verify(changes).created(901L, 101L, "Welcome", "Welcome to Note Service, Luke!");
+    }
+
+    @Test
+    @DisplayName("provision(): bad, duplicate and already-taken rows are reported without hashing them")
+    void ndjson_rowErrors() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of("Taken"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("used@x.io"));
+
+        var report = run("""
+                {"username":"Tim","email":"tim@x.io","password":"pw"}
+                not json
+                {"username":"Tim","email":"other@x.io","password":"pw"}
+                {"username":"Taken","email":"t@x.io","password":"pw"}
+                {"username":"Ann","email":"used@x.io","password":"pw"}
+                {"username":"Bob","email":"bob@x.io"}
+                """, UserProvisioningService.Format.NDJSON);
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.results()).extracting(UserProvisioningService.RowResult::error).containsExactly(
+                null,
+                "Invalid JSON",
+                "Duplicate username in upload",
+                "Username already taken",
+                "Email already registered",
+                "password is required");
+        verify(passwordEncoder, times(1)).encode(anyString());
+    }
+
+    @Test
+    @DisplayName("provision(): a constraint hit in the batch falls back to row-by-row inserts")
+    void batchConflict_retriedPerRow() throws Exception {
+        when(userRepository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(jdbc.batchUpdate(startsWith("insert into app_user"), anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_app_user_username"))  // whole chunk
+                .thenReturn(new int[]{1})                                                 // Tim alone
+                .thenThrow(new DataIntegrityViolationException("uk_app_user_email"));    // Luke alone
+
+        var report = run("Tim,tim@x.io,pw\nLuke,luke@x.io,pw\n", UserProvisioningService.Format.CSV);
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.results()).extracting(UserProvisioningService.RowResult::error)
+                .containsExactly(null, "Email already registered");
+        verify(availability).markTaken("Tim");
+        verify(availability, never()).markTaken("Luke");
+    }
+
+    @Test
+    @DisplayName("provision(): an upload over max-rows gets 413 before any chunk is written")
+    void tooManyRows_nothingWritten() {
+        provisioning.shutdown();
+        provisioning = new UserProvisioningService(userRepository, passwordEncoder, jdbc, txManager,
+                new ObjectMapper(), availability, NoteShards.unsharded(txManager), changes, 2, 2, 5);
+
+        // three full chunks' worth of rows before the limit is reached
+        assertThatThrownBy(() -> run("a,,pw\nb,,pw\nc,,pw\nd,,pw\ne,,pw\nf,,pw\n", UserProvisioningService.Format.CSV))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+
+        verifyNoInteractions(userRepository, passwordEncoder, availability);
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+    }
+}
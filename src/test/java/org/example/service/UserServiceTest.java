@@ -1,18 +1,32 @@
 package org.example.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ReadYourWrites;
 import org.example.model.AppUser;
 import org.example.model.Note;
+import org.example.model.UserSummary;
 import org.example.repository.NoteRepository;
 import org.example.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,24 +44,36 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UsernameAvailabilityService usernameAvailability;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Mock
+    private NoteChangeLog changes;
+
+    // unsharded: note work runs in the caller's (here: mocked) transaction
+    @Spy
+    private NoteShards noteShards = NoteShards.unsharded(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private UserService userService;
 
     @Test
-    @DisplayName("register(): creates user and welcome note when username and email are available")
+    @DisplayName("register(): inserts user and welcome note without existence queries")
     void register_ok() {
-        when(userRepository.existsByUsername(eq("Tim"))).thenReturn(false);
-        when(userRepository.existsByEmail(eq("Tim@example.com"))).thenReturn(false);
         when(passwordEncoder.encode(eq("123456"))).thenReturn("encoded123");
 
         AppUser persisted = new AppUser("Tim", "Tim@example.com", "encoded123");
         persisted.setId(1L);
         when(userRepository.save(any(AppUser.class))).thenReturn(persisted);
+        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
 
         userService.register("Tim", "Tim@example.com", "123456");
 
-        verify(userRepository).existsByUsername("Tim");
-        verify(userRepository).existsByEmail("Tim@example.com");
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
         verify(passwordEncoder).encode("123456");
         verify(userRepository).save(argThat(u ->
                 u.getUsername().equals("Tim")
@@ -60,39 +86,53 @@ class UserServiceTest {
                         && n.getOwner() != null
                         && n.getOwner().getId().equals(1L)
         ));
+        verify(changes).created(argThat((Note n) -> "Welcome".equals(n.getTitle())));
+        verify(usernameAvailability).markTaken("Tim");
+        verify(readYourWrites).recordOnCommit("Tim");
+    }
+
+    private static DataIntegrityViolationException violation(String constraint) {
+        var cause = new ConstraintViolationException("duplicate key",
+                new SQLException("duplicate key value violates unique constraint"), constraint);
+        return new DataIntegrityViolationException("could not execute statement", cause);
     }
 
     @Test
-    @DisplayName("register(): throws when username already exists")
+    @DisplayName("register(): username constraint violation becomes 'Username already taken'")
     void register_duplicate_username() {
-        when(userRepository.existsByUsername(eq("Tim"))).thenReturn(true);
+        when(userRepository.save(any(AppUser.class))).thenThrow(violation(AppUser.USERNAME_CONSTRAINT));
 
         assertThatThrownBy(() -> userService.register("Tim", "Tim@example.com", "123456"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Username");
 
-        verify(userRepository).existsByUsername("Tim");
-        verify(userRepository, never()).existsByEmail(anyString());
-        verify(userRepository, never()).save(any());
         verify(noteRepository, never()).save(any());
+        verify(usernameAvailability, never()).markTaken(anyString());
     }
 
     @Test
-    @DisplayName("register(): throws when email already exists")
+    @DisplayName("register(): email constraint violation becomes 'Email already registered'")
     void register_duplicate_email() {
-        when(userRepository.existsByUsername(eq("Tim"))).thenReturn(false);
-        when(userRepository.existsByEmail(eq("Tim@example.com"))).thenReturn(true);
+        // H2 reports the backing index name, which contains the constraint name
+        when(userRepository.save(any(AppUser.class)))
+                .thenThrow(violation("PUBLIC.UK_APP_USER_EMAIL_INDEX_A ON PUBLIC.APP_USER(EMAIL)"));
 
         assertThatThrownBy(() -> userService.register("Tim", "Tim@example.com", "123456"))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Email");
 
-        verify(userRepository).existsByUsername("Tim");
-        verify(userRepository).existsByEmail("Tim@example.com");
-        verify(userRepository, never()).save(any());
         verify(noteRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("register(): other integrity violations are not mistaken for duplicates")
+    void register_otherViolation_rethrown() {
+        when(userRepository.save(any(AppUser.class))).thenThrow(violation("app_user_password_hash_not_null"));
+
+        assertThatThrownBy(() -> userService.register("Tim", "Tim@example.com", "123456"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     @Test
     @DisplayName("createUser(): persists and returns saved user")
     void createUser_ok() {
@@ -111,18 +151,73 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("getAllUsers(): returns list of users")
-    void getAllUsers_ok() {
-        var u1 = new AppUser("Tim", "Tim@example.com", "1"); u1.setId(1L);
-        var u2 = new AppUser("Luke", "Luke@example.com", "2"); u2.setId(2L);
-        when(userRepository.findAll()).thenReturn(List.of(u1, u2));
-
-        var list = userService.getAllUsers();
-
-        assertThat(list).hasSize(2);
-        assertThat(list.get(0).getEmail()).isEqualTo("Tim@example.com");
-        assertThat(list.get(1).getUsername()).isEqualTo("Luke");
-        verify(userRepository).findAll();
+    @DisplayName("createUser(): never persists the admin flag from the request")
+    void createUser_notAdmin() {
+        AppUser toSave = new AppUser("Tim", "Tim@example.com", "encoded123");
+        toSave.setAdmin(true);
+        when(userRepository.save(any(AppUser.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        assertThat(userService.createUser(toSave).isAdmin()).isFalse();
+    }
+
+    @Test
+    @DisplayName("setAdmin(): flips the flag on the stored user; unknown users are 404")
+    void setAdmin() {
+        AppUser tim = new AppUser("Tim", "Tim@example.com", "encoded123");
+        when(userRepository.findByUsername("Tim")).thenReturn(Optional.of(tim));
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        userService.setAdmin("Tim", true);
+        assertThat(tim.isAdmin()).isTrue();
+        userService.setAdmin("Tim", false);
+        assertThat(tim.isAdmin()).isFalse();
+
+        assertThatThrownBy(() -> userService.setAdmin("nobody", true))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("404");
+    }
+
+    @Test
+    @DisplayName("listUsers(): returns a page of summaries and the id to continue after")
+    void listUsers_hasNext() {
+        when(userRepository.findSummariesAfter(eq(0L), eq(Limit.of(3)))).thenReturn(List.of(
+                new UserSummary(1L, "Tim", "Tim@example.com"),
+                new UserSummary(2L, "Luke", "Luke@example.com"),
+                new UserSummary(3L, "Ann", "Ann@example.com")));
+
+        var page = userService.listUsers(null, 2);
+
+        assertThat(page.items()).extracting(UserSummary::username).containsExactly("Tim", "Luke");
+        assertThat(page.nextAfter()).isEqualTo(2L);
         verifyNoInteractions(noteRepository);
     }
+
+    @Test
+    @DisplayName("listUsers(): last page has no next id and the limit is capped")
+    void listUsers_lastPage() {
+        when(userRepository.findSummariesAfter(eq(2L), eq(Limit.of(501))))
+                .thenReturn(List.of(new UserSummary(3L, "Ann", "Ann@example.com")));
+
+        var page = userService.listUsers(2L, 10_000);
+
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.nextAfter()).isNull();
+    }
+
+    @Test
+    @DisplayName("exportUsers(): writes one JSON object per line without password hashes")
+    void exportUsers_ndjson() throws Exception {
+        var service = new UserService(userRepository, noteRepository, passwordEncoder, new ObjectMapper(),
+                usernameAvailability, readYourWrites, noteShards, changes);
+        when(userRepository.streamSummaries()).thenReturn(Stream.of(
+                new UserSummary(1L, "Tim", "Tim@example.com"),
+                new UserSummary(2L, "Luke", null)));
+
+        var out = new ByteArrayOutputStream();
+        service.exportUsers(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"username\":\"Tim\",\"email\":\"Tim@example.com\"}\n"
+                        + "{\"id\":2,\"username\":\"Luke\",\"email\":null}\n");
+    }
 }
@@ -0,0 +1,69 @@
+package org.example.service;
+
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameAvailabilityServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UsernameAvailabilityService availability;
+
+    @BeforeEach
+    void setUp() {
+        availability = new UsernameAvailabilityService(userRepository, 1_000, 0.01);
+    }
+
+    @Test
+    @DisplayName("isAvailable(): asks the database until the filter is warmed")
+    void beforeWarm_usesDatabase() {
+        when(userRepository.existsByUsername("Tim")).thenReturn(false);
+
+        assertThat(availability.isAvailable("Tim")).isTrue();
+        verify(userRepository).existsByUsername("Tim");
+    }
+
+    @Test
+    @DisplayName("isAvailable(): a filter miss answers without a query")
+    void warmed_miss_noQuery() {
+        when(userRepository.streamUsernames()).thenReturn(Stream.of("Tim", "Luke"));
+        availability.warm();
+
+        assertThat(availability.isAvailable("Ann")).isTrue();
+        verify(userRepository, never()).existsByUsername(anyString());
+    }
+
+    @Test
+    @DisplayName("isAvailable(): a filter hit is confirmed against the database")
+    void warmed_hit_confirmed() {
+        when(userRepository.streamUsernames()).thenReturn(Stream.of("Tim"));
+        when(userRepository.existsByUsername("Tim")).thenReturn(true);
+        availability.warm();
+
+        assertThat(availability.isAvailable("Tim")).isFalse();
+    }
+
+    @Test
+    @DisplayName("markTaken(): newly registered names go through the database check")
+    void markTaken_addsToFilter() {
+        when(userRepository.streamUsernames()).thenReturn(Stream.empty());
+        when(userRepository.existsByUsername("Ann")).thenReturn(true);
+        availability.warm();
+
+        availability.markTaken("Ann");
+
+        assertThat(availability.isAvailable("Ann")).isFalse();
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.service;
+
+import org.example.model.AppUser;
+import org.example.model.CalcExpression;
+import org.example.model.CalcRecord;
+import org.example.repository.CalcRecordRepository;
+import org.example.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindCalcRecordWriterTest {
+
+    @Mock
+    private CalcRecordRepository calcRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CalcStatsService calcStatsService;
+
+    @Mock
+    private CalcExpressionService calcExpressionService;
+
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    private AppUser owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new AppUser();
+        owner.setId(1L);
+        owner.setUsername("Tim");
+    }
+
+    private WriteBehindCalcRecordWriter writer(int capacity, int maxBatch) {
+        return new WriteBehindCalcRecordWriter(calcRecordRepository, userRepository, calcStatsService,
+                calcExpressionService, txManager, capacity, maxBatch, 20, 10, 1);
+    }
+
+    @Test
+    @DisplayName("write(): returns immediately and shutdown drains the queue in batches")
+    @SuppressWarnings("unchecked")
+    void write_thenDrainOnShutdown() throws Exception {
+        when(userRepository.findByUsernameIn(anyCollection())).thenReturn(List.of(owner));
+        List<CalcRecord> persisted = new ArrayList<>();
+        when(calcRecordRepository.saveAll(any())).thenAnswer(inv -> {
+            persisted.addAll((List<CalcRecord>) inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        var writer = writer(100, 2);
+        writer.start();
+
+        for (int i = 0; i < 5; i++) {
+            CalcRecord r = writer.write("Tim", "1+" + i, 1 + i);
+            assertThat(r.getId()).isNull();
+            assertThat(r.getResult()).isEqualTo(1 + i);
+        }
+        writer.shutdown();
+
+        assertThat(persisted).hasSize(5).allSatisfy(r -> assertThat(r.getOwner()).isSameAs(owner));
+        assertThat(writer.pending()).isZero();
+        verify(calcRecordRepository, atLeast(3)).saveAll(any());
+        verify(calcStatsService, atLeast(3)).recordAll(eq(owner), anyCollection());
+    }
+
+    @Test
+    @DisplayName("write(): 503 when the buffer is full")
+    void write_backpressure() {
+        var writer = writer(1, 10); // flusher not started, so nothing drains
+
+        writer.write("Tim", "1", 1);
+
+        assertThatThrownBy(() -> writer.write("Tim", "2", 2))
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    @DisplayName("flush(): records of unknown users are dropped, the rest persisted with shared expressions")
+    @SuppressWarnings("unchecked")
+    void flush_unknownUser() {
+        when(userRepository.findByUsernameIn(anyCollection())).thenReturn(List.of(owner));
+        when(calcExpressionService.intern("1")).thenReturn(new CalcExpression("h", "1"));
+        var writer = writer(10, 10);
+
+        writer.flush(List.of(new CalcRecord("1", 1, "Tim", null), new CalcRecord("2", 2, "ghost", null),
+                new CalcRecord("1", 1, "Tim", null)));
+
+        ArgumentCaptor<List<CalcRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(calcRecordRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(CalcRecord::getSubmittedBy).containsExactly("Tim", "Tim");
+        // the same text is interned once per batch
+        verify(calcExpressionService).intern("1");
+        verifyNoMoreInteractions(calcExpressionService);
+    }
+
+    @Test
+    @DisplayName("flush(): a failed batch is retried as new records")
+    @SuppressWarnings("unchecked")
+    void flush_retriesFailedBatch() {
+        when(userRepository.findByUsernameIn(anyCollection())).thenReturn(List.of(owner));
+        List<CalcRecord> persisted = new ArrayList<>();
+        when(calcRecordRepository.saveAll(any()))
+                .thenAnswer(inv -> {
+                    // the insert went out and got an id before the transaction failed
+                    ((List<CalcRecord>) inv.getArgument(0)).forEach(r -> r.setId(99L));
+                    throw new IllegalStateException("deadlock");
+                })
+                .thenAnswer(inv -> {
+                    persisted.addAll((List<CalcRecord>) inv.getArgument(0));
+                    return inv.getArgument(0);
+                });
+        var writer = writer(10, 10);
+
+        writer.flush(List.of(new CalcRecord("1", 1, "Tim", null), new CalcRecord("2", 2, "Tim", null)));
+
+        assertThat(persisted).hasSize(2).allSatisfy(r -> assertThat(r.getId()).isNull());
+        verify(calcRecordRepository, times(2)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("flush(): a batch that keeps failing is written record by record, dropping only the bad one")
+    @SuppressWarnings("unchecked")
+    void flush_fallsBackToSingleRecords() {
+        when(userRepository.findByUsernameIn(anyCollection())).thenReturn(List.of(owner));
+        List<CalcRecord> persisted = new ArrayList<>();
+        when(calcRecordRepository.saveAll(any())).thenAnswer(inv -> {
+            List<CalcRecord> records = inv.getArgument(0);
+            if (records.stream().anyMatch(r -> r.getResult() < 0)) throw new IllegalStateException("constraint");
+            persisted.addAll(records);
+            return records;
+        });
+        var writer = writer(10, 10);
+
+        writer.flush(List.of(new CalcRecord("1", 1, "Tim", null), new CalcRecord("bad", -1, "Tim", null),
+                new CalcRecord("3", 3, "Tim", null)));
+
+        assertThat(persisted).extracting(CalcRecord::getResult).containsExactly(1, 3);
+        verify(calcRecordRepository, times(WriteBehindCalcRecordWriter.BATCH_ATTEMPTS + 3)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("shutdown(): every write that was accepted while shutting down is flushed, later ones get 503")
+    @SuppressWarnings("unchecked")
+    void shutdown_racingWrites() throws Exception {
+        when(userRepository.findByUsernameIn(anyCollection())).thenReturn(List.of(owner));
+        List<CalcRecord> persisted = Collections.synchronizedList(new ArrayList<>());
+        when(calcRecordRepository.saveAll(any())).thenAnswer(inv -> {
+            persisted.addAll((List<CalcRecord>) inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        var writer = writer(10_000, 50);
+        writer.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<List<CalcRecord>>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            writers.add(pool.submit(() -> {
+                List<CalcRecord> accepted = new ArrayList<>();
+                try {
+                    for (int i = 0; i < 100_000; i++) accepted.add(writer.write("Tim", "1", 1));
+                } catch (ResponseStatusException shuttingDown) {
+                    assertThat(shuttingDown.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                }
+                return accepted;
+            }));
+        }
+        Thread.sleep(20);
+        writer.shutdown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        List<CalcRecord> accepted = new ArrayList<>();
+        for (Future<List<CalcRecord>> w : writers) accepted.addAll(w.get());
+        assertThat(accepted).isNotEmpty();
+        Set<CalcRecord> flushed = Collections.newSetFromMap(new IdentityHashMap<>());
+        flushed.addAll(persisted);
+        assertThat(persisted).hasSameSizeAs(accepted);
+        assertThat(accepted).allMatch(flushed::contains);
+        assertThat(writer.pending()).isZero();
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("mightContain(): never false for an added value")
+    void noFalseNegatives() {
+        var filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("user" + i);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("user" + i)).as("user" + i).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("mightContain(): false-positive rate stays near the configured fpp at capacity")
+    void falsePositiveRate() {
+        var filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("user" + i);
+
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) hits++;
+        }
+        assertThat(hits / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    @DisplayName("constructor: rejects nonsensical sizing")
+    void invalidSizing() {
+        assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(10, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
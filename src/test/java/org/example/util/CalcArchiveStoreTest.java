@@ -0,0 +1,107 @@
+package org.example.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CalcArchiveStoreTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    @TempDir
+    Path root;
+
+    private CalcArchiveStore store;
+    private Path segment;
+    private Path pending;
+
+    @BeforeEach
+    void setUp() {
+        store = new CalcArchiveStore(root);
+        segment = root.resolve("7").resolve("2024-03.ndjson.gz");
+        pending = root.resolve("7").resolve("2024-03.ndjson.gz.pending");
+    }
+
+    private List<String> read() throws IOException {
+        List<String> lines = new ArrayList<>();
+        store.read(7, MONTH, lines::add);
+        return lines;
+    }
+
+    /** What a crash halfway through append() leaves behind: the marker, then half a gzip member. */
+    private void crashMidAppend(String... lines) throws IOException {
+        long before = Files.size(segment);
+        Files.writeString(pending, Long.toString(before));
+        var member = new ByteArrayOutputStream();
+        try (var gz = new GZIPOutputStream(member)) {
+            gz.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] torn = Arrays.copyOf(member.toByteArray(), member.size() / 2);
+        Files.write(segment, torn, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    @DisplayName("append(): members appended one after another read back as one stream")
+    void appendsConcatenate() throws IOException {
+        store.append(7, MONTH, List.of("a", "b"));
+        store.append(7, MONTH, List.of("c"));
+
+        assertThat(read()).containsExactly("a", "b", "c");
+        assertThat(pending).doesNotExist();
+        assertThat(store.months(7, MONTH, MONTH)).containsExactly(MONTH);
+    }
+
+    @Test
+    @DisplayName("append() after a crash mid-append drops the torn member, so later members stay readable")
+    void tornMemberThenAppend() throws IOException {
+        store.append(7, MONTH, List.of("a", "b"));
+        long intact = Files.size(segment);
+        crashMidAppend("lost-1", "lost-2");
+
+        store.append(7, MONTH, List.of("c"));
+        store.append(7, MONTH, List.of("d"));
+
+        assertThat(read()).containsExactly("a", "b", "c", "d");
+        assertThat(pending).doesNotExist();
+        assertThat(Files.size(segment)).isGreaterThan(intact);
+    }
+
+    @Test
+    @DisplayName("read(): stops where a pending append started")
+    void readStopsAtPendingAppend() throws IOException {
+        store.append(7, MONTH, List.of("a"));
+        crashMidAppend("lost");
+
+        assertThat(read()).containsExactly("a");
+    }
+
+    @Test
+    @DisplayName("append(): a failed write is truncated away and its marker removed")
+    void failedAppendIsRolledBack() throws IOException {
+        store.append(7, MONTH, List.of("a"));
+        long before = Files.size(segment);
+        List<String> broken = Arrays.asList("b", null);
+
+        assertThatThrownBy(() -> store.append(7, MONTH, broken)).isInstanceOf(NullPointerException.class);
+
+        assertThat(Files.size(segment)).isEqualTo(before);
+        assertThat(pending).doesNotExist();
+        store.append(7, MONTH, List.of("c"));
+        assertThat(read()).containsExactly("a", "c");
+    }
+}
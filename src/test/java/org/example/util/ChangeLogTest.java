@@ -0,0 +1,215 @@
+package org.example.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ChangeLogTest {
+
+    @TempDir
+    Path dir;
+
+    private ChangeLog log;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (log != null) log.close();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> payloads(List<ChangeLog.Entry> entries) {
+        return entries.stream().map(e -> new String(e.payload(), StandardCharsets.UTF_8)).toList();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).count();
+        }
+    }
+
+    @Test
+    @DisplayName("read(): records become readable, in offset order, once synced")
+    void readsDurableRecords() throws Exception {
+        log = ChangeLog.open(dir, 4096);
+        assertThat(log.append(7, 1000, bytes("a"))).isZero();
+        assertThat(log.append(8, 1001, bytes("b"))).isEqualTo(1);
+
+        assertThat(log.read(0, 10)).isEmpty();
+        log.sync();
+
+        var entries = log.read(0, 10);
+        assertThat(payloads(entries)).containsExactly("a", "b");
+        assertThat(entries.get(1).key()).isEqualTo(8);
+        assertThat(entries.get(1).timestamp()).isEqualTo(1001);
+        assertThat(payloads(log.read(1, 10))).containsExactly("b");
+        assertThat(payloads(log.read(0, 1))).containsExactly("a");
+    }
+
+    @Test
+    @DisplayName("append(): rolls to a new segment when a record does not fit; reads span segments")
+    void rollsSegments() throws Exception {
+        log = ChangeLog.open(dir, 256);
+        for (int i = 0; i < 20; i++) {
+            log.append(i, i, bytes("record-" + i + "-" + "x".repeat(40)));
+        }
+        log.sync();
+
+        assertThat(log.segmentCount()).isGreaterThan(3);
+        assertThat(segmentFiles()).isEqualTo(log.segmentCount());
+        assertThat(log.read(0, 100)).extracting(ChangeLog.Entry::offset).containsExactlyElementsOf(
+                java.util.stream.LongStream.range(0, 20).boxed().toList());
+        assertThat(log.read(13, 2)).extracting(ChangeLog.Entry::offset).containsExactly(13L, 14L);
+        assertThatThrownBy(() -> log.append(1, 1, new byte[300])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("open(): a reopened log continues after its last record")
+    void reopens() throws Exception {
+        log = ChangeLog.open(dir, 256);
+        for (int i = 0; i < 10; i++) {
+            log.append(i, i, bytes("record-" + i + "-" + "x".repeat(40)));
+        }
+        log.close();
+
+        log = ChangeLog.open(dir, 256);
+        assertThat(log.endOffset()).isEqualTo(10);
+        assertThat(log.append(1, 1, bytes("after"))).isEqualTo(10);
+        log.sync();
+        assertThat(log.read(0, 100)).hasSize(11);
+    }
+
+    @Test
+    @DisplayName("open(): a record with a bad CRC is cut off together with everything after it")
+    void dropsTornTail() throws Exception {
+        log = ChangeLog.open(dir, 4096);
+        log.append(1, 1, bytes("first"));
+        log.append(2, 2, bytes("second"));
+        log.append(3, 3, bytes("third"));
+        log.close();
+
+        // flip one payload byte of "second"
+        Path segment = dir.resolve(String.format("%020d.log", 0));
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int second = ChangeLog.HEADER + "first".length();
+            ch.write(ByteBuffer.wrap(new byte[]{'S'}), second + ChangeLog.HEADER);
+        }
+
+        log = ChangeLog.open(dir, 4096);
+        assertThat(log.endOffset()).isEqualTo(1);
+        assertThat(log.append(9, 9, bytes("new"))).isEqualTo(1);
+        log.close();
+
+        log = ChangeLog.open(dir, 4096);
+        assertThat(payloads(log.read(0, 10))).containsExactly("first", "new");
+    }
+
+    @Test
+    @DisplayName("compact(): closed segments keep only each key's latest record, at its original offset")
+    void compactsByKey() throws Exception {
+        log = ChangeLog.open(dir, 256);
+        for (int i = 0; i < 12; i++) {
+            // keys 0..3, each written three times
+            log.append(i % 4, i, bytes("k" + (i % 4) + "-v" + i + "-" + "x".repeat(40)));
+        }
+        log.sync();
+        long start = log.startOffset();
+
+        int dropped = log.compact();
+
+        assertThat(dropped).isPositive();
+        var entries = log.read(0, 100);
+        assertThat(entries).extracting(ChangeLog.Entry::key).doesNotHaveDuplicates();
+        assertThat(entries).extracting(ChangeLog.Entry::offset).containsExactly(8L, 9L, 10L, 11L);
+        assertThat(log.startOffset()).isEqualTo(start);
+
+        // compacted segments survive a restart
+        log.close();
+        log = ChangeLog.open(dir, 256);
+        assertThat(log.read(0, 100)).extracting(ChangeLog.Entry::offset).containsExactly(8L, 9L, 10L, 11L);
+        assertThat(log.endOffset()).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("compact(): a newer record that is not durable yet does not replace the durable one")
+    void compactIgnoresUnsyncedRecords() throws Exception {
+        log = ChangeLog.open(dir, 256);
+        for (int i = 0; i < 6; i++) {
+            log.append(i, i, bytes("k" + i + "-" + "x".repeat(40)));
+        }
+        log.sync();
+        // newer records for keys 0..5, not synced: a crash now would lose them
+        for (int i = 0; i < 6; i++) {
+            log.append(i, 100 + i, bytes("k" + i + "-new-" + "x".repeat(40)));
+        }
+
+        assertThat(log.compact()).isZero();
+        assertThat(log.read(0, 100)).extracting(ChangeLog.Entry::offset).containsExactly(0L, 1L, 2L, 3L, 4L, 5L);
+
+        log.sync();
+        assertThat(log.compact()).isPositive();
+        assertThat(log.read(0, 100)).extracting(ChangeLog.Entry::offset)
+                .containsExactly(6L, 7L, 8L, 9L, 10L, 11L);
+    }
+
+    @Test
+    @DisplayName("applyRetention(): deletes old or excess closed segments, never the active one")
+    void retention() throws Exception {
+        log = ChangeLog.open(dir, 256);
+        for (int i = 0; i < 20; i++) {
+            log.append(i, i < 10 ? 1_000 : 50_000, bytes("record-" + i + "-" + "x".repeat(40)));
+        }
+        log.sync();
+        int before = log.segmentCount();
+
+        // three records per segment; at t=20000 the segments holding only t=1000 records (0-8) are
+        // older than 10s, while 9 shares its segment with newer records and stays
+        int deleted = log.applyRetention(Duration.ofSeconds(10), Long.MAX_VALUE, 20_000);
+        assertThat(deleted).isEqualTo(3);
+        assertThat(log.startOffset()).isEqualTo(9);
+        assertThat(log.read(0, 100)).extracting(ChangeLog.Entry::offset).first().isEqualTo(9L);
+
+        log.applyRetention(Duration.ofDays(1), 0, 20_000);
+        assertThat(log.segmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).isEqualTo(1);
+        assertThat(before).isGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("awaitDurable(): a tailing reader wakes up when the next sync covers its offset")
+    void tailing() throws Exception {
+        log = ChangeLog.open(dir, 4096);
+        var waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return log.awaitDurable(0, Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertThat(waiting).isNotDone();
+
+        log.append(1, 1, bytes("x"));
+        log.sync();
+
+        assertThat(waiting.get()).isTrue();
+        assertThat(log.awaitDurable(1, Duration.ofMillis(20))).isFalse();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CompiledFormulaTest {
+
+    @Test
+    @DisplayName("compile(): constant expressions match ExprCalculate")
+    void constants_matchExprCalculate() {
+        ExprCalculate calc = new ExprCalculate();
+        for (String expr : new String[] {"1+2*3", "(1+2)*3", "10/3-4", "2*(3+(4-1))/2", " 7 - 2 - 1 "}) {
+            assertThat(CompiledFormula.compile(expr).evaluate(new int[0]))
+                    .as(expr)
+                    .isEqualTo(calc.calculate(expr));
+        }
+    }
+
+    @Test
+    @DisplayName("compile(): variables get slots in order of first appearance")
+    void variables_inOrder() {
+        CompiledFormula f = CompiledFormula.compile("rate * (x + y) - x");
+
+        assertThat(f.variables()).containsExactly("rate", "x", "y");
+        assertThat(f.evaluate(new int[] {3, 4, 5})).isEqualTo(23);
+    }
+
+    @Test
+    @DisplayName("compile(): unary minus binds tighter than binary operators")
+    void unaryMinus() {
+        assertThat(CompiledFormula.compile("-x*2").evaluate(new int[] {3})).isEqualTo(-6);
+        assertThat(CompiledFormula.compile("2*-(1+x)").evaluate(new int[] {3})).isEqualTo(-8);
+    }
+
+    @Test
+    @DisplayName("evaluateColumns(): evaluates every row with the same program")
+    void columns_ok() {
+        CompiledFormula f = CompiledFormula.compile("x * y + 1");
+
+        int[] out = f.evaluateColumns(new int[][] {{1, 2, 3}, {4, 5, 6}}, 3);
+
+        assertThat(out).containsExactly(5, 11, 19);
+    }
+
+    @Test
+    @DisplayName("evaluateColumns(): rejects ragged columns")
+    void columns_ragged() {
+        CompiledFormula f = CompiledFormula.compile("x + y");
+
+        assertThatThrownBy(() -> f.evaluateColumns(new int[][] {{1, 2}, {1}}, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("compile(): rejects malformed expressions")
+    void malformed() {
+        assertThatThrownBy(() -> CompiledFormula.compile("(1+2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledFormula.compile("1+2)")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledFormula.compile("1+")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledFormula.compile("x % 2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledFormula.compile(" ")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CompressedBitmapTest {
+
+    // ids of the first shard start at 2^40 (NoteShardDataSources.idBase)
+    private static final long BASE = 1L << 40;
+
+    private static CompressedBitmap of(TreeSet<Long> values) {
+        var bitmap = new CompressedBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    /** Values in a few 65536-wide groups: some sparse, some dense enough to become bitsets. */
+    private static TreeSet<Long> random(Random rnd, int groups, int perGroupMax) {
+        var values = new TreeSet<Long>();
+        for (int g = 0; g < groups; g++) {
+            long high = BASE + ((long) rnd.nextInt(8) << 16);
+            int n = rnd.nextInt(perGroupMax);
+            for (int i = 0; i < n; i++) values.add(high + rnd.nextInt(65536));
+        }
+        return values;
+    }
+
+    private static void assertSame(CompressedBitmap bitmap, TreeSet<Long> expected) {
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        assertThat(bitmap.descending(0, expected.size() + 1))
+                .containsExactly(expected.descendingSet().stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Test
+    @DisplayName("add()/remove()/contains(): behave like a set across array and bitset groups")
+    void addRemoveContains() {
+        var bitmap = new CompressedBitmap();
+        var expected = new TreeSet<Long>();
+        var rnd = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long v = BASE + rnd.nextInt(3 * 65536);
+            boolean add = rnd.nextInt(3) > 0;
+            assertThat(add ? bitmap.add(v) : bitmap.remove(v))
+                    .isEqualTo(add ? expected.add(v) : expected.remove(v));
+        }
+        assertSame(bitmap, expected);
+        for (long v = BASE; v < BASE + 3 * 65536; v += 97) {
+            assertThat(bitmap.contains(v)).isEqualTo(expected.contains(v));
+        }
+        expected.forEach(bitmap::remove);
+        assertThat(bitmap.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("a group switches to a bitset past 4096 values and back when it empties out")
+    void containerConversion() {
+        var bitmap = new CompressedBitmap();
+        for (int i = 0; i < 10_000; i++) bitmap.add(BASE + 2L * i);
+        assertThat(bitmap.cardinality()).isEqualTo(10_000);
+        assertThat(bitmap.contains(BASE + 19_998)).isTrue();
+        assertThat(bitmap.contains(BASE + 19_997)).isFalse();
+
+        for (int i = 100; i < 10_000; i++) bitmap.remove(BASE + 2L * i);
+        assertThat(bitmap.cardinality()).isEqualTo(100);
+        assertThat(bitmap.descending(0, 3)).containsExactly(BASE + 198, BASE + 196, BASE + 194);
+    }
+
+    @Test
+    @DisplayName("and()/or()/andNot(): match TreeSet for random mixes of sparse and dense groups")
+    void setOperations() {
+        var rnd = new Random(42);
+        for (int round = 0; round < 30; round++) {
+            TreeSet<Long> a = random(rnd, 4, 9000);
+            TreeSet<Long> b = random(rnd, 4, 9000);
+            CompressedBitmap ba = of(a);
+            CompressedBitmap bb = of(b);
+
+            var and = new TreeSet<>(a);
+            and.retainAll(b);
+            var or = new TreeSet<>(a);
+            or.addAll(b);
+            var andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+
+            assertSame(ba.and(bb), and);
+            assertSame(ba.or(bb), or);
+            assertSame(ba.andNot(bb), andNot);
+            // operands are left as they were
+            assertSame(ba, a);
+            assertSame(bb, b);
+        }
+    }
+
+    @Test
+    @DisplayName("descending(): pages walk the values from the largest down")
+    void descendingPages() {
+        var values = new TreeSet<Long>();
+        for (long i = 0; i < 5000; i++) values.add(BASE + i * 3);      // one dense group
+        for (long i = 0; i < 50; i++) values.add(BASE + (5L << 16) + i); // one sparse group
+        CompressedBitmap bitmap = of(values);
+        long[] all = values.descendingSet().stream().mapToLong(Long::longValue).toArray();
+
+        for (int skip : new int[]{0, 10, 49, 50, 51, 4000, 5049}) {
+            int to = Math.min(all.length, skip + 20);
+            assertThat(bitmap.descending(skip, 20)).as("skip " + skip)
+                    .containsExactly(java.util.Arrays.copyOfRange(all, skip, to));
+        }
+        assertThat(bitmap.descending(all.length, 20)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("add(): rejects negative values")
+    void negative() {
+        assertThatThrownBy(() -> new CompressedBitmap().add(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(new CompressedBitmap().contains(-1)).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ExprCalculateTest {
+
+    private final ExprCalculate calc = new ExprCalculate();
+
+    @Test
+    @DisplayName("calculate(): precedence, parentheses and integer division")
+    void arithmetic() {
+        assertThat(calc.calculate("1+2*3")).isEqualTo(7);
+        assertThat(calc.calculate("(1+2)*3")).isEqualTo(9);
+        assertThat(calc.calculate("10/3-4")).isEqualTo(-1);
+        assertThat(calc.calculate("2*(3+(4-1))/2")).isEqualTo(6);
+        assertThat(calc.calculate("-3+5")).isEqualTo(2);
+        assertThat(calc.calculate("((7))")).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("calculate(): whitespace anywhere is ignored, without copying the input")
+    void whitespace() {
+        assertThat(calc.calculate(" 1 +\t2 *\n3 ")).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("calculate(): deep nesting within the limit needs no recursion")
+    void deepNesting_iterative() {
+        int depth = 50_000;
+        String expr = "(".repeat(depth) + "1" + ")".repeat(depth);
+        var unlimited = new ExprCalculate(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        assertThat(unlimited.calculate(expr)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("calculate(): rejects input over the depth, length and token limits")
+    void limits() {
+        var limited = new ExprCalculate(50, 3, 9);
+
+        assertThatThrownBy(() -> limited.calculate("((((1))))"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("nested");
+        assertThatThrownBy(() -> limited.calculate("1".repeat(51)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("longer");
+        assertThatThrownBy(() -> limited.calculate("1+1+1+1+1+1"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("tokens");
+        assertThat(limited.calculate("((1+2))*3")).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("calculate(): rejects malformed input")
+    void malformed() {
+        assertThatThrownBy(() -> calc.calculate("(1+2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calc.calculate("1+2)+5")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calc.calculate("2*")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calc.calculate("2^3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> calc.calculate("1/0")).isInstanceOf(ArithmeticException.class);
+    }
+}
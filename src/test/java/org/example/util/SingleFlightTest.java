@@ -0,0 +1,159 @@
+package org.example.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final List<Thread> callers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /** A loader that blocks until released, counting how often it ran. */
+    private static final class Gate implements Supplier<String> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        RuntimeException failure;
+
+        @Override
+        public String get() {
+            runs.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) throw failure;
+            return "result";
+        }
+    }
+
+    private CompletableFuture<String> call(SingleFlight<String, String> flight, String key, Supplier<String> loader) {
+        CompletableFuture<String> f = new CompletableFuture<>();
+        pool.execute(() -> {
+            synchronized (callers) {
+                callers.add(Thread.currentThread());
+            }
+            try {
+                f.complete(flight.execute(key, loader));
+            } catch (Throwable t) {
+                f.completeExceptionally(t);
+            }
+        });
+        return f;
+    }
+
+    /** Waits until {@code followers} callers are parked on the leader's future (the leader parks in its gate). */
+    private void awaitFollowersWaiting(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            synchronized (callers) {
+                if (callers.stream().filter(t -> t.getState() == Thread.State.TIMED_WAITING).count() >= followers + 1) return;
+            }
+            Thread.sleep(5);
+        }
+        fail("followers did not start waiting");
+    }
+
+    @Test
+    @DisplayName("execute(): concurrent calls with one key run the loader once and share its result")
+    void sharesOneExecution() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        Gate gate = new Gate();
+
+        CompletableFuture<String> leader = call(flight, "k", gate);
+        assertThat(gate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) followers.add(call(flight, "k", gate));
+        awaitFollowersWaiting(4);
+        gate.release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        for (var f : followers) assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(gate.runs).hasValue(1);
+        assertThat(flight.led()).isEqualTo(1);
+        assertThat(flight.shared()).isEqualTo(4);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("execute(): the leader's exception reaches every waiting caller, and the key is freed")
+    void sharesException() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        Gate gate = new Gate();
+        gate.failure = new IllegalStateException("db down");
+
+        CompletableFuture<String> leader = call(flight, "k", gate);
+        assertThat(gate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> follower = call(flight, "k", gate);
+        awaitFollowersWaiting(1);
+        gate.release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCause(gate.failure);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCause(gate.failure);
+        assertThat(flight.execute("k", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    @DisplayName("execute(): nothing is cached; sequential calls and other keys run their own loader")
+    void noCaching() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(Duration.ofSeconds(1));
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(flight.execute("a", runs::incrementAndGet)).isEqualTo(1);
+        assertThat(flight.execute("a", runs::incrementAndGet)).isEqualTo(2);
+        assertThat(flight.execute("b", runs::incrementAndGet)).isEqualTo(3);
+        assertThat(flight.shared()).isZero();
+    }
+
+    @Test
+    @DisplayName("execute(): a caller stops waiting after maxWait and runs the loader itself")
+    void boundedWait() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofMillis(50));
+        Gate gate = new Gate();
+        CompletableFuture<String> leader = call(flight, "k", gate);
+        assertThat(gate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(flight.execute("k", () -> "own")).isEqualTo("own");
+        assertThat(flight.abandoned()).isEqualTo(1);
+
+        gate.release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("forget(): later callers do not join an execution that started before it")
+    void forget() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        Gate gate = new Gate();
+        CompletableFuture<String> leader = call(flight, "emma:list", gate);
+        assertThat(gate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        flight.forget(k -> k.startsWith("emma:"));
+
+        assertThat(flight.execute("emma:list", () -> "fresh")).isEqualTo("fresh");
+        assertThat(flight.shared()).isZero();
+        gate.release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenBucketTableTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(5 * SECOND);
+
+    @Test
+    @DisplayName("tryAcquire(): a burst goes through, then the wait until the next token is returned")
+    void burstThenWait() {
+        var table = new TokenBucketTable(4, 100, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(table.tryAcquire("tim", 2, 3)).isZero();
+        }
+        assertThat(table.tryAcquire("tim", 2, 3)).isEqualTo(SECOND / 2);
+        // other keys have their own bucket
+        assertThat(table.tryAcquire("luke", 2, 3)).isZero();
+
+        now.addAndGet(SECOND / 2);
+        assertThat(table.tryAcquire("tim", 2, 3)).isZero();
+        assertThat(table.tryAcquire("tim", 2, 3)).isPositive();
+    }
+
+    @Test
+    @DisplayName("tryAcquire(): a rejected request does not use up a token")
+    void rejectionIsFree() {
+        var table = new TokenBucketTable(4, 100, now::get);
+        assertThat(table.tryAcquire("tim", 1, 1)).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(table.tryAcquire("tim", 1, 1)).isPositive();
+        }
+
+        now.addAndGet(SECOND);
+        assertThat(table.tryAcquire("tim", 1, 1)).isZero();
+    }
+
+    @Test
+    @DisplayName("sweep(): only buckets that have refilled completely are dropped")
+    void sweepDropsFullBuckets() {
+        var table = new TokenBucketTable(4, 100, now::get);
+        table.tryAcquire("idle", 10, 5);
+        for (int i = 0; i < 5; i++) {
+            table.tryAcquire("busy", 1, 5);
+        }
+
+        now.addAndGet(SECOND);
+        assertThat(table.sweep()).isEqualTo(1);
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.evicted()).isEqualTo(1);
+        // busy still has to wait: its state survived
+        assertThat(table.tryAcquire("busy", 1, 5)).isZero();
+        assertThat(table.tryAcquire("busy", 1, 5)).isPositive();
+    }
+
+    @Test
+    @DisplayName("tryAcquire(): a full table lets new keys through untracked instead of growing")
+    void boundedSize() {
+        var table = new TokenBucketTable(1, 3, now::get);
+        for (int i = 0; i < 3; i++) {
+            table.tryAcquire("user-" + i, 1, 1);
+        }
+
+        assertThat(table.tryAcquire("user-3", 1, 1)).isZero();
+        assertThat(table.tryAcquire("user-3", 1, 1)).isZero();
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.untracked()).isEqualTo(2);
+
+        // once the others have refilled, the new key gets a bucket of its own
+        now.addAndGet(SECOND);
+        assertThat(table.tryAcquire("user-3", 1, 1)).isZero();
+        assertThat(table.tryAcquire("user-3", 1, 1)).isPositive();
+    }
+
+    @Test
+    @DisplayName("tryAcquire(): concurrent callers never get more than the burst")
+    void concurrentCallersShareOneBucket() throws Exception {
+        var table = new TokenBucketTable(8, 1000, now::get);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (table.tryAcquire("tim", 1, 100) == 0) granted.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(granted.get()).isEqualTo(100);
+    }
+}